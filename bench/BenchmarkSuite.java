@@ -0,0 +1,212 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ParserConfiguration.LanguageLevel;
+import com.github.javaparser.ast.CompilationUnit;
+
+/**
+ * This class benchmarks every stage of the analysis on generated projects of several sizes and shapes,
+ * so scaling curves and regressions are visible: file discovery, parsing (one thread and all cores),
+ * the control flow visitor and its token-only lexer, cycle detection, dependency changes on a built graph
+ * and the inheritance metrics.
+ *
+ * Build and run from the repository root, for example:
+ *   javac -d out -cp "lib/*" src/*.java bench/*.java
+ *   java -cp "lib/*:out" BenchmarkSuite 1000,10000 DEEP,WIDE,CYCLIC
+ */
+public class BenchmarkSuite {
+    private static final int WARMUPS = 3;
+    private static final int ITERATIONS = 5;
+    private static final int CHANGES_PER_ITERATION = 1000; // dependencies checked, removed and added again per iteration
+
+    // Gives the suite access to Evaluator.traverseFolder
+    private static class Discovery extends Evaluator {
+        List<File> discover(File root) throws IOException {
+            List<File> files = new ArrayList<>();
+            traverseFolder(root, files);
+            return files;
+        }
+    }
+
+    /**
+     * Runs the suite: BenchmarkSuite [sizes] [shapes], both comma separated.
+     * @param args - the project sizes in classes and the project shapes
+     * @throws Exception if a project cannot be generated or analyzed
+     */
+    public static void main(String[] args) throws Exception {
+        String sizes = args.length > 0 ? args[0] : "1000,10000";
+        String shapes = args.length > 1 ? args[1] : "DEEP,WIDE,CYCLIC";
+        StaticJavaParser.setConfiguration(new ParserConfiguration()
+                .setLanguageLevel(LanguageLevel.JAVA_18).setStoreTokens(false));
+
+        for (String shape : shapes.split(",")) {
+            for (String size : sizes.split(",")) {
+                Path root = Files.createTempDirectory("bench-" + shape + "-" + size);
+                try {
+                    ProjectGenerator.forShape(ProjectGenerator.Shape.valueOf(shape), Integer.parseInt(size)).generate(root);
+                    System.out.println("== " + shape + " project with " + size + " classes");
+                    for (Measurement measurement : runProject(root.toFile())) {
+                        System.out.println(measurement);
+                    }
+                } finally {
+                    delete(root);
+                }
+            }
+        }
+    }
+
+    // Runs every benchmark against one generated project
+    private static List<Measurement> runProject(File root) throws Exception {
+        List<Measurement> results = new ArrayList<>();
+        Discovery discovery = new Discovery();
+        List<File> files = discovery.discover(root);
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        results.add(Measurement.run("discovery", WARMUPS, ITERATIONS, () -> discovery.discover(root)));
+        results.add(Measurement.run("parse, 1 thread", WARMUPS, ITERATIONS,
+                () -> parseAll(root, 1)));
+        if (cores > 1) {
+            results.add(Measurement.run("parse, " + cores + " threads", WARMUPS, ITERATIONS,
+                    () -> parseAll(root, cores)));
+        }
+
+        List<CompilationUnit> asts = new ArrayList<>();
+        for (File file : files) {
+            asts.add(StaticJavaParser.parse(file));
+        }
+        results.add(Measurement.run("control flow visitor", WARMUPS, ITERATIONS, () -> {
+            ControlFlow flow = new ControlFlow();
+            for (CompilationUnit cu : asts) {
+                flow.analyze(cu);
+            }
+            return flow.calculateCyclometicComplexity();
+        }));
+        List<char[]> sources = new ArrayList<>();
+        for (File file : files) {
+            sources.add(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).toCharArray());
+        }
+        results.add(Measurement.run("control flow lexer", WARMUPS, ITERATIONS, () -> {
+            int[] counts = ControlFlowVisitor.newCounts();
+            ControlFlowLexer lexer = new ControlFlowLexer(new ComplexityHotSpots(ControlFlow.DEFAULT_HOT_SPOTS));
+            for (char[] source : sources) {
+                lexer.count(source, 0, source.length, counts);
+            }
+            return counts;
+        }));
+        results.add(Measurement.run("control flow from disk, parsed", WARMUPS, ITERATIONS,
+                () -> complexityOf(root, false)));
+        results.add(Measurement.run("control flow from disk, lexer only", WARMUPS, ITERATIONS,
+                () -> complexityOf(root, true)));
+
+        DependencyCycles dependencies = new DependencyCycles();
+        InheritanceAnalyses inheritance = new InheritanceAnalyses();
+        for (CompilationUnit cu : asts) {
+            dependencies.analyze(cu);
+            inheritance.analyze(cu);
+        }
+        inheritance.finish();
+        results.add(Measurement.run("dependency extraction", WARMUPS, ITERATIONS, () -> {
+            DependencyCycles fresh = new DependencyCycles();
+            for (CompilationUnit cu : asts) {
+                fresh.analyze(cu);
+            }
+            return fresh.getDependencyCount();
+        }));
+        List<FileFacts> dependencyFacts = new ArrayList<>();
+        for (CompilationUnit cu : asts) {
+            FileFacts facts = new FileFacts("");
+            dependencies.extract(cu, facts);
+            dependencyFacts.add(facts);
+        }
+        // addDependency keeps the dependency order up to date edge by edge, so this measures incremental maintenance
+        results.add(Measurement.run("dependency graph, incremental", WARMUPS, ITERATIONS, () -> {
+            DependencyCycles fresh = new DependencyCycles();
+            for (FileFacts facts : dependencyFacts) {
+                facts.getDependencies().forEach((from, targets) -> targets.forEach(to -> fresh.addDependency(from, to)));
+            }
+            return fresh.getDependencyCount();
+        }));
+        results.add(Measurement.run("dependency graph build, parallel", WARMUPS, ITERATIONS, () -> {
+            DependencyCycles fresh = new DependencyCycles();
+            dependencyFacts.forEach(fresh::accept);
+            fresh.finish();
+            return fresh.getDependencyCount();
+        }));
+        results.add(Measurement.run("getCycles", WARMUPS, ITERATIONS, dependencies::getCycles));
+
+        // Single dependency changes against a graph that was built all at once, as a watcher or a pre-merge check sees
+        DependencyCycles built = new DependencyCycles();
+        dependencyFacts.forEach(built::accept);
+        built.finish();
+        List<String[]> sample = sampleDependencies(dependencyFacts, CHANGES_PER_ITERATION);
+        results.add(Measurement.run("wouldIntroduceCycle, " + sample.size() + " checks", WARMUPS, ITERATIONS, () -> {
+            int closing = 0;
+            for (String[] dependency : sample) {
+                closing += built.wouldIntroduceCycle(dependency[1], dependency[0]) ? 1 : 0; // the reverse dependency
+            }
+            return closing;
+        }));
+        results.add(Measurement.run("remove and re-add, " + sample.size() + " changes", WARMUPS, ITERATIONS, () -> {
+            int changed = 0;
+            for (String[] dependency : sample) {
+                changed += built.removeDependency(dependency[0], dependency[1]) ? 1 : 0;
+                changed += built.addDependency(dependency[0], dependency[1]) ? 1 : 0;
+            }
+            return changed;
+        }));
+        results.add(Measurement.run("class and package condensation", WARMUPS, ITERATIONS,
+                () -> dependencies.getClassCondensation().getLayerCount() + dependencies.getPackageCondensation().getLayerCount()));
+        results.add(Measurement.run("findMaximumBreadth", WARMUPS, ITERATIONS, inheritance::findMaximumBreadth));
+        results.add(Measurement.run("findAverageBranchingFactor", WARMUPS, ITERATIONS,
+                inheritance::findAverageBranchingFactor));
+        return results;
+    }
+
+    // Picks up to count dependencies spread evenly over the files, as from and to pairs
+    private static List<String[]> sampleDependencies(List<FileFacts> files, int count) {
+        List<String[]> all = new ArrayList<>();
+        for (FileFacts facts : files) {
+            facts.getDependencies().forEach((from, targets) -> targets.forEach(to -> {
+                if (!from.equals(to)) {
+                    all.add(new String[] {from, to});
+                }
+            }));
+        }
+        List<String[]> sample = new ArrayList<>();
+        int step = Math.max(1, all.size() / count);
+        for (int i = 0; i < all.size() && sample.size() < count; i += step) {
+            sample.add(all.get(i));
+        }
+        return sample;
+    }
+
+    // Parses every file of a project with no analyzer registered
+    private static int parseAll(File root, int threads) throws Exception {
+        ParsePipeline pipeline = new ParsePipeline(threads);
+        pipeline.run(root);
+        return pipeline.getFilesParsed();
+    }
+
+    // Runs the control flow analysis alone on one thread, on ASTs or on tokens
+    private static int complexityOf(File root, boolean lexerOnly) throws Exception {
+        ControlFlow flow = new ControlFlow(ControlFlow.DEFAULT_HOT_SPOTS, lexerOnly);
+        new ParsePipeline().register(flow).run(root);
+        return flow.calculateCyclometicComplexity();
+    }
+
+    // Deletes a generated project
+    private static void delete(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+
+/**
+ * This class times one benchmark operation the way JMH's average-time mode does:
+ * a number of untimed warm-up iterations, then timed iterations reported as mean and standard deviation.
+ * Every result is folded into a volatile sink so the JIT cannot remove the measured work.
+ */
+public class Measurement {
+    private static volatile long sink; // consumes benchmark results, like a JMH Blackhole
+
+    private final String name;
+    private final double[] millis; // time of every measured iteration
+
+    private Measurement(String name, double[] millis) {
+        this.name = name;
+        this.millis = millis;
+    }
+
+    /**
+     * This method runs an operation repeatedly and times it.
+     * @param name - the name to report the measurement under
+     * @param warmups - the number of untimed iterations
+     * @param iterations - the number of timed iterations
+     * @param operation - the work to time, its result is consumed
+     * @return the measurement
+     * @throws Exception if the operation fails
+     */
+    public static Measurement run(String name, int warmups, int iterations, Callable<?> operation) throws Exception {
+        for (int i = 0; i < warmups; i++) {
+            consume(operation.call());
+        }
+        double[] millis = new double[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            consume(operation.call());
+            millis[i] = (System.nanoTime() - start) / 1_000_000.0;
+        }
+        return new Measurement(name, millis);
+    }
+
+    // Folds a result into the sink
+    private static void consume(Object result) {
+        sink += result == null ? 0 : result.hashCode();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getMean() {
+        return Arrays.stream(millis).average().orElse(0);
+    }
+
+    public double getStandardDeviation() {
+        double mean = getMean();
+        return Math.sqrt(Arrays.stream(millis).map(m -> (m - mean) * (m - mean)).average().orElse(0));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-32s %12.3f ms/op  +- %.3f", name, getMean(), getStandardDeviation());
+    }
+}
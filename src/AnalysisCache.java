@@ -0,0 +1,185 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class is an on-disk cache of FileFacts keyed by a SHA-256 hash of each file's content.
+ * A file whose content is unchanged since the cache was written does not need to be parsed again.
+ * Only the entries used by the latest run are written back, so the cache does not grow with history.
+ * Entries are held in their serialized form and only turned back into FileFacts when a file needs them,
+ * which keeps the cache several times smaller on the heap than the facts themselves.
+ */
+public class AnalysisCache {
+    private static final int MAGIC = 0x53434143; // "SCAC"
+    private static final int VERSION = 5;
+
+    private final Path file; // where the cache is stored
+    private final String fingerprint; // analysis settings the cached facts depend on
+    private final Map<String, byte[]> previous; // serialized entries loaded from disk
+    private final Map<String, byte[]> current; // serialized entries used by this run
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    /**
+     * Constructor for the AnalysisCache class. Loads the cache file if it exists and matches.
+     * @param file - the cache file
+     * @param fingerprint - settings that change the extracted facts, a cache written with other settings is ignored
+     */
+    public AnalysisCache(Path file, String fingerprint) {
+        this.file = file;
+        this.fingerprint = fingerprint;
+        this.previous = new ConcurrentHashMap<>();
+        this.current = new ConcurrentHashMap<>();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        load();
+    }
+
+    // Reads the cache file, starting empty if it is missing, stale or unreadable
+    private void load() {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(fingerprint)) {
+                return;
+            }
+            int entries = in.readInt();
+            for (int i = 0; i < entries; i++) {
+                String hash = in.readUTF();
+                byte[] entry = new byte[in.readInt()];
+                in.readFully(entry);
+                previous.put(hash, entry);
+            }
+        } catch (IOException e) {
+            System.out.println("Ignoring unreadable analysis cache " + file + ": " + e.getMessage());
+            previous.clear();
+        }
+    }
+
+    /**
+     * This method returns the cached facts for a file, if its content has been analyzed before.
+     * @param hash - the content hash of the file
+     * @param path - the file the facts will describe
+     * @return the facts, or null if the content is not cached
+     */
+    public FileFacts get(String hash, String path) {
+        byte[] cached = current.get(hash);
+        if (cached == null) {
+            cached = previous.get(hash);
+        }
+        if (cached == null) {
+            misses.increment();
+            return null;
+        }
+        try {
+            FileFacts facts = FileFacts.read(new DataInputStream(new ByteArrayInputStream(cached)), path);
+            hits.increment();
+            current.put(hash, cached);
+            return facts;
+        } catch (IOException e) {
+            // A damaged entry is treated like a changed file
+            misses.increment();
+            return null;
+        }
+    }
+
+    /**
+     * This method stores freshly extracted facts.
+     * @param hash - the content hash of the file
+     * @param facts - the facts extracted from the file
+     */
+    public void put(String hash, FileFacts facts) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            facts.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // cannot happen when writing to memory
+        }
+        current.put(hash, bytes.toByteArray());
+    }
+
+    /**
+     * This method writes the entries used by this run to the cache file.
+     * @throws IOException if the cache cannot be written
+     */
+    public void save() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = Files.createTempFile(parent, "analysis", ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(fingerprint);
+            out.writeInt(current.size());
+            for (Map.Entry<String, byte[]> entry : current.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().length);
+                out.write(entry.getValue());
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * This method hashes the content of a file.
+     * @param content - the bytes of the file
+     * @return the SHA-256 hash as a hex string
+     */
+    public static String hash(byte[] content) {
+        return hash(ByteBuffer.wrap(content));
+    }
+
+    /**
+     * This method hashes the content of a file without copying it out of its buffer.
+     * The position of the buffer is not changed.
+     * @param content - the bytes of the file, from the position to the limit
+     * @return the SHA-256 hash as a hex string
+     */
+    public static String hash(ByteBuffer content) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            sha.update(content.duplicate());
+            byte[] digest = sha.digest();
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * This method returns the number of files served from the cache.
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * This method returns the number of files that had to be parsed.
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+}
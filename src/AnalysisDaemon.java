@@ -0,0 +1,133 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class answers analysis requests for a project that stays loaded, so an editor can check the project after
+ * every save without paying for a new JVM, class loading, JIT warm-up and parsing the whole project again.
+ * The facts of every file are kept in a ProjectModel. A request only parses the files that changed; fresh analyses
+ * are then fed the facts of every file, and the full report is written in the format of the options.
+ * Requests are lines of text, read from standard input or from connections to a port on the loopback address:
+ * <ul>
+ *     <li>changed PATH - marks a file as created, modified or deleted, without an answer</li>
+ *     <li>analyze - analyses the marked files again, or if none are marked every file whose modification time
+ *     changed, and answers with the facts of those files and the report of the whole project</li>
+ *     <li>quit - ends the session</li>
+ * </ul>
+ * Every answer ends with a done record, in text an "Answered in N ms" line followed by an empty line.
+ * Files that cannot be parsed keep their earlier facts and are reported as errors before the report.
+ */
+public class AnalysisDaemon {
+    private final AnalysisOptions options;
+    private final ProjectModel model; // facts of every file of the project
+    private final ParsePipeline pipeline; // extracts the facts of changed files
+
+    /**
+     * Constructor for the AnalysisDaemon class.
+     * @param options - the options of the analyses and the report format
+     * @param model - the loaded project
+     * @param pipeline - the pipeline the model extracts facts with
+     */
+    public AnalysisDaemon(AnalysisOptions options, ProjectModel model, ParsePipeline pipeline) {
+        this.options = options;
+        this.model = model;
+        this.pipeline = pipeline;
+    }
+
+    /**
+     * This method answers requests from one client until it quits or its input ends.
+     * @param in - the requests
+     * @param out - where the answers are written, closed at the end of the session
+     * @throws IOException if the requests cannot be read or the answers cannot be written
+     */
+    public void serve(InputStream in, OutputStream out) throws IOException {
+        BufferedReader requests = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        Set<File> changed = new LinkedHashSet<>();
+        try (ReportSink sink = ReportSink.create(options.getFormat(), out)) {
+            for (String line = requests.readLine(); line != null; line = requests.readLine()) {
+                if (line.startsWith("changed ")) {
+                    changed.add(new File(line.substring("changed ".length())));
+                } else if (line.equals("analyze")) {
+                    answer(sink, changed);
+                    changed.clear();
+                } else if (line.equals("quit")) {
+                    break;
+                } else if (!line.isBlank()) {
+                    sink.error("Unknown request: " + line);
+                    sink.done(0);
+                    sink.flush();
+                }
+            }
+        }
+    }
+
+    /**
+     * This method answers the clients that connect to a port of the loopback address, one after the other.
+     * It only returns if the port cannot be listened on.
+     * @param port - the port to listen on
+     * @throws IOException if the port cannot be listened on
+     */
+    public void listen(int port) throws IOException {
+        try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            System.out.println("Listening on " + server.getLocalSocketAddress() + " with " + model.getFileCount() + " files loaded");
+            while (true) {
+                try (Socket client = server.accept()) {
+                    serve(client.getInputStream(), client.getOutputStream());
+                } catch (IOException e) {
+                    System.out.println("Lost connection to client: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Analyses the changed files again and reports on the whole project
+    private void answer(ReportSink sink, Set<File> changed) throws IOException {
+        long start = System.nanoTime();
+        pipeline.resetStatistics();
+        List<File> files;
+        try {
+            files = changed.isEmpty() ? model.findChanged() : new ArrayList<>(changed);
+        } catch (Exception e) {
+            sink.error("Cannot read " + options.getFolder() + ": " + e.getMessage());
+            sink.done((System.nanoTime() - start) / 1_000_000);
+            sink.flush();
+            return;
+        }
+        Map<File, Exception> failures = new LinkedHashMap<>();
+        List<FileFacts> updated = model.update(files, failures);
+
+        List<Analyzer> analyses = StaticCodeAnalysis.createAnalyses(options);
+        for (FileFacts facts : model.getFiles()) {
+            for (Analyzer analysis : analyses) {
+                analysis.accept(facts);
+            }
+        }
+        for (Analyzer analysis : analyses) {
+            analysis.finish();
+        }
+
+        for (Map.Entry<File, Exception> failure : failures.entrySet()) {
+            String reason = String.valueOf(failure.getValue().getMessage()).lines().findFirst().orElse("");
+            sink.error(failure.getKey() + ": " + reason);
+        }
+        for (FileFacts facts : updated) {
+            sink.file(facts);
+        }
+        StaticCodeAnalysis.report(sink, options, pipeline, null);
+        sink.done((System.nanoTime() - start) / 1_000_000);
+        sink.flush();
+    }
+}
@@ -0,0 +1,252 @@
+/**
+ * This class holds the command line options for StaticCodeAnalysis.
+ * The first argument is the project folder, any further arguments are options of the form --name=value.
+ * --fast only reports control flow and complexity, counted from tokens without parsing the project.
+ * --accurate resolves type names against every class of the project instead of guessing them file by file.
+ * --format=jsonl or --format=binary writes a machine-readable report instead of text, --output=FILE writes it to a file.
+ * --daemon keeps the project loaded and answers requests on standard input, --daemon=PORT on a loopback port.
+ * --watch reports the project once and then reports every change to its files as it happens.
+ * --read-ahead reads files on threads of their own while others are parsed, for sources on slow or network storage.
+ * --include and --exclude may be repeated, for example --exclude=target --exclude=build --exclude=generated-sources.
+ */
+public class AnalysisOptions {
+    private final String folder; // the project folder to analyze
+    private int threads; // number of parser threads
+    private int hotSpots; // number of most complex methods to report
+    private int cyclesPerComponent; // number of elementary cycles to report for each cyclic component
+    private String cacheFile; // where per-file facts are cached between runs, null if caching is off
+    private final SourceFilter filter; // which files of the project are analyzed
+    private boolean complexityOnly; // only count control flow, from tokens, without parsing
+    private boolean accurate; // resolve dependencies against the whole project
+    private String format; // the report format, one of ReportSink.FORMATS
+    private String outputFile; // where the report is written, null for standard output
+    private boolean daemon; // keep the project loaded and answer requests, see AnalysisDaemon
+    private int daemonPort; // the loopback port the daemon listens on, 0 for standard input
+    private boolean watch; // keep the results up to date while files change, see ProjectWatcher
+    private boolean readAhead; // read files ahead of the parser threads, see ParsePipeline.setReadAhead
+
+    private AnalysisOptions(String folder) {
+        this.folder = folder;
+        this.threads = Runtime.getRuntime().availableProcessors();
+        this.hotSpots = ControlFlow.DEFAULT_HOT_SPOTS;
+        this.cyclesPerComponent = DependencyCycles.DEFAULT_CYCLES_PER_COMPONENT;
+        this.filter = new SourceFilter();
+        this.format = ReportSink.FORMATS.get(0);
+    }
+
+    /**
+     * This method parses the command line arguments.
+     * @param args - the arguments passed to main
+     * @return the parsed options
+     * @throws IllegalArgumentException if the folder is missing or an option is not recognised
+     */
+    public static AnalysisOptions parse(String[] args) {
+        if (args.length == 0 || args[0].startsWith("--")) {
+            throw new IllegalArgumentException("First argument should be the path to your project folder");
+        }
+        AnalysisOptions options = new AnalysisOptions(args[0]);
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            int split = arg.indexOf('=');
+            String name = split < 0 ? arg : arg.substring(0, split);
+            String value = split < 0 ? "" : arg.substring(split + 1);
+            switch (name) {
+                case "--threads":
+                    options.threads = parsePositive(name, value);
+                    break;
+                case "--top":
+                    options.hotSpots = parsePositive(name, value);
+                    break;
+                case "--cycles-per-component":
+                    options.cyclesPerComponent = parsePositive(name, value);
+                    break;
+                case "--cache":
+                    if (value.isEmpty()) {
+                        throw new IllegalArgumentException("--cache expects a file path");
+                    }
+                    options.cacheFile = value;
+                    break;
+                case "--include":
+                    options.filter.include(requireGlob(name, value));
+                    break;
+                case "--exclude":
+                    options.filter.exclude(requireGlob(name, value));
+                    break;
+                case "--follow-links":
+                    options.filter.setFollowLinks(true);
+                    break;
+                case "--fast":
+                    options.complexityOnly = true;
+                    break;
+                case "--accurate":
+                    options.accurate = true;
+                    break;
+                case "--format":
+                    if (!ReportSink.FORMATS.contains(value)) {
+                        throw new IllegalArgumentException("--format expects one of " + String.join(", ", ReportSink.FORMATS)
+                                + ", got '" + value + "'");
+                    }
+                    options.format = value;
+                    break;
+                case "--daemon":
+                    options.daemon = true;
+                    options.daemonPort = value.isEmpty() ? 0 : parsePositive(name, value);
+                    break;
+                case "--watch":
+                    options.watch = true;
+                    break;
+                case "--read-ahead":
+                    options.readAhead = true;
+                    break;
+                case "--output":
+                    if (value.isEmpty()) {
+                        throw new IllegalArgumentException("--output expects a file path");
+                    }
+                    options.outputFile = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        if (options.daemon && options.outputFile != null) {
+            throw new IllegalArgumentException("--output cannot be used with --daemon, which answers each request");
+        }
+        if (options.watch && (options.daemon || options.complexityOnly || options.outputFile != null)) {
+            throw new IllegalArgumentException("--watch cannot be used with --daemon, --fast or --output");
+        }
+        return options;
+    }
+
+    // Parses a strictly positive integer option value.
+    private static int parsePositive(String name, String value) {
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed > 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // fall through to the error below
+        }
+        throw new IllegalArgumentException(name + " expects a positive integer, got '" + value + "'");
+    }
+
+    // Checks that a glob option has a pattern.
+    private static String requireGlob(String name, String value) {
+        if (value.isEmpty()) {
+            throw new IllegalArgumentException(name + " expects a glob pattern");
+        }
+        return value;
+    }
+
+    /**
+     * This method returns the project folder to analyze.
+     * @return the project folder
+     */
+    public String getFolder() {
+        return folder;
+    }
+
+    /**
+     * This method returns the number of threads used to parse files.
+     * @return the number of parser threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * This method returns whether files are read on threads of their own, ahead of the parser threads.
+     * @return true to read ahead
+     */
+    public boolean isReadAhead() {
+        return readAhead;
+    }
+
+    /**
+     * This method returns the number of most complex methods to report.
+     * @return the number of hot spots
+     */
+    public int getHotSpots() {
+        return hotSpots;
+    }
+
+    /**
+     * This method returns the number of elementary cycles to report for each group of mutually dependent classes.
+     * @return the number of cycles per component
+     */
+    public int getCyclesPerComponent() {
+        return cyclesPerComponent;
+    }
+
+    /**
+     * This method returns the file used to cache per-file facts between runs.
+     * @return the cache file, or null if caching is off
+     */
+    public String getCacheFile() {
+        return cacheFile;
+    }
+
+    /**
+     * This method returns the include and exclude patterns for the project tree.
+     * @return the source filter
+     */
+    public SourceFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * This method returns whether only the control flow analysis runs, on tokens instead of ASTs.
+     * @return true for the fast complexity-only mode
+     */
+    public boolean isComplexityOnly() {
+        return complexityOnly;
+    }
+
+    /**
+     * This method returns whether dependencies are resolved against every class of the project.
+     * @return true for accurate dependency resolution
+     */
+    public boolean isAccurate() {
+        return accurate;
+    }
+
+    /**
+     * This method returns the format the report is written in.
+     * @return text, jsonl or binary
+     */
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * This method returns the file the report is written to.
+     * @return the output file, or null to write to standard output
+     */
+    public String getOutputFile() {
+        return outputFile;
+    }
+
+    /**
+     * This method returns whether the project stays loaded to answer requests, instead of being reported once.
+     * @return true for the daemon mode
+     */
+    public boolean isDaemon() {
+        return daemon;
+    }
+
+    /**
+     * This method returns the port the daemon listens on.
+     * @return the loopback port, or 0 to read requests from standard input
+     */
+    public int getDaemonPort() {
+        return daemonPort;
+    }
+
+    /**
+     * This method returns whether the results are kept up to date while the project's files change.
+     * @return true for the watch mode
+     */
+    public boolean isWatch() {
+        return watch;
+    }
+}
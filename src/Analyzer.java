@@ -0,0 +1,58 @@
+import com.github.javaparser.ast.CompilationUnit;
+
+import java.nio.CharBuffer;
+
+/**
+ * An analysis fed by a ParsePipeline.
+ * Each file is parsed once; every registered analyzer extracts its facts about the file from the
+ * shared AST into a FileFacts object, and then folds those facts into its own results.
+ * Because results are computed from facts rather than ASTs, facts can be reused from an AnalysisCache
+ * for files that have not changed.
+ */
+public interface Analyzer {
+
+    /**
+     * This method records this analysis' facts about one file.
+     * It may be called from several threads at once and must only write to the given facts.
+     * @param cu - Compilation Unit - the AST for the file
+     * @param facts - the facts for the file
+     */
+    void extract(CompilationUnit cu, FileFacts facts);
+
+    /**
+     * This method records this analysis' facts about one file straight from its source text, without an AST.
+     * A file is only parsed if at least one registered analysis needs its AST, so an analysis that can work
+     * from the text alone saves the parse when it runs on its own.
+     * It may be called from several threads at once and must only write to the given facts.
+     * @param source - the characters of the file, from the position to the limit of an array-backed buffer
+     * @param facts - the facts for the file
+     * @return true if the facts were recorded, false if this analysis needs the AST
+     */
+    default boolean extractFromSource(CharBuffer source, FileFacts facts) {
+        return false;
+    }
+
+    /**
+     * This method adds the facts of one file to the results.
+     * It is called once for every file, in traversal order, whether the facts are fresh or cached.
+     * @param facts - the facts for the file
+     */
+    void accept(FileFacts facts);
+
+    /**
+     * This method is called once after the last file has been accepted.
+     * Analyses that need to see the whole project before resolving anything do that work here.
+     */
+    default void finish() {
+    }
+
+    /**
+     * This method extracts and accepts the facts of a single AST in one step.
+     * @param cu - Compilation Unit - the AST for the file
+     */
+    default void analyze(CompilationUnit cu) {
+        FileFacts facts = new FileFacts(cu.getStorage().map(s -> s.getPath().toString()).orElse(""));
+        extract(cu, facts);
+        accept(facts);
+    }
+}
@@ -0,0 +1,229 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class writes the report in a compact binary format, for ingesting large reports quickly.
+ * The stream starts with the bytes "SCAR" and a version byte. Each record follows as its type, then its fields,
+ * each a tag byte, the field name and the value, and finally a 0 byte. The tags are 1 for a string, 2 for an
+ * integer, written as a zigzag varint, 3 for a decimal, written as 8 bytes, and 4 for a list, written as a varint
+ * count followed by the strings. The stream ends after the last record.
+ * Class, package and field names repeat throughout a report, so strings are written once: a string is a varint,
+ * 0 followed by the varint length and UTF-8 bytes of a new string, or n to repeat the n-th new string.
+ * Only the first MAX_STRINGS new strings can be repeated, which bounds the memory on both sides.
+ * The decode method reads a report back into any RecordReportSink, for example to convert it to JSON Lines.
+ */
+public class BinaryReportSink extends RecordReportSink {
+    /** The number of distinct strings that are written once and then referred to. */
+    public static final int MAX_STRINGS = 1 << 16;
+
+    private static final byte[] MAGIC = "SCAR".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final int END = 0;
+    private static final int STRING = 1;
+    private static final int INTEGER = 2;
+    private static final int DECIMAL = 3;
+    private static final int LIST = 4;
+
+    private final DataOutputStream out;
+    private final Map<String, Integer> strings; // strings written so far -> reference
+    private boolean started; // true once the header is written
+
+    /**
+     * Constructor for the BinaryReportSink class.
+     * @param out - the stream to write to
+     */
+    public BinaryReportSink(OutputStream out) {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        this.strings = new HashMap<>();
+    }
+
+    @Override
+    protected void beginRecord(String type) throws IOException {
+        if (!started) {
+            out.write(MAGIC);
+            out.write(VERSION);
+            started = true;
+        }
+        string(type);
+    }
+
+    @Override
+    protected void field(String name, String value) throws IOException {
+        out.write(STRING);
+        string(name);
+        string(value);
+    }
+
+    @Override
+    protected void field(String name, long value) throws IOException {
+        out.write(INTEGER);
+        string(name);
+        varint((value << 1) ^ (value >> 63));
+    }
+
+    @Override
+    protected void field(String name, double value) throws IOException {
+        out.write(DECIMAL);
+        string(name);
+        out.writeDouble(value);
+    }
+
+    @Override
+    protected void field(String name, List<String> values) throws IOException {
+        out.write(LIST);
+        string(name);
+        varint(values.size());
+        for (String value : values) {
+            string(value);
+        }
+    }
+
+    @Override
+    protected void endRecord() throws IOException {
+        out.write(END);
+    }
+
+    private void string(String value) throws IOException {
+        Integer reference = strings.get(value);
+        if (reference != null) {
+            varint(reference);
+            return;
+        }
+        if (strings.size() < MAX_STRINGS) {
+            strings.put(value, strings.size() + 1);
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.write(0);
+        varint(bytes.length);
+        out.write(bytes);
+    }
+
+    private void varint(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * This method reads a binary report and writes its records to another sink, in order.
+     * The target is not closed.
+     * @param in - the binary report
+     * @param target - the sink that receives the records
+     * @throws IOException if the report cannot be read or is not a binary report
+     */
+    public static void decode(InputStream in, RecordReportSink target) throws IOException {
+        new Decoder(in).decodeTo(target);
+    }
+
+    // Reads the strings of a report back into the same table the writer built
+    private static class Decoder {
+        private final DataInputStream in;
+        private final List<String> strings;
+
+        Decoder(InputStream in) {
+            this.in = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+            this.strings = new ArrayList<>();
+        }
+
+        void decodeTo(RecordReportSink target) throws IOException {
+            int first = in.read();
+            if (first < 0) {
+                return; // nothing was reported
+            }
+            byte[] magic = new byte[MAGIC.length];
+            magic[0] = (byte) first;
+            in.readFully(magic, 1, magic.length - 1);
+            if (!Arrays.equals(magic, MAGIC) || in.read() != VERSION) {
+                throw new IOException("Not a binary report of version " + VERSION);
+            }
+            while (peek()) {
+                target.beginRecord(string());
+                for (int tag = in.readUnsignedByte(); tag != END; tag = in.readUnsignedByte()) {
+                    String name = string();
+                    switch (tag) {
+                        case STRING:
+                            target.field(name, string());
+                            break;
+                        case INTEGER:
+                            long zigzag = varint();
+                            target.field(name, (zigzag >>> 1) ^ -(zigzag & 1));
+                            break;
+                        case DECIMAL:
+                            target.field(name, in.readDouble());
+                            break;
+                        case LIST:
+                            int size = (int) varint();
+                            List<String> values = new ArrayList<>(size);
+                            for (int i = 0; i < size; i++) {
+                                values.add(string());
+                            }
+                            target.field(name, values);
+                            break;
+                        default:
+                            throw new IOException("Unknown field tag " + tag);
+                    }
+                }
+                target.endRecord();
+            }
+        }
+
+        // Checks for another record without consuming it
+        private boolean peek() throws IOException {
+            in.mark(1);
+            int next = in.read();
+            in.reset();
+            return next >= 0;
+        }
+
+        private String string() throws IOException {
+            long reference = varint();
+            if (reference > 0) {
+                return strings.get((int) reference - 1);
+            }
+            byte[] bytes = new byte[(int) varint()];
+            in.readFully(bytes);
+            String value = new String(bytes, StandardCharsets.UTF_8);
+            if (strings.size() < MAX_STRINGS) {
+                strings.add(value);
+            }
+            return value;
+        }
+
+        private long varint() throws IOException {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+                if (shift > 63) {
+                    throw new IOException("Malformed varint");
+                }
+            }
+        }
+    }
+}
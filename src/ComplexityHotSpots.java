@@ -0,0 +1,243 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Supplier;
+
+/**
+ * This class summarises per-method cyclomatic complexity in bounded memory.
+ * Methods are offered one at a time as they are visited; only the K most complex are kept,
+ * together with a fixed-size histogram, so the cost does not grow with the number of methods.
+ */
+public class ComplexityHotSpots {
+    // Upper bounds (inclusive) of the histogram buckets, the last bucket is open ended
+    private static final int[] BUCKET_BOUNDS = {5, 10, 20, 50};
+
+    private final int limit; // number of hot spots to keep
+    private final PriorityQueue<MethodComplexity> worst; // min-heap, the root is the least complex hot spot
+    private final long[] histogram; // method counts per bucket
+    private long methods; // number of methods offered
+    private long totalComplexity; // sum of all offered complexities
+    private volatile int threshold; // complexity a method must exceed to enter a full heap
+
+    /**
+     * Constructor for the ComplexityHotSpots class.
+     * @param limit - the number of most complex methods to keep
+     */
+    public ComplexityHotSpots(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Hot spot limit must not be negative, got " + limit);
+        }
+        this.limit = limit;
+        this.worst = new PriorityQueue<>(Math.max(1, limit), Comparator.comparingInt(MethodComplexity::getComplexity));
+        this.histogram = new long[BUCKET_BOUNDS.length + 1];
+        this.threshold = 0;
+    }
+
+    /**
+     * This method records the complexity of one method.
+     * The method name is only built if the method enters the top K.
+     * @param complexity - the cyclomatic complexity of the method
+     * @param name - builds the display name of the method
+     */
+    public void offer(int complexity, Supplier<String> name) {
+        String methodName = null;
+        if (limit > 0 && complexity > threshold) {
+            methodName = name.get();
+        }
+        synchronized (this) {
+            methods++;
+            totalComplexity += complexity;
+            histogram[bucketOf(complexity)]++;
+            if (methodName != null) {
+                keep(methodName, complexity);
+            }
+        }
+    }
+
+    /**
+     * This method adds every method recorded by another collector, such as the one for a single file.
+     * @param other - the collector to merge in
+     */
+    public void merge(ComplexityHotSpots other) {
+        List<MethodComplexity> otherWorst = other.getHotSpots();
+        long[] otherHistogram = other.getHistogram();
+        synchronized (this) {
+            methods += other.getMethodCount();
+            totalComplexity += other.getTotalComplexity();
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] += otherHistogram[i];
+            }
+            for (MethodComplexity method : otherWorst) {
+                if (limit > 0 && method.getComplexity() > threshold) {
+                    keep(method.getName(), method.getComplexity());
+                }
+            }
+        }
+    }
+
+    // Adds a method to the heap if it is among the K most complex, caller holds the lock
+    private void keep(String methodName, int complexity) {
+        if (limit == 0) {
+            return;
+        }
+        if (worst.size() < limit) {
+            worst.add(new MethodComplexity(methodName, complexity));
+        } else if (complexity > worst.peek().getComplexity()) {
+            worst.poll();
+            worst.add(new MethodComplexity(methodName, complexity));
+        }
+        if (worst.size() == limit) {
+            threshold = worst.peek().getComplexity();
+        }
+    }
+
+    // Returns the histogram bucket for a complexity
+    private static int bucketOf(int complexity) {
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            if (complexity <= BUCKET_BOUNDS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDS.length;
+    }
+
+    /**
+     * This method returns the most complex methods, most complex first.
+     * @return up to K methods
+     */
+    public synchronized List<MethodComplexity> getHotSpots() {
+        List<MethodComplexity> result = new ArrayList<>(worst);
+        result.sort(Comparator.comparingInt(MethodComplexity::getComplexity).reversed()
+                .thenComparing(MethodComplexity::getName));
+        return result;
+    }
+
+    /**
+     * This method returns the number of methods in each histogram bucket.
+     * @return counts in the order given by getHistogramLabels()
+     */
+    public synchronized long[] getHistogram() {
+        return histogram.clone();
+    }
+
+    /**
+     * This method returns a label for every histogram bucket, such as "6-10".
+     * @return the bucket labels
+     */
+    public static String[] getHistogramLabels() {
+        String[] labels = new String[BUCKET_BOUNDS.length + 1];
+        int lower = 1;
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            labels[i] = lower + "-" + BUCKET_BOUNDS[i];
+            lower = BUCKET_BOUNDS[i] + 1;
+        }
+        labels[BUCKET_BOUNDS.length] = lower + "+";
+        return labels;
+    }
+
+    /**
+     * This method returns the number of methods offered.
+     * @return the number of methods
+     */
+    public synchronized long getMethodCount() {
+        return methods;
+    }
+
+    /**
+     * This method returns the sum of the complexities of all offered methods.
+     * @return the total complexity
+     */
+    public synchronized long getTotalComplexity() {
+        return totalComplexity;
+    }
+
+    /**
+     * This method returns the mean complexity of all offered methods.
+     * @return the mean complexity, 0 if no method was offered
+     */
+    public synchronized double getAverageComplexity() {
+        return methods == 0 ? 0 : (double) totalComplexity / methods;
+    }
+
+    /**
+     * This method writes the collector to a stream.
+     * @param out - the stream to write to
+     * @throws IOException if writing fails
+     */
+    public synchronized void write(DataOutputStream out) throws IOException {
+        out.writeInt(limit);
+        out.writeLong(methods);
+        out.writeLong(totalComplexity);
+        out.writeInt(histogram.length);
+        for (long bucket : histogram) {
+            out.writeLong(bucket);
+        }
+        out.writeInt(worst.size());
+        for (MethodComplexity method : worst) {
+            out.writeUTF(method.getName());
+            out.writeInt(method.getComplexity());
+        }
+    }
+
+    /**
+     * This method reads a collector written by write().
+     * @param in - the stream to read from
+     * @return the collector
+     * @throws IOException if reading fails or the histogram does not match this version
+     */
+    public static ComplexityHotSpots read(DataInputStream in) throws IOException {
+        ComplexityHotSpots hotSpots = new ComplexityHotSpots(in.readInt());
+        hotSpots.methods = in.readLong();
+        hotSpots.totalComplexity = in.readLong();
+        if (in.readInt() != hotSpots.histogram.length) {
+            throw new IOException("Cached complexity histogram does not match this version");
+        }
+        for (int i = 0; i < hotSpots.histogram.length; i++) {
+            hotSpots.histogram[i] = in.readLong();
+        }
+        int kept = in.readInt();
+        for (int i = 0; i < kept; i++) {
+            String name = in.readUTF();
+            hotSpots.keep(name, in.readInt());
+        }
+        return hotSpots;
+    }
+
+    /**
+     * This class pairs a method name with its cyclomatic complexity.
+     */
+    public static class MethodComplexity {
+        private final String name; // qualified name and signature of the method
+        private final int complexity; // cyclomatic complexity of the method
+
+        /**
+         * This method creates the complexity of one method.
+         * @param name the qualified name and signature of the method
+         * @param complexity the cyclomatic complexity of the method
+         */
+        public MethodComplexity(String name, int complexity) {
+            this.name = name;
+            this.complexity = complexity;
+        }
+
+        /**
+         * This method returns the qualified name and signature of the method.
+         * @return the name of the method
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * This method returns the cyclomatic complexity of the method.
+         * @return the complexity of the method
+         */
+        public int getComplexity() {
+            return complexity;
+        }
+    }
+}
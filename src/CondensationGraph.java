@@ -0,0 +1,248 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * This class condenses a directed graph into the acyclic graph of its strongly connected components.
+ * Every group of mutually dependent nodes becomes one component, and a component depends on another if any of
+ * its nodes depends on a node of the other. Components are put into topological layers: layer 0 holds the
+ * components that depend on no other component, and every other component sits one layer above the highest
+ * layer it depends on, so a component only ever depends on lower layers.
+ * For every component it keeps the number of nodes, the dependencies between its own nodes and the dependencies
+ * leaving it. Everything is computed in O(V + E) from the packed graph.
+ */
+public class CondensationGraph {
+    private final SymbolTable names; // names of the nodes of the original graph
+    private final StronglyConnectedComponents components;
+    private final int[] offsets; // CSR row offsets of the condensed graph
+    private final int[] targets; // CSR successors of every component, without duplicates
+    private final int[] internalEdges; // dependencies between the nodes of each component
+    private final int[] outgoingEdges; // dependencies from each component's nodes to other components
+    private final int[] layer; // topological layer of every component
+    private final int layerCount;
+
+    /**
+     * Constructor for the CondensationGraph class. Computes the condensation immediately.
+     * @param names - the names of the graph's nodes
+     * @param graph - the graph to condense
+     */
+    public CondensationGraph(SymbolTable names, DependencyGraph graph) {
+        int nodeCount = graph.getNodeCount();
+        int[] nodeOffsets = graph.getOffsets();
+        int[] nodeTargets = graph.getTargets();
+        this.names = names;
+        this.components = new StronglyConnectedComponents(nodeCount, nodeOffsets, nodeTargets);
+        int count = components.getComponentCount();
+        this.internalEdges = new int[count];
+        this.outgoingEdges = new int[count];
+        this.offsets = new int[count + 1];
+
+        // Successors of each component, deduplicated by stamping the components seen from the current one
+        int[] seenFrom = new int[count];
+        Arrays.fill(seenFrom, -1);
+        int[] successors = new int[Math.max(16, count)];
+        int size = 0;
+        for (int c = 0; c < count; c++) {
+            for (int v : components.getMembers(c)) {
+                for (int e = nodeOffsets[v]; e < nodeOffsets[v + 1]; e++) {
+                    int target = components.getComponent(nodeTargets[e]);
+                    if (target == c) {
+                        internalEdges[c]++;
+                        continue;
+                    }
+                    outgoingEdges[c]++;
+                    if (seenFrom[target] != c) {
+                        seenFrom[target] = c;
+                        if (size == successors.length) {
+                            successors = Arrays.copyOf(successors, size * 2);
+                        }
+                        successors[size++] = target;
+                    }
+                }
+            }
+            offsets[c + 1] = size;
+        }
+        this.targets = Arrays.copyOf(successors, size);
+
+        // Tarjan numbers components in reverse topological order, so every successor of c has a lower id
+        this.layer = new int[count];
+        int highest = -1;
+        for (int c = 0; c < count; c++) {
+            for (int e = offsets[c]; e < offsets[c + 1]; e++) {
+                layer[c] = Math.max(layer[c], layer[targets[e]] + 1);
+            }
+            highest = Math.max(highest, layer[c]);
+        }
+        this.layerCount = highest + 1;
+    }
+
+    /**
+     * This method returns the number of components.
+     * @return the number of components
+     */
+    public int getComponentCount() {
+        return components.getComponentCount();
+    }
+
+    /**
+     * This method returns the number of distinct dependencies between components.
+     * @return the number of edges of the condensed graph
+     */
+    public int getDependencyCount() {
+        return targets.length;
+    }
+
+    /**
+     * This method returns the components a component depends on.
+     * @param id - the component id
+     * @return the successor components, in the order their first dependency was found
+     */
+    public int[] getSuccessors(int id) {
+        return Arrays.copyOfRange(targets, offsets[id], offsets[id + 1]);
+    }
+
+    /**
+     * This method returns the component a node of the original graph belongs to.
+     * @param node - the node id
+     * @return the component id
+     */
+    public int getComponent(int node) {
+        return components.getComponent(node);
+    }
+
+    /**
+     * This method returns the number of nodes in a component.
+     * @param id - the component id
+     * @return the size of the component
+     */
+    public int getSize(int id) {
+        return components.getMembers(id).length;
+    }
+
+    /**
+     * This method returns the names of the nodes in a component.
+     * @param id - the component id
+     * @return the names, sorted
+     */
+    public List<String> getMemberNames(int id) {
+        int[] nodes = components.getMembers(id);
+        List<String> memberNames = new ArrayList<>(nodes.length);
+        for (int node : nodes) {
+            memberNames.add(names.name(node));
+        }
+        Collections.sort(memberNames);
+        return memberNames;
+    }
+
+    /**
+     * This method finds elementary cycles through the nodes of a component, without repeats.
+     * @param id - the component id
+     * @param limit - the most cycles to return
+     * @return the cycles as node names, each starting at its alphabetically smallest name, empty if the component is acyclic
+     */
+    public List<List<String>> getCycles(int id, int limit) {
+        LinkedHashSet<List<String>> cycles = new LinkedHashSet<>();
+        for (int[] cycle : components.findCycles(id, limit)) {
+            List<String> cycleNames = new ArrayList<>(cycle.length);
+            int smallest = 0;
+            for (int node : cycle) {
+                cycleNames.add(names.name(node));
+                if (cycleNames.get(cycleNames.size() - 1).compareTo(cycleNames.get(smallest)) < 0) {
+                    smallest = cycleNames.size() - 1;
+                }
+            }
+            Collections.rotate(cycleNames, -smallest);
+            cycles.add(cycleNames);
+        }
+        return new ArrayList<>(cycles);
+    }
+
+    /**
+     * This method returns the number of dependencies between the nodes of a component.
+     * @param id - the component id
+     * @return the number of internal dependencies
+     */
+    public int getInternalEdgeCount(int id) {
+        return internalEdges[id];
+    }
+
+    /**
+     * This method returns the number of dependencies from the nodes of a component to nodes of other components.
+     * @param id - the component id
+     * @return the number of outgoing dependencies
+     */
+    public int getOutgoingEdgeCount(int id) {
+        return outgoingEdges[id];
+    }
+
+    /**
+     * This method returns whether a component contains a cycle.
+     * @param id - the component id
+     * @return true if the component has more than one node or its node depends on itself
+     */
+    public boolean isCyclic(int id) {
+        return components.isCyclic(id);
+    }
+
+    /**
+     * This method returns the topological layer of a component.
+     * @param id - the component id
+     * @return 0 if the component depends on no other component, else one more than the highest layer it depends on
+     */
+    public int getLayer(int id) {
+        return layer[id];
+    }
+
+    /**
+     * This method returns the number of layers.
+     * @return the number of layers, 0 for an empty graph
+     */
+    public int getLayerCount() {
+        return layerCount;
+    }
+
+    /**
+     * This method returns the components of every layer.
+     * @return for every layer, from layer 0 up, the ids of its components in ascending order
+     */
+    public List<int[]> getLayers() {
+        int[] sizes = new int[layerCount];
+        for (int l : layer) {
+            sizes[l]++;
+        }
+        List<int[]> layers = new ArrayList<>(layerCount);
+        for (int size : sizes) {
+            layers.add(new int[size]);
+        }
+        int[] filled = new int[layerCount];
+        for (int c = 0; c < layer.length; c++) {
+            layers.get(layer[c])[filled[layer[c]]++] = c;
+        }
+        return layers;
+    }
+
+    /**
+     * This method returns the cyclic components, largest first and then by their alphabetically smallest name.
+     * @return the ids of the components that contain a cycle
+     */
+    public List<Integer> getCyclicComponents() {
+        List<Integer> cyclic = new ArrayList<>();
+        String[] smallestName = new String[getComponentCount()];
+        for (int c = 0; c < getComponentCount(); c++) {
+            if (isCyclic(c)) {
+                cyclic.add(c);
+                for (int node : components.getMembers(c)) {
+                    String name = names.name(node);
+                    if (smallestName[c] == null || name.compareTo(smallestName[c]) < 0) {
+                        smallestName[c] = name;
+                    }
+                }
+            }
+        }
+        cyclic.sort(Comparator.<Integer>comparingInt(c -> -getSize(c)).thenComparing(c -> smallestName[c]));
+        return cyclic;
+    }
+}
@@ -1,147 +1,95 @@
-import com.github.javaparser.StaticJavaParser;
 import com.github.javaparser.ast.CompilationUnit;
-import com.github.javaparser.ast.body.MethodDeclaration;
-import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
-import com.github.javaparser.ast.stmt.DoStmt;
-import com.github.javaparser.ast.stmt.ForEachStmt;
-import com.github.javaparser.ast.stmt.ForStmt;
-import com.github.javaparser.ast.stmt.IfStmt;
-import com.github.javaparser.ast.stmt.SwitchEntry;
-import com.github.javaparser.ast.stmt.WhileStmt;
 
 import java.io.File;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.CharBuffer;
 
 
-public class ControlFlow extends Evaluator {
-    
-    public static final IntegerCustom ifStatementCount = new IntegerCustom(0);
-    public static final IntegerCustom  forStatementCount =  new IntegerCustom(0);
-    public static final IntegerCustom  forEachStatementCount =  new IntegerCustom(0);
-    public static final IntegerCustom  whileStatementCount = new IntegerCustom(0);
-    public static final IntegerCustom  doStatementCount = new IntegerCustom(0);
-    public static final IntegerCustom  switchCaseCount = new IntegerCustom(0);
-    public static final IntegerCustom  methodNumberCount = new IntegerCustom(0);
-    
+public class ControlFlow implements Analyzer {
     
+    public static final int DEFAULT_HOT_SPOTS = 10; // number of most complex methods kept by default
 
-    // Parses all Java files in the given project directory and builds the dependency graph.
-    public void parseProject(File projectDir) throws Exception {
-        List<File> files = new ArrayList<>();
-        traverseFolder(projectDir, files);
-        if (files.size() == 0) {
-            throw new Exception("Directory not found or no Java files in: " + projectDir);
-        }
-        //For every file
-        for (File file : files) {
-            // Compilation unit is the root node of abstract syntax tree 
-            CompilationUnit cu = StaticJavaParser.parse(file);
-            
-            //Accept recursively visits every node in the abstrat syntax tree
-            VoidVisitorAdapter<IntegerCustom> ifVisitor = new ifVisitor();
-            VoidVisitorAdapter<IntegerCustom> forVisitor = new forVisitor();
-            VoidVisitorAdapter<IntegerCustom> forEachVisitor = new forEachVisitor();
-            VoidVisitorAdapter<IntegerCustom> whileVisitor = new whileVisitor();
-            VoidVisitorAdapter<IntegerCustom> doWhileVisitor = new doWhileVisitor();
-            VoidVisitorAdapter<IntegerCustom> methodNumberVisitor = new methodNumberVisitor();
-            VoidVisitorAdapter<IntegerCustom> switchCaseVisitor = new switchVisitor();
-            
-            ifVisitor.visit(cu,ifStatementCount);
-            forVisitor.visit(cu,forStatementCount);
-            forEachVisitor.visit(cu,forEachStatementCount);
-            whileVisitor.visit(cu,whileStatementCount);
-            doWhileVisitor.visit(cu,doStatementCount);
-            methodNumberVisitor.visit(cu,methodNumberCount);
-            switchCaseVisitor.visit(cu,switchCaseCount);
-        }
+    private final ControlFlowMetrics metrics = new ControlFlowMetrics(); // counts for this run only
+    private final int hotSpotLimit; // number of most complex methods to keep
+    private final ComplexityHotSpots hotSpots; // most complex methods of this run
+    private final boolean lexerOnly; // count from source tokens instead of the AST
+
+    public ControlFlow() {
+        this(DEFAULT_HOT_SPOTS);
     }
-    
-    //GAP: Calculation Methodology Source https://bluinsights.aws/docs/codebase-cyclomatic-complexity/
-    public static int calculateCyclometicComplexity(){
-        int decisionPoints = ControlFlow.ifStatementCount.getValue() + ControlFlow.forEachStatementCount.getValue() + ControlFlow.forStatementCount.getValue() + ControlFlow.whileStatementCount.getValue() + ControlFlow.switchCaseCount.getValue();
-        try{
-            return (decisionPoints / ControlFlow.methodNumberCount.getValue()) + 1;
-        }catch(ArithmeticException e){
-            return 0;
-        }
+
+    // Keeps the given number of most complex methods
+    public ControlFlow(int hotSpotLimit) {
+        this(hotSpotLimit, false);
     }
-    /**
-     * This class extends voidVisitorAdapter to count the number of if statements 
-     */
-    private static class ifVisitor extends VoidVisitorAdapter<IntegerCustom> {
-        @Override
-        public void visit(IfStmt ifStmt, IntegerCustom counter) {
-            super.visit(ifStmt, counter);
-            counter.increment(); // Increments count for each if statement
-        }
+
+    // Keeps the given number of most complex methods. With lexerOnly the counts come from ControlFlowLexer,
+    // so a pipeline running only this analysis never builds an AST.
+    public ControlFlow(int hotSpotLimit, boolean lexerOnly) {
+        this.hotSpotLimit = hotSpotLimit;
+        this.hotSpots = new ComplexityHotSpots(hotSpotLimit);
+        this.lexerOnly = lexerOnly;
     }
 
-    /**
-     * This class extends voidVisitorAdapter to count the number of for statements 
-     */
-    private static class forVisitor extends VoidVisitorAdapter<IntegerCustom> {
-        @Override
-        public void visit(ForStmt forStmt, IntegerCustom counter) {
-            super.visit(forStmt, counter);
-            counter.increment(); // Increments count for each for statement
-        }
+    // Parses all Java files in the given project directory and counts their control flow statements.
+    public void parseProject(File projectDir) throws Exception {
+        new ParsePipeline().register(this).run(projectDir);
     }
 
+    // Counts the control flow statements and method complexities of one file
+    @Override
+    public void extract(CompilationUnit cu, FileFacts facts) {
+        // A single traversal fills one slot per ControlFlowCounter.
+        // Only the file's own top methods can be among the project's top methods, so only those are kept.
+        int[] counts = ControlFlowVisitor.newCounts();
+        ComplexityHotSpots fileHotSpots = new ComplexityHotSpots(hotSpotLimit);
+        cu.accept(new ControlFlowVisitor(fileHotSpots), counts);
+        facts.setControlFlowCounts(counts);
+        facts.setMethodComplexity(fileHotSpots);
+    }
 
-    /**
-     * This class extends voidVisitorAdapter to count the number of for statements 
-     */
-    private static class forEachVisitor extends VoidVisitorAdapter<IntegerCustom> {
-        @Override
-        public void visit(ForEachStmt forEachStmt, IntegerCustom counter) {
-            super.visit(forEachStmt, counter);
-            counter.increment(); // Increments count for each for statement
+    // Counts the control flow statements and method complexities of one file from its tokens, in lexer only mode
+    @Override
+    public boolean extractFromSource(CharBuffer source, FileFacts facts) {
+        if (!lexerOnly) {
+            return false;
         }
+        int[] counts = ControlFlowVisitor.newCounts();
+        ComplexityHotSpots fileHotSpots = new ComplexityHotSpots(hotSpotLimit);
+        new ControlFlowLexer(fileHotSpots).count(source.array(), source.arrayOffset() + source.position(),
+                source.remaining(), counts);
+        facts.setControlFlowCounts(counts);
+        facts.setMethodComplexity(fileHotSpots);
+        return true;
     }
 
-    /**
-     * This class extends voidVisitorAdapter to count the number of while statements 
-     */
-    private static class whileVisitor extends VoidVisitorAdapter<IntegerCustom> {
-        @Override
-        public void visit(WhileStmt whileStmt, IntegerCustom counter) {
-            super.visit(whileStmt, counter);
-            counter.increment(); // Increments count for each while statement
-        }
+    // Adds the counts of one file to this run. Safe to call from several threads at once.
+    @Override
+    public void accept(FileFacts facts) {
+        metrics.add(facts.getControlFlowCounts());
+        hotSpots.merge(facts.getMethodComplexity());
     }
 
-    /**
-     * This class extends voidVisitorAdapter to count the number of do...while statements 
-     */
-    private static class doWhileVisitor extends VoidVisitorAdapter<IntegerCustom> {
-        @Override
-        public void visit(DoStmt doStmt, IntegerCustom counter) {
-            super.visit(doStmt, counter);
-            counter.increment(); // Increments count for each while statement
-        }
+    // Returns the number of nodes of the given kind seen so far
+    public long getCount(ControlFlowCounter counter) {
+        return metrics.get(counter);
     }
 
-    /**
-    * This class extends voidVisitorAdapter to count the number of do...while statements 
-    */
-    private static class methodNumberVisitor extends VoidVisitorAdapter<IntegerCustom> {
-        @Override
-        public void visit(MethodDeclaration methodDec, IntegerCustom counter) {
-            super.visit(methodDec, counter);
-            counter.increment(); // Increments count for each while statement
-        }
+    // Returns the most complex methods and the complexity histogram of this run
+    public ComplexityHotSpots getHotSpots() {
+        return hotSpots;
     }
 
-    /**
-     * This class extends voidVisitorAdapter to count the number switch cases
-     */
-    private static class switchVisitor extends VoidVisitorAdapter<IntegerCustom> {
-        @Override
-        public void visit(SwitchEntry switchStmt, IntegerCustom counter) {
-            super.visit(switchStmt, counter);
-            counter.increment(); // Increments count for each while statement
+    // Returns the counts collected by this run
+    public ControlFlowMetrics getMetrics() {
+        return metrics;
+    }
+    
+    //GAP: Calculation Methodology Source https://bluinsights.aws/docs/codebase-cyclomatic-complexity/
+    public int calculateCyclometicComplexity(){
+        long methods = metrics.get(ControlFlowCounter.METHOD);
+        if (methods == 0) {
+            return 0;
         }
+        return (int) (metrics.getDecisionPoints() / methods) + 1;
     }
-
 }
@@ -0,0 +1,33 @@
+/**
+ * The node kinds counted by the ControlFlow analysis.
+ * Each constant is one slot in the primitive counter array filled by ControlFlowVisitor,
+ * so supporting a new kind of node only needs a new constant and one visit method.
+ */
+public enum ControlFlowCounter {
+    IF(true),
+    FOR(true),
+    FOR_EACH(true),
+    WHILE(true),
+    DO(false),
+    SWITCH_CASE(true),
+    // Counted and reported, but not decision points, so the complexity stays what it always was
+    CATCH(false),
+    CONDITIONAL(false), // the ternary operator
+    LOGICAL_AND(false),
+    LOGICAL_OR(false),
+    METHOD(false);
+
+    private final boolean decisionPoint; // true if the node adds a path through the method
+
+    ControlFlowCounter(boolean decisionPoint) {
+        this.decisionPoint = decisionPoint;
+    }
+
+    /**
+     * This method returns whether the node kind counts towards cyclomatic complexity.
+     * @return true if the node kind is a decision point
+     */
+    public boolean isDecisionPoint() {
+        return decisionPoint;
+    }
+}
@@ -0,0 +1,961 @@
+import java.util.Arrays;
+
+/**
+ * This class counts every ControlFlowCounter kind straight from Java source text, without building an AST.
+ * It is a single forward pass over the characters: comments, string and character literals and text blocks
+ * are skipped, keywords and operators are counted, and just enough structure (braces, parentheses and the
+ * tokens in front of them) is tracked to recognise method and constructor declarations and to give every
+ * decision point to the method it belongs to. Nothing is allocated per token.
+ * On code that compiles the counts and method complexities match ControlFlowVisitor; code that does not
+ * compile is counted as far as possible instead of being rejected.
+ * A lexer keeps per-file state and must only be used for one file at a time.
+ */
+public class ControlFlowLexer {
+    // Token kinds
+    private static final int EOF = 0;
+    private static final int IDENT = 1;
+    private static final int LITERAL = 2;
+    private static final int PRIMITIVE = 3; // a primitive type or void
+    private static final int KEYWORD = 4; // any other keyword without a kind of its own
+    private static final int IF = 5;
+    private static final int FOR = 6;
+    private static final int WHILE = 7;
+    private static final int DO = 8;
+    private static final int CASE = 9;
+    private static final int DEFAULT = 10;
+    private static final int CATCH = 11;
+    private static final int CLASS = 12;
+    private static final int INTERFACE = 13;
+    private static final int ENUM = 14;
+    private static final int NEW = 15;
+    private static final int PACKAGE = 16;
+    private static final int FINAL = 17;
+    private static final int THIS = 18;
+    private static final int LPAREN = 19;
+    private static final int RPAREN = 20;
+    private static final int LBRACE = 21;
+    private static final int RBRACE = 22;
+    private static final int LBRACKET = 23;
+    private static final int RBRACKET = 24;
+    private static final int SEMI = 25;
+    private static final int COMMA = 26;
+    private static final int DOT = 27;
+    private static final int AT = 28;
+    private static final int LT = 29;
+    private static final int GT = 30;
+    private static final int QUESTION = 31;
+    private static final int COLON = 32;
+    private static final int COLON_COLON = 33;
+    private static final int AND_AND = 34;
+    private static final int OR_OR = 35;
+    private static final int ASSIGN = 36;
+    private static final int ARROW = 37;
+    private static final int ELLIPSIS = 38;
+    private static final int OPERATOR = 39; // any other operator
+
+    // Keywords, found through a hash of the identifier's characters so that no String is created per token
+    private static final char[][] KEYWORDS;
+    private static final int[] KEYWORD_KINDS;
+    private static final int[] KEYWORD_TABLE; // open addressing, keyword index + 1, 0 if free
+    static {
+        String[] primitives = {"boolean", "byte", "char", "short", "int", "long", "float", "double", "void"};
+        String[] others = {"abstract", "assert", "break", "const", "continue", "else", "extends", "finally",
+                "goto", "implements", "import", "instanceof", "native", "private", "protected", "public", "return",
+                "static", "strictfp", "super", "switch", "synchronized", "throw", "throws", "transient", "try",
+                "volatile", "true", "false", "null"};
+        String[] named = {"if", "for", "while", "do", "case", "default", "catch", "class", "interface", "enum",
+                "new", "package", "final", "this"};
+        int[] namedKinds = {IF, FOR, WHILE, DO, CASE, DEFAULT, CATCH, CLASS, INTERFACE, ENUM, NEW, PACKAGE, FINAL, THIS};
+
+        int count = primitives.length + others.length + named.length;
+        KEYWORDS = new char[count][];
+        KEYWORD_KINDS = new int[count];
+        int k = 0;
+        for (String word : primitives) {
+            KEYWORDS[k] = word.toCharArray();
+            KEYWORD_KINDS[k++] = PRIMITIVE;
+        }
+        for (String word : others) {
+            KEYWORDS[k] = word.toCharArray();
+            KEYWORD_KINDS[k++] = KEYWORD;
+        }
+        for (int i = 0; i < named.length; i++) {
+            KEYWORDS[k] = named[i].toCharArray();
+            KEYWORD_KINDS[k++] = namedKinds[i];
+        }
+        KEYWORD_TABLE = new int[256];
+        for (int i = 0; i < count; i++) {
+            int slot = hash(KEYWORDS[i], 0, KEYWORDS[i].length) & (KEYWORD_TABLE.length - 1);
+            while (KEYWORD_TABLE[slot] != 0) {
+                slot = (slot + 1) & (KEYWORD_TABLE.length - 1);
+            }
+            KEYWORD_TABLE[slot] = i + 1;
+        }
+    }
+
+    // Kinds of brace regions
+    private static final int BLOCK = 0; // a statement block, array initializer, lambda body or initializer
+    private static final int TYPE = 1; // the body of a class, interface or record
+    private static final int ENUM_BODY = 2; // the body of an enum
+    private static final int ANNOTATION = 3; // the body of an annotation type, whose members are not methods
+    private static final int ANONYMOUS = 4; // the body of an anonymous class or of an enum constant
+    private static final int METHOD = 5; // the body of a method or constructor
+
+    // Flags of parenthesis regions
+    private static final int NEW_ARGUMENTS = 1; // the arguments of an object creation
+    private static final int FOR_HEADER = 2; // the header of a for statement
+    private static final int PARAMETERS = 4; // the parameters of a method or constructor declaration
+
+    private final ComplexityHotSpots hotSpots; // receives per-method complexities, null if not wanted
+
+    // Source and tokens
+    private char[] text;
+    private int end; // offset after the last character to read
+    private int pos; // offset of the next character
+    private int kind; // kind of the current token
+    private int start; // offset of the current token
+    private int prev; // kind of the previous token
+    private int prevStart;
+    private int declPrev; // kind of the previous token outside annotations
+    private int declPrevStart;
+    private int declPrev2; // kind of the token before that, outside annotations
+    private int[] counts;
+
+    // Brace regions, innermost last
+    private int depth;
+    private int[] frameKind = new int[16];
+    private int[] frameParens = new int[16]; // parenthesis depth when the region was opened
+    private int[] frameNameStart = new int[16]; // name of the type or method, -1 if it has none
+    private int[] frameNameEnd = new int[16];
+    private int[] frameParamsStart = new int[16]; // parameter list of a method
+    private int[] frameParamsEnd = new int[16];
+    private int[] frameDecisions = new int[16]; // decision points of a method so far
+    private int[] frameOuterMethod = new int[16]; // the method region around a method region
+    private boolean[] frameConstructor = new boolean[16];
+    private boolean[] frameAssigned = new boolean[16]; // in the initializer of a field of a type body
+    private boolean[] frameConstants = new boolean[16]; // still in the constant list of an enum body
+    private int method; // innermost method region, -1 outside methods
+
+    // Parenthesis regions, innermost last
+    private int parens;
+    private int[] parenFlags = new int[16];
+    private int[] forTernaries = new int[16]; // unmatched '?' in a for header, so their ':' is not taken for for-each
+    private boolean[] forEach = new boolean[16];
+    private int closedFlags; // flags of the region closed by the last ')'
+
+    // Declarations in progress
+    private int pendingType; // region kind of a type whose body has not started, -1 if none
+    private int pendingTypeStart; // name of that type, -1 until seen
+    private int pendingTypeEnd;
+    private boolean pendingMethod; // a method or constructor header has started but its body has not
+    private boolean pendingConstructor;
+    private int pendingNameStart;
+    private int pendingNameEnd;
+    private int pendingParamsStart;
+    private int pendingParamsEnd; // -1 until the parameter list is closed
+    private boolean newPending; // 'new' seen, its arguments not yet
+    private int newTypeArguments; // depth of type arguments in the type after 'new'
+    private int annotation; // 1 after '@', 2 in an annotation name, 3 in annotation arguments, 0 otherwise
+    private int annotationParens; // parenthesis depth outside the annotation arguments
+    private boolean annotated; // the current token belongs to an annotation
+    private int[] doStack = new int[16]; // region and parenthesis depth of every do statement awaiting its while
+    private int dos;
+    private boolean inPackage; // in the package declaration
+    private int packageStart; // the package name, -1 in the default package
+    private int packageEnd;
+
+    /**
+     * Constructor for the ControlFlowLexer class, counting totals only.
+     */
+    public ControlFlowLexer() {
+        this(null);
+    }
+
+    /**
+     * Constructor for the ControlFlowLexer class.
+     * @param hotSpots - receives the complexity of every method and constructor, may be null
+     */
+    public ControlFlowLexer(ComplexityHotSpots hotSpots) {
+        this.hotSpots = hotSpots;
+    }
+
+    /**
+     * This method counts the control flow of one source file.
+     * @param source - the characters of the file
+     * @param offset - the first character to read
+     * @param length - the number of characters to read
+     * @param counts - the counter array to add to, indexed by ControlFlowCounter.ordinal()
+     */
+    public void count(char[] source, int offset, int length, int[] counts) {
+        this.text = source;
+        this.pos = offset;
+        this.end = offset + length;
+        this.counts = counts;
+        prev = SEMI;
+        declPrev = SEMI;
+        declPrev2 = SEMI;
+        depth = 0;
+        method = -1;
+        parens = 0;
+        closedFlags = 0;
+        pendingType = -1;
+        pendingMethod = false;
+        newPending = false;
+        annotation = 0;
+        dos = 0;
+        inPackage = false;
+        packageStart = -1;
+
+        while (next() != EOF) {
+            token();
+            prev = kind;
+            prevStart = start;
+            if (!annotated) {
+                declPrev2 = declPrev;
+                declPrev = kind;
+                declPrevStart = start;
+            }
+        }
+        this.text = null;
+        this.counts = null;
+    }
+
+    // Handles one token: counts it if it is a counted kind and updates the structure
+    private void token() {
+        annotated = annotation();
+        switch (kind) {
+            case IF:
+                count(ControlFlowCounter.IF);
+                break;
+            case CATCH:
+                count(ControlFlowCounter.CATCH);
+                break;
+            case CASE:
+                count(ControlFlowCounter.SWITCH_CASE);
+                break;
+            case COLON:
+            case ARROW:
+                if (prev == DEFAULT) {
+                    count(ControlFlowCounter.SWITCH_CASE); // a default label, not a default method
+                } else if (kind == COLON && inForHeader()) {
+                    if (forTernaries[parens - 1] > 0) {
+                        forTernaries[parens - 1]--;
+                    } else {
+                        forEach[parens - 1] = true;
+                    }
+                }
+                break;
+            case QUESTION:
+                if (prev != LT && prev != COMMA) { // otherwise a wildcard such as List<?>
+                    count(ControlFlowCounter.CONDITIONAL);
+                    if (inForHeader()) {
+                        forTernaries[parens - 1]++;
+                    }
+                }
+                break;
+            case AND_AND:
+                count(ControlFlowCounter.LOGICAL_AND);
+                break;
+            case OR_OR:
+                count(ControlFlowCounter.LOGICAL_OR);
+                break;
+            case DO:
+                count(ControlFlowCounter.DO);
+                if (dos == doStack.length) {
+                    doStack = Arrays.copyOf(doStack, dos * 2);
+                }
+                doStack[dos++] = depth << 16 | parens;
+                break;
+            case WHILE:
+                if (dos > 0 && doStack[dos - 1] == (depth << 16 | parens)) {
+                    dos--; // the condition of a do statement
+                } else {
+                    count(ControlFlowCounter.WHILE);
+                }
+                break;
+            case NEW:
+                newPending = prev != COLON_COLON; // not a constructor reference
+                newTypeArguments = 0;
+                break;
+            case CLASS:
+                if (prev != DOT) { // not a class literal
+                    declareType(TYPE);
+                }
+                break;
+            case INTERFACE:
+                declareType(prev == AT ? ANNOTATION : TYPE);
+                break;
+            case ENUM:
+                declareType(ENUM_BODY);
+                break;
+            case PACKAGE:
+                inPackage = depth == 0;
+                break;
+            case IDENT:
+                identifier();
+                break;
+            case SEMI:
+                semicolon();
+                break;
+            case ASSIGN:
+                if (atTypeLevel() && parens == frameParens[depth - 1]) {
+                    frameAssigned[depth - 1] = true;
+                }
+                break;
+            case LPAREN:
+                openParen();
+                break;
+            case RPAREN:
+                closeParen();
+                break;
+            case LBRACE:
+                openBrace();
+                break;
+            case RBRACE:
+                closeBrace();
+                break;
+            case LT:
+                if (newPending) {
+                    newTypeArguments++;
+                }
+                break;
+            case GT:
+                if (newPending && newTypeArguments > 0) {
+                    newTypeArguments--;
+                }
+                break;
+            case LBRACKET:
+                if (newTypeArguments == 0) {
+                    newPending = false; // an array creation
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    // Follows annotations, whose names and arguments must not be taken for the type of a declaration.
+    // Returns true if the current token belongs to an annotation.
+    private boolean annotation() {
+        switch (annotation) {
+            case 1: // after '@' or a '.' in the name
+                if (kind == IDENT) {
+                    annotation = 2;
+                    return true;
+                }
+                annotation = 0; // @interface
+                return false;
+            case 2: // after a name
+                if (kind == DOT) {
+                    annotation = 1;
+                    return true;
+                }
+                if (kind == LPAREN) {
+                    annotation = 3;
+                    annotationParens = parens;
+                    return true;
+                }
+                annotation = 0;
+                break;
+            case 3: // in the arguments
+                if (kind == RPAREN && parens == annotationParens + 1) {
+                    annotation = 0;
+                }
+                return true;
+            default:
+                break;
+        }
+        if (kind == AT) {
+            annotation = 1;
+            return true;
+        }
+        return false;
+    }
+
+    // Starts a type declaration, whose name is the next identifier
+    private void declareType(int regionKind) {
+        pendingType = regionKind;
+        pendingTypeStart = -1;
+    }
+
+    // Handles an identifier that is not a keyword
+    private void identifier() {
+        if (inPackage) {
+            if (packageStart < 0) {
+                packageStart = start;
+            }
+            packageEnd = pos;
+        } else if (pendingType >= 0) {
+            if (pendingTypeStart < 0) {
+                pendingTypeStart = start;
+                pendingTypeEnd = pos;
+            }
+        } else if (declPrev == IDENT && declPrevStart == prevStart && !annotated && !pendingMethod
+                && parens == (depth == 0 ? 0 : frameParens[depth - 1]) && isWord(prevStart, "record")) {
+            // 'record' is the only contextual keyword that starts a declaration
+            pendingType = TYPE;
+            pendingTypeStart = start;
+            pendingTypeEnd = pos;
+        }
+    }
+
+    // Handles ';': the end of a statement, a field or a method without a body
+    private void semicolon() {
+        inPackage = false;
+        newPending = false;
+        if (atTypeLevel() && parens == frameParens[depth - 1]) {
+            frameAssigned[depth - 1] = false;
+            frameConstants[depth - 1] = false;
+            if (pendingMethod) {
+                // An abstract, interface or native method
+                pendingMethod = false;
+                if (!pendingConstructor) {
+                    counts[ControlFlowCounter.METHOD.ordinal()]++;
+                }
+                offer(0, depth, pendingNameStart, pendingNameEnd, pendingParamsStart, pendingParamsEnd);
+            }
+        }
+    }
+
+    // Handles '(': the start of a parameter list, a for header, object creation arguments or any other group
+    private void openParen() {
+        int flags = 0;
+        if (newPending) {
+            flags |= NEW_ARGUMENTS;
+            newPending = false;
+        }
+        if (prev == FOR) {
+            flags |= FOR_HEADER;
+        }
+        if (!annotated && prev == IDENT && declPrevStart == prevStart && atTypeLevel()
+                && frameKind[depth - 1] != ANNOTATION && parens == frameParens[depth - 1]
+                && !frameAssigned[depth - 1] && pendingType < 0 && !pendingMethod && declaration()) {
+            flags |= PARAMETERS;
+        }
+        if (parens == parenFlags.length) {
+            parenFlags = Arrays.copyOf(parenFlags, parens * 2);
+            forTernaries = Arrays.copyOf(forTernaries, parens * 2);
+            forEach = Arrays.copyOf(forEach, parens * 2);
+        }
+        parenFlags[parens] = flags;
+        forTernaries[parens] = 0;
+        forEach[parens] = false;
+        parens++;
+    }
+
+    // Decides whether the identifier before '(' in a type body declares a method or a constructor:
+    // a method has its return type in front of its name, a constructor has the name of its type
+    // and a modifier, brace or semicolon in front. Returns true if it declares either.
+    private boolean declaration() {
+        boolean typeInFront = declPrev2 == IDENT || declPrev2 == PRIMITIVE || declPrev2 == GT || declPrev2 == RBRACKET;
+        int typeFrame = depth - 1;
+        boolean typeName = frameKind[typeFrame] != ANONYMOUS && frameNameStart[typeFrame] >= 0
+                && regionEquals(prevStart, start, frameNameStart[typeFrame], frameNameEnd[typeFrame]);
+        if (typeName && (!typeInFront || declPrev2 == GT)) {
+            pendingConstructor = true;
+        } else if (typeInFront) {
+            pendingConstructor = false;
+        } else {
+            return false;
+        }
+        pendingMethod = true;
+        pendingNameStart = prevStart;
+        pendingNameEnd = nameEnd(prevStart);
+        pendingParamsStart = pos;
+        pendingParamsEnd = -1;
+        return true;
+    }
+
+    // Handles ')', completing for headers and parameter lists
+    private void closeParen() {
+        newPending = false;
+        if (parens == 0) {
+            return;
+        }
+        parens--;
+        closedFlags = parenFlags[parens];
+        if ((closedFlags & FOR_HEADER) != 0) {
+            count(forEach[parens] ? ControlFlowCounter.FOR_EACH : ControlFlowCounter.FOR);
+        }
+        if ((closedFlags & PARAMETERS) != 0) {
+            pendingParamsEnd = start;
+        }
+    }
+
+    // Handles '{', deciding what kind of region it opens
+    private void openBrace() {
+        int regionKind;
+        int nameStart = -1;
+        int nameEnd = -1;
+        if (pendingType >= 0) {
+            regionKind = pendingType;
+            nameStart = pendingTypeStart;
+            nameEnd = pendingTypeEnd;
+            pendingType = -1;
+        } else if (pendingMethod && pendingParamsEnd >= 0) {
+            regionKind = METHOD;
+            nameStart = pendingNameStart;
+            nameEnd = pendingNameEnd;
+            pendingMethod = false;
+        } else if (prev == RPAREN && (closedFlags & NEW_ARGUMENTS) != 0) {
+            regionKind = ANONYMOUS;
+        } else if (depth > 0 && frameKind[depth - 1] == ENUM_BODY && frameConstants[depth - 1]
+                && parens == frameParens[depth - 1]) {
+            regionKind = ANONYMOUS; // the body of an enum constant
+        } else {
+            regionKind = BLOCK;
+        }
+        newPending = false;
+
+        if (depth == frameKind.length) {
+            grow();
+        }
+        frameKind[depth] = regionKind;
+        frameParens[depth] = parens;
+        frameNameStart[depth] = nameStart;
+        frameNameEnd[depth] = nameEnd;
+        frameAssigned[depth] = false;
+        frameConstants[depth] = regionKind == ENUM_BODY;
+        if (regionKind == METHOD) {
+            frameParamsStart[depth] = pendingParamsStart;
+            frameParamsEnd[depth] = pendingParamsEnd;
+            frameConstructor[depth] = pendingConstructor;
+            frameDecisions[depth] = 0;
+            frameOuterMethod[depth] = method;
+            method = depth;
+        }
+        depth++;
+    }
+
+    // Handles '}', completing methods
+    private void closeBrace() {
+        if (depth == 0) {
+            return;
+        }
+        depth--;
+        if (frameKind[depth] == METHOD) {
+            method = frameOuterMethod[depth];
+            if (!frameConstructor[depth]) {
+                counts[ControlFlowCounter.METHOD.ordinal()]++;
+            }
+            offer(frameDecisions[depth], depth, frameNameStart[depth], frameNameEnd[depth],
+                    frameParamsStart[depth], frameParamsEnd[depth]);
+        }
+        while (dos > 0 && (doStack[dos - 1] >>> 16) > depth) {
+            dos--; // a do statement whose condition was never seen
+        }
+    }
+
+    // Returns true if the innermost parenthesis region is a for header
+    private boolean inForHeader() {
+        return parens > 0 && (parenFlags[parens - 1] & FOR_HEADER) != 0;
+    }
+
+    // Returns true if the innermost region is the body of a type, where members are declared
+    private boolean atTypeLevel() {
+        return depth > 0 && frameKind[depth - 1] >= TYPE && frameKind[depth - 1] <= ANONYMOUS;
+    }
+
+    // Increments a counter, and the current method's decision points if the token is one
+    private void count(ControlFlowCounter counter) {
+        counts[counter.ordinal()]++;
+        if (counter.isDecisionPoint() && method >= 0) {
+            frameDecisions[method]++;
+        }
+    }
+
+    // Offers the complexity of a method that has just ended
+    private void offer(int decisions, int owners, int nameStart, int nameEnd, int paramsStart, int paramsEnd) {
+        if (hotSpots != null) {
+            hotSpots.offer(decisions + 1, () -> qualifiedName(owners, nameStart, nameEnd, paramsStart, paramsEnd));
+        }
+    }
+
+    // Builds a name such as com.example.A.run(int) the way ControlFlowVisitor does:
+    // the fully qualified name of the innermost named type around the method, or its simple name
+    // if it is a local class or inside one, and the erased parameter types.
+    private String qualifiedName(int owners, int nameStart, int nameEnd, int paramsStart, int paramsEnd) {
+        StringBuilder name = new StringBuilder();
+        boolean qualified = true;
+        int innermost = -1;
+        for (int i = 0; i < owners; i++) {
+            if (frameKind[i] < TYPE || frameKind[i] > ANNOTATION) {
+                continue; // not a named type
+            }
+            if (i > 0 && (frameKind[i - 1] == METHOD || frameKind[i - 1] == BLOCK)) {
+                qualified = false; // a local class has no fully qualified name
+            }
+            innermost = i;
+            if (qualified) {
+                name.append(text, frameNameStart[i], frameNameEnd[i] - frameNameStart[i]).append('.');
+            }
+        }
+        if (!qualified) {
+            name.setLength(0);
+            name.append(text, frameNameStart[innermost], frameNameEnd[innermost] - frameNameStart[innermost]).append('.');
+        } else if (innermost >= 0 && packageStart >= 0) {
+            StringBuilder packageName = new StringBuilder();
+            for (int i = packageStart; i < packageEnd; i++) {
+                if (!Character.isWhitespace(text[i])) {
+                    packageName.append(text[i]);
+                }
+            }
+            name.insert(0, packageName.append('.'));
+        }
+        name.append(text, nameStart, nameEnd - nameStart).append('(');
+        appendParameterTypes(name, paramsStart, paramsEnd);
+        return name.append(')').toString();
+    }
+
+    // Appends the types of a parameter list as they appear in a signature: without annotations,
+    // modifiers or type arguments, with varargs and dimensions after the name written as arrays.
+    private void appendParameterTypes(StringBuilder name, int from, int to) {
+        int savedPos = pos, savedEnd = end, savedKind = kind, savedStart = start;
+        pos = from;
+        end = to;
+        StringBuilder erased = new StringBuilder(); // the type without type arguments
+        StringBuilder full = new StringBuilder(); // the type with type arguments, used for arrays
+        int generics = 0; // depth of type arguments
+        int skip = 0; // 1 after '@', 2 after an annotation name, 3 and more in annotation arguments
+        int argumentsAt = -1; // where the last type arguments outside type arguments start in full
+        int erasedNameAt = -1; // where the last identifier outside type arguments starts
+        int fullNameAt = -1;
+        int dimensions = 0; // '[]' pairs since the last identifier
+        boolean array = false;
+        boolean receiver = false;
+        boolean first = true;
+        int token = EOF;
+        while (true) {
+            int previous = token;
+            token = next();
+            if (skip == 1) {
+                skip = token == IDENT ? 2 : 0;
+                continue;
+            }
+            if (skip == 2) {
+                if (token == DOT) {
+                    skip = 1;
+                    continue;
+                }
+                if (token == LPAREN) {
+                    skip = 3;
+                    continue;
+                }
+                skip = 0;
+            } else if (skip >= 3) {
+                skip += token == LPAREN ? 1 : token == RPAREN ? -1 : 0;
+                skip = skip == 2 ? 0 : skip;
+                continue;
+            }
+            if (token == EOF || token == COMMA && generics == 0) {
+                if (erasedNameAt >= 0 && !receiver) {
+                    // The last identifier is the parameter name and dimensions after it belong to the type.
+                    // Like JavaParser signatures, only array types keep their type arguments.
+                    name.append(first ? "" : ", ");
+                    if (array || dimensions > 0) {
+                        name.append(full, 0, fullNameAt);
+                    } else {
+                        name.append(erased, 0, erasedNameAt);
+                    }
+                    for (int i = 0; i < dimensions; i++) {
+                        name.append("[]");
+                    }
+                    first = false;
+                }
+                if (token == EOF) {
+                    break;
+                }
+                erased.setLength(0);
+                full.setLength(0);
+                erasedNameAt = -1;
+                fullNameAt = -1;
+                dimensions = 0;
+                array = false;
+                receiver = false;
+                continue;
+            }
+            if (token == AT) {
+                skip = 1;
+            } else if (token == FINAL) {
+                continue;
+            } else if (generics > 0 || token == LT) {
+                // Inside type arguments, written the way JavaParser prints them
+                if (generics == 0) {
+                    argumentsAt = full.length();
+                }
+                generics += token == LT ? 1 : token == GT ? -1 : 0;
+                if (token == KEYWORD) {
+                    full.append(' ').append(text, start, pos - start).append(' ');
+                } else if (token == COMMA) {
+                    full.append(',');
+                } else {
+                    full.append(text, start, pos - start);
+                }
+            } else if (token == IDENT || token == PRIMITIVE) {
+                array |= dimensions > 0;
+                for (; dimensions > 0; dimensions--) {
+                    erased.append("[]");
+                    full.append("[]");
+                }
+                erasedNameAt = erased.length();
+                fullNameAt = full.length();
+                erased.append(text, start, pos - start);
+                full.append(text, start, pos - start);
+            } else if (token == THIS) {
+                receiver = true;
+            } else if (token == DOT) {
+                if (previous == GT && argumentsAt >= 0) {
+                    erased.append(full, argumentsAt, full.length()); // the type arguments of a scope are kept
+                }
+                erased.append('.');
+                full.append('.');
+            } else if (token == ELLIPSIS) {
+                array = true;
+                erased.append("[]");
+                full.append("[]");
+            } else if (token == RBRACKET) {
+                dimensions++;
+            }
+        }
+        pos = savedPos;
+        end = savedEnd;
+        kind = savedKind;
+        start = savedStart;
+    }
+
+    // Returns the end of the identifier starting at from
+    private int nameEnd(int from) {
+        int i = from;
+        while (i < end && Character.isJavaIdentifierPart(text[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    // Returns true if the identifier starting at from is the given word
+    private boolean isWord(int from, String word) {
+        int length = nameEnd(from) - from;
+        if (length != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (text[from + i] != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Returns true if the identifier starting at from has the same characters as the range [otherStart, otherEnd)
+    private boolean regionEquals(int from, int to, int otherStart, int otherEnd) {
+        int length = nameEnd(from) - from;
+        if (length != otherEnd - otherStart) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (text[from + i] != text[otherStart + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void grow() {
+        int size = frameKind.length * 2;
+        frameKind = Arrays.copyOf(frameKind, size);
+        frameParens = Arrays.copyOf(frameParens, size);
+        frameNameStart = Arrays.copyOf(frameNameStart, size);
+        frameNameEnd = Arrays.copyOf(frameNameEnd, size);
+        frameParamsStart = Arrays.copyOf(frameParamsStart, size);
+        frameParamsEnd = Arrays.copyOf(frameParamsEnd, size);
+        frameDecisions = Arrays.copyOf(frameDecisions, size);
+        frameOuterMethod = Arrays.copyOf(frameOuterMethod, size);
+        frameConstructor = Arrays.copyOf(frameConstructor, size);
+        frameAssigned = Arrays.copyOf(frameAssigned, size);
+        frameConstants = Arrays.copyOf(frameConstants, size);
+    }
+
+    // Reads the next token, skipping whitespace and comments. Returns its kind, EOF at the end.
+    private int next() {
+        skipWhitespaceAndComments();
+        start = pos;
+        if (pos >= end) {
+            return kind = EOF;
+        }
+        char c = text[pos];
+        if (Character.isJavaIdentifierStart(c)) {
+            pos = nameEnd(pos);
+            return kind = keyword(start, pos);
+        }
+        if (c >= '0' && c <= '9' || c == '.' && pos + 1 < end && text[pos + 1] >= '0' && text[pos + 1] <= '9') {
+            number();
+            return kind = LITERAL;
+        }
+        pos++;
+        switch (c) {
+            case '"':
+                string();
+                return kind = LITERAL;
+            case '\'':
+                quoted('\'');
+                return kind = LITERAL;
+            case '(':
+                return kind = LPAREN;
+            case ')':
+                return kind = RPAREN;
+            case '{':
+                return kind = LBRACE;
+            case '}':
+                return kind = RBRACE;
+            case '[':
+                return kind = LBRACKET;
+            case ']':
+                return kind = RBRACKET;
+            case ';':
+                return kind = SEMI;
+            case ',':
+                return kind = COMMA;
+            case '@':
+                return kind = AT;
+            case '?':
+                return kind = QUESTION;
+            case '.':
+                if (pos + 1 < end && text[pos] == '.' && text[pos + 1] == '.') {
+                    pos += 2;
+                    return kind = ELLIPSIS;
+                }
+                return kind = DOT;
+            case ':':
+                return kind = follows(':') ? COLON_COLON : COLON;
+            case '&':
+                return kind = follows('&') ? AND_AND : operator();
+            case '|':
+                return kind = follows('|') ? OR_OR : operator();
+            case '-':
+                return kind = follows('>') ? ARROW : operator();
+            case '=':
+                return kind = follows('=') ? OPERATOR : ASSIGN;
+            case '<':
+                if (follows('<')) {
+                    return kind = operator();
+                }
+                return kind = follows('=') ? OPERATOR : LT;
+            case '>':
+                // Each '>' is its own token so that nested type arguments close one at a time
+                return kind = pos < end && text[pos] == '=' ? operator() : GT;
+            default:
+                return kind = operator();
+        }
+    }
+
+    // Consumes the next character if it is the given one
+    private boolean follows(char c) {
+        if (pos < end && text[pos] == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    // Finishes an operator such as '+' or '+=', returning OPERATOR
+    private int operator() {
+        follows('=');
+        return OPERATOR;
+    }
+
+    private void skipWhitespaceAndComments() {
+        while (pos < end) {
+            char c = text[pos];
+            if (c == '/' && pos + 1 < end && text[pos + 1] == '/') {
+                while (pos < end && text[pos] != '\n' && text[pos] != '\r') {
+                    pos++;
+                }
+            } else if (c == '/' && pos + 1 < end && text[pos + 1] == '*') {
+                pos += 2;
+                while (pos < end && !(text[pos] == '*' && pos + 1 < end && text[pos + 1] == '/')) {
+                    pos++;
+                }
+                pos = Math.min(end, pos + 2);
+            } else if (Character.isWhitespace(c) || c == '\u0000') {
+                pos++;
+            } else {
+                return;
+            }
+        }
+    }
+
+    // Skips a string literal or text block whose opening quote has been read
+    private void string() {
+        if (pos + 1 < end && text[pos] == '"' && text[pos + 1] == '"') {
+            pos += 2;
+            while (pos < end) {
+                if (text[pos] == '\\') {
+                    pos += 2;
+                } else if (text[pos] == '"' && pos + 2 < end && text[pos + 1] == '"' && text[pos + 2] == '"') {
+                    pos += 3;
+                    return;
+                } else {
+                    pos++;
+                }
+            }
+            pos = end;
+            return;
+        }
+        quoted('"');
+    }
+
+    // Skips a string or character literal whose opening quote has been read
+    private void quoted(char quote) {
+        while (pos < end) {
+            char c = text[pos++];
+            if (c == '\\') {
+                pos++;
+            } else if (c == quote || c == '\n') {
+                return;
+            }
+        }
+        pos = Math.min(pos, end);
+    }
+
+    // Skips a numeric literal, including suffixes, underscores and signed exponents
+    private void number() {
+        boolean hex = text[pos] == '0' && pos + 1 < end && (text[pos + 1] == 'x' || text[pos + 1] == 'X');
+        pos++;
+        while (pos < end) {
+            char c = text[pos];
+            char before = text[pos - 1];
+            if (Character.isJavaIdentifierPart(c) || c == '.') {
+                pos++;
+            } else if ((c == '+' || c == '-') && (hex ? before == 'p' || before == 'P' : before == 'e' || before == 'E')) {
+                pos++;
+            } else {
+                return;
+            }
+        }
+    }
+
+    // Returns the keyword kind of an identifier, or IDENT
+    private int keyword(int from, int to) {
+        int length = to - from;
+        if (length < 2 || length > 12 || text[from] < 'a' || text[from] > 'z') {
+            return IDENT;
+        }
+        int slot = hash(text, from, to) & (KEYWORD_TABLE.length - 1);
+        while (KEYWORD_TABLE[slot] != 0) {
+            char[] word = KEYWORDS[KEYWORD_TABLE[slot] - 1];
+            if (word.length == length && Arrays.equals(word, 0, length, text, from, to)) {
+                return KEYWORD_KINDS[KEYWORD_TABLE[slot] - 1];
+            }
+            slot = (slot + 1) & (KEYWORD_TABLE.length - 1);
+        }
+        return IDENT;
+    }
+
+    private static int hash(char[] chars, int from, int to) {
+        int h = 0;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + chars[i];
+        }
+        return h ^ (h >>> 16);
+    }
+}
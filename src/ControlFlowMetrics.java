@@ -0,0 +1,65 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class holds the control flow counts of one analysis run.
+ * Each file is counted into its own primitive array first and then added here,
+ * so any number of threads and runs can count at the same time without sharing state.
+ */
+public class ControlFlowMetrics {
+    private final LongAdder[] counts; // one adder per ControlFlowCounter, indexed by ordinal
+
+    /**
+     * Constructor for the ControlFlowMetrics class.
+     */
+    public ControlFlowMetrics() {
+        this.counts = new LongAdder[ControlFlowCounter.values().length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * This method adds the counts of one file to the run.
+     * @param fileCounts - counts indexed by ControlFlowCounter.ordinal(), as filled by ControlFlowVisitor
+     */
+    public void add(int[] fileCounts) {
+        for (int i = 0; i < fileCounts.length; i++) {
+            if (fileCounts[i] != 0) {
+                counts[i].add(fileCounts[i]);
+            }
+        }
+    }
+
+    /**
+     * This method adds every count of another run to this one.
+     * @param other - the metrics to merge in
+     */
+    public void merge(ControlFlowMetrics other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i].add(other.counts[i].sum());
+        }
+    }
+
+    /**
+     * This method returns the number of nodes of the given kind counted so far.
+     * @param counter - the node kind
+     * @return the count
+     */
+    public long get(ControlFlowCounter counter) {
+        return counts[counter.ordinal()].sum();
+    }
+
+    /**
+     * This method returns the number of decision points counted so far.
+     * @return the sum of every counter that is a decision point
+     */
+    public long getDecisionPoints() {
+        long decisionPoints = 0;
+        for (ControlFlowCounter counter : ControlFlowCounter.values()) {
+            if (counter.isDecisionPoint()) {
+                decisionPoints += get(counter);
+            }
+        }
+        return decisionPoints;
+    }
+}
@@ -0,0 +1,156 @@
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.expr.BinaryExpr;
+import com.github.javaparser.ast.expr.ConditionalExpr;
+import com.github.javaparser.ast.stmt.CatchClause;
+import com.github.javaparser.ast.stmt.DoStmt;
+import com.github.javaparser.ast.stmt.ForEachStmt;
+import com.github.javaparser.ast.stmt.ForStmt;
+import com.github.javaparser.ast.stmt.IfStmt;
+import com.github.javaparser.ast.stmt.SwitchEntry;
+import com.github.javaparser.ast.stmt.WhileStmt;
+import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
+
+/**
+ * This class extends voidVisitorAdapter to count every ControlFlowCounter node kind in a single traversal.
+ * The counts are written to an int array indexed by ControlFlowCounter.ordinal().
+ * When given a ComplexityHotSpots, the complexity of every method and constructor is offered to it
+ * as soon as the declaration has been visited, so nothing per method outlives its traversal.
+ * A visitor keeps per-method state and must only be used for one file at a time.
+ */
+public class ControlFlowVisitor extends VoidVisitorAdapter<int[]> {
+    private final ComplexityHotSpots hotSpots; // receives per-method complexities, null if not wanted
+    private int methodDecisions; // decision points seen so far in the innermost method
+
+    /**
+     * Constructor for the ControlFlowVisitor class, counting totals only.
+     */
+    public ControlFlowVisitor() {
+        this(null);
+    }
+
+    /**
+     * Constructor for the ControlFlowVisitor class.
+     * @param hotSpots - receives the complexity of every method and constructor, may be null
+     */
+    public ControlFlowVisitor(ComplexityHotSpots hotSpots) {
+        this.hotSpots = hotSpots;
+    }
+
+    /**
+     * This method creates a counter array large enough for every ControlFlowCounter.
+     * @return a zeroed counter array
+     */
+    public static int[] newCounts() {
+        return new int[ControlFlowCounter.values().length];
+    }
+
+    @Override
+    public void visit(IfStmt n, int[] counts) {
+        super.visit(n, counts);
+        count(counts, ControlFlowCounter.IF);
+    }
+
+    @Override
+    public void visit(ForStmt n, int[] counts) {
+        super.visit(n, counts);
+        count(counts, ControlFlowCounter.FOR);
+    }
+
+    @Override
+    public void visit(ForEachStmt n, int[] counts) {
+        super.visit(n, counts);
+        count(counts, ControlFlowCounter.FOR_EACH);
+    }
+
+    @Override
+    public void visit(WhileStmt n, int[] counts) {
+        super.visit(n, counts);
+        count(counts, ControlFlowCounter.WHILE);
+    }
+
+    @Override
+    public void visit(DoStmt n, int[] counts) {
+        super.visit(n, counts);
+        count(counts, ControlFlowCounter.DO);
+    }
+
+    @Override
+    public void visit(SwitchEntry n, int[] counts) {
+        super.visit(n, counts);
+        count(counts, ControlFlowCounter.SWITCH_CASE);
+    }
+
+    @Override
+    public void visit(CatchClause n, int[] counts) {
+        super.visit(n, counts);
+        count(counts, ControlFlowCounter.CATCH);
+    }
+
+    @Override
+    public void visit(ConditionalExpr n, int[] counts) {
+        super.visit(n, counts);
+        count(counts, ControlFlowCounter.CONDITIONAL);
+    }
+
+    @Override
+    public void visit(BinaryExpr n, int[] counts) {
+        super.visit(n, counts);
+        if (n.getOperator() == BinaryExpr.Operator.AND) {
+            count(counts, ControlFlowCounter.LOGICAL_AND);
+        } else if (n.getOperator() == BinaryExpr.Operator.OR) {
+            count(counts, ControlFlowCounter.LOGICAL_OR);
+        }
+    }
+
+    @Override
+    public void visit(MethodDeclaration n, int[] counts) {
+        int outer = methodDecisions;
+        methodDecisions = 0;
+        super.visit(n, counts);
+        count(counts, ControlFlowCounter.METHOD);
+        offer(n);
+        methodDecisions = outer;
+    }
+
+    @Override
+    public void visit(ConstructorDeclaration n, int[] counts) {
+        int outer = methodDecisions;
+        methodDecisions = 0;
+        super.visit(n, counts);
+        offer(n);
+        methodDecisions = outer;
+    }
+
+    // Increments a counter, and the current method's decision points if the node is one
+    private void count(int[] counts, ControlFlowCounter counter) {
+        counts[counter.ordinal()]++;
+        if (counter.isDecisionPoint()) {
+            methodDecisions++;
+        }
+    }
+
+    // Offers the complexity of the method that has just been visited
+    private void offer(CallableDeclaration<?> callable) {
+        if (hotSpots != null) {
+            hotSpots.offer(methodDecisions + 1, () -> qualifiedName(callable));
+        }
+    }
+
+    // Builds a name such as com.example.A.run(int) for a method or constructor
+    private static String qualifiedName(CallableDeclaration<?> callable) {
+        String owner = "";
+        Node parent = callable.getParentNode().orElse(null);
+        while (parent != null && !(parent instanceof TypeDeclaration)) {
+            parent = parent.getParentNode().orElse(null);
+        }
+        if (parent != null) {
+            TypeDeclaration<?> type = (TypeDeclaration<?>) parent;
+            owner = type.getFullyQualifiedName().orElse(type.getNameAsString()) + ".";
+        }
+        return owner + callable.getSignature().asString();
+    }
+}
@@ -1,164 +1,708 @@
 
-import com.github.javaparser.ParserConfiguration.LanguageLevel;
-import com.github.javaparser.StaticJavaParser;
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.NodeList;
 import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
+import com.github.javaparser.ast.body.AnnotationDeclaration;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
-import com.github.javaparser.ast.body.FieldDeclaration;
+import com.github.javaparser.ast.body.ConstructorDeclaration;
+import com.github.javaparser.ast.body.EnumDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.RecordDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.expr.AnnotationExpr;
+import com.github.javaparser.ast.expr.MarkerAnnotationExpr;
+import com.github.javaparser.ast.expr.MethodCallExpr;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.NormalAnnotationExpr;
+import com.github.javaparser.ast.expr.SingleMemberAnnotationExpr;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.type.TypeParameter;
 import com.github.javaparser.ast.ImportDeclaration;
 
 import java.io.File;
 import java.util.*;
+import java.util.stream.IntStream;
 
-public class DependencyCycles extends Evaluator {
+public class DependencyCycles implements Analyzer {
 
-    // Dependency graph: Fully qualified class name → Set of dependencies (fully qualified names)
-    private Map<String, Set<String>> graph = new HashMap<>();
+    // Dependency graph: every fully qualified class name is interned to an int id, edges are stored between ids.
+    // Names are only looked up again when results are reported.
+    private final SymbolTable symbols = new SymbolTable();
+    private DependencyGraph graph = new DependencyGraph();
+    // Kept up to date edge by edge once the graph changes after it was built, by addDependency, removeDependency
+    // or updateFile; null until then. The packed graph is then rebuilt from it when it is needed.
+    private IncrementalComponents incremental;
+    private boolean graphStale;
+    // Dependencies of the files accepted since the graph was last brought up to date, in accept order.
+    // They are added all at once, on all cores, by a DependencyGraphBuilder.
+    private List<Map<String, Set<String>>> pending = new ArrayList<>();
     private Set<List<String>> cycles = new HashSet<>();
+    // Fully qualified names of the classes declared in the accepted files
+    private final Set<String> declaredClasses = new HashSet<>();
+    // Resolves the names a file cannot resolve on its own once every class is known, null to guess them per file
+    private final TypeResolver resolver;
+
+    // Number of cycles reported for every group of mutually dependent classes by default
+    public static final int DEFAULT_CYCLES_PER_COMPONENT = 1;
+
+    // Resolves type names from each file alone: imports, then java.lang, then the file's own package.
+    public DependencyCycles() {
+        this(null);
+    }
+
+    // Resolves type names against every class of the project, so wildcard imports, nested classes and classes
+    // shadowing java.lang are resolved like the compiler does. The resolver collects the classes of this analysis,
+    // so each analysis needs a resolver of its own.
+    public DependencyCycles(TypeResolver resolver) {
+        this.resolver = resolver;
+    }
 
     // Parses all Java files in the given project directory and builds the dependency graph.
     public void parseProject(File projectDir) throws Exception {
-        //depricated but used here to avoid excessive refactoring due to time constraints
-        StaticJavaParser.getConfiguration().setLanguageLevel(LanguageLevel.JAVA_18); 
+        new ParsePipeline().register(this).run(projectDir);
+    }
 
-        List<File> files = new ArrayList<>();
-        traverseFolder(projectDir, files);
-        if (files.size() == 0)
-            throw new Exception("Directory not found or no Java files in: " + projectDir);
+    // Records the dependencies declared in one file.
+    @Override
+    public void extract(CompilationUnit cu, FileFacts facts) {
+        // Extract package name
+        String packageName = cu.getPackageDeclaration().map(pd -> pd.getNameAsString()).orElse("");
 
-        for (File file : files) {
-            CompilationUnit cu = StaticJavaParser.parse(file);
+        // Extract import statements
+        Map<String, String> importMap = new HashMap<>();
+        List<String> onDemandImports = new ArrayList<>();
+        for (ImportDeclaration importDecl : cu.getImports()) {
+            if (importDecl.isAsterisk()) {
+                onDemandImports.add(importDecl.getNameAsString()); // A package, or a class whose nested classes are imported
+                continue;
+            }
+            if (importDecl.isStatic())
+                continue; // Only single-type imports name a class
+            String importName = importDecl.getNameAsString();
+            String simpleName = importName.substring(importName.lastIndexOf('.') + 1);
+            importMap.put(simpleName, importName); // Map simple class name to fully qualified name
+        }
 
-            // Extract package name
-            String packageName = cu.getPackageDeclaration().map(pd -> pd.getNameAsString()).orElse("");
+        // Collect the classes declared in the file, which take precedence over imported ones
+        Set<String> declaredTypes = new HashSet<>();
+        for (TypeDeclaration<?> type : cu.findAll(TypeDeclaration.class)) {
+            type.getFullyQualifiedName().ifPresent(declaredTypes::add);
+        }
 
-            // Extract import statements
-            Map<String, String> importMap = new HashMap<>();
-            for (ImportDeclaration importDecl : cu.findAll(ImportDeclaration.class)) {
-                String importName = importDecl.getNameAsString();
-                String simpleName = importName.substring(importName.lastIndexOf('.') + 1);
-                importMap.put(simpleName, importName); // Map simple class name to fully qualified name
-            }
+        // Visit class declarations to track dependencies
+        cu.accept(new DependencyVisitor(packageName, importMap, onDemandImports, declaredTypes, resolver != null), facts);
+    }
 
-            // Visit class declarations to track dependencies
-            cu.accept(new DependencyVisitor(packageName, importMap), null);
+    // Queues the dependencies of one file for the dependency graph.
+    @Override
+    public void accept(FileFacts facts) {
+        if (incremental != null) {
+            updateFile(null, facts);
+        } else if (!facts.getDependencies().isEmpty()) {
+            pending.add(facts.getDependencies());
+            declaredClasses.addAll(facts.getDependencies().keySet());
+            if (resolver != null) {
+                facts.getDependencies().keySet().forEach(resolver::addProjectType);
+            }
         }
     }
 
-    // Adds a dependency from one class to another.
-    private void addDependency(String from, String to) {
+    // Adds the dependencies of all accepted files to the graph.
+    @Override
+    public void finish() {
+        buildGraph();
+    }
+
+    // Adds a dependency from one class to another, keeping the groups of mutually dependent classes up to date.
+    // Returns true if the dependency introduced a new cycle, merging groups; the cost depends on the classes between
+    // the two in the dependency order, not on the size of the graph. See IncrementalComponents.
+    public boolean addDependency(String from, String to) {
         if (from.equals(to))
-            return; // Prevent self-dependencies
-        graph.computeIfAbsent(from, k -> new HashSet<>()).add(to);
+            return false; // Prevent self-dependencies
+        startUpdates();
+        graphStale = true;
+        return incremental.addEdge(node(from), node(to));
+    }
+
+    // Removes a dependency from one class to another. Returns true if it broke a group of mutually dependent
+    // classes apart; only the classes of that group are searched again.
+    public boolean removeDependency(String from, String to) {
+        startUpdates();
+        int fromId = knownNode(from);
+        int toId = knownNode(to);
+        if (fromId < 0 || toId < 0) {
+            return false;
+        }
+        graphStale = true;
+        return incremental.removeEdge(fromId, toId);
+    }
+
+    // Returns true if adding a dependency would introduce a new cycle, without adding it. Meant for checking a
+    // change before it is merged: a dependency that follows the current dependency order is answered at once.
+    public boolean wouldIntroduceCycle(String from, String to) {
+        startUpdates();
+        int fromId = knownNode(from);
+        int toId = knownNode(to);
+        if (fromId < 0 || toId < 0) {
+            return false; // a class nothing depends on, or that depends on nothing, is on no cycle
+        }
+        return incremental.wouldCloseCycle(fromId, toId);
+    }
+
+    // Replaces the dependencies of a file that changed: removed holds its earlier facts and added its new ones,
+    // null for a file that was created or deleted. Several files that changed together are replaced as one, with
+    // their facts merged by FileFacts.addAll, so classes moving between them are kept. Only the dependencies that changed are added or removed, and the
+    // groups of mutually dependent classes are kept up to date instead of running Tarjan over the whole graph.
+    // With a TypeResolver, the references of the other files keep the resolution they had when they were added.
+    // Returns true if the new dependencies introduced a new cycle.
+    public boolean updateFile(FileFacts removed, FileFacts added) {
+        startUpdates();
+        Map<String, Set<String>> before = removed == null ? Map.of() : removed.getDependencies();
+        Map<String, Set<String>> after = added == null ? Map.of() : added.getDependencies();
+        declaredClasses.removeAll(before.keySet());
+        declaredClasses.addAll(after.keySet());
+        if (resolver != null) {
+            for (String from : before.keySet()) {
+                if (!after.containsKey(from)) {
+                    resolver.removeProjectType(from);
+                }
+            }
+            after.keySet().forEach(resolver::addProjectType);
+        }
+        for (String from : before.keySet()) {
+            if (!after.containsKey(from)) {
+                replaceDependencies(from, Set.of());
+            }
+        }
+        boolean introducedCycle = false;
+        for (Map.Entry<String, Set<String>> dependencies : after.entrySet()) {
+            introducedCycle |= replaceDependencies(dependencies.getKey(), dependencies.getValue());
+        }
+        graphStale = true;
+        return introducedCycle;
+    }
+
+    // Switches from the packed graph to one kept up to date edge by edge, the first time the graph changes
+    private void startUpdates() {
+        if (incremental == null) {
+            buildGraph();
+            incremental = new IncrementalComponents(graph.getNodeCount(), graph.getOffsets(), graph.getTargets());
+        }
+    }
+
+    // Makes the dependencies of a class exactly the given ones, touching only the edges that differ.
+    // Edges are removed first, so a dependency that moved does not merge groups on the way.
+    private boolean replaceDependencies(String from, Set<String> targets) {
+        int fromId = node(from);
+        Set<Integer> ids = new LinkedHashSet<>();
+        for (String to : targets) {
+            int toId = node(resolver == null ? to : resolver.resolve(to));
+            if (toId != fromId) {
+                ids.add(toId);
+            }
+        }
+        for (int to : incremental.getSuccessors(fromId)) {
+            if (!ids.contains(to)) {
+                incremental.removeEdge(fromId, to);
+            }
+        }
+        boolean introducedCycle = false;
+        for (int to : ids) {
+            introducedCycle |= incremental.addEdge(fromId, to);
+        }
+        return introducedCycle;
     }
 
-    // Visitor to process class declarations and field dependencies
-    private class DependencyVisitor extends VoidVisitorAdapter<Void> {
-        private String currentClassFQN; // Fully Qualified Name of the class being visited
+    // Returns the node of a class, adding it if the class has not been seen
+    private int node(String className) {
+        int id = symbols.intern(className);
+        while (incremental.getNodeCount() <= id) {
+            incremental.addNode();
+        }
+        return id;
+    }
+
+    // Returns the node of a class, or -1 if the class is not in the graph
+    private int knownNode(String className) {
+        int id = symbols.find(className);
+        return id < incremental.getNodeCount() ? id : -1;
+    }
+
+    // Returns the number of groups of mutually dependent classes.
+    public int getCyclicGroupCount() {
+        if (incremental != null) {
+            return incremental.getCyclicCount();
+        }
+        return getCyclicComponents().size();
+    }
+
+    // Returns the sorted group of mutually dependent classes a class belongs to, or an empty list if it is in none.
+    public List<String> getCyclicGroup(String className) {
+        int id = symbols.find(className);
+        if (id < 0 || id >= graphNodeCount()) {
+            return List.of();
+        }
+        List<String> members;
+        if (incremental != null) {
+            int component = incremental.getComponent(id);
+            if (!incremental.isCyclic(component)) {
+                return List.of();
+            }
+            members = toNames(incremental.getMembers(component));
+        } else {
+            StronglyConnectedComponents scc = computeComponents();
+            int component = scc.getComponent(id);
+            if (!scc.isCyclic(component)) {
+                return List.of();
+            }
+            members = toNames(scc.getMembers(component));
+        }
+        Collections.sort(members);
+        return members;
+    }
+
+    private int graphNodeCount() {
+        if (incremental != null) {
+            return incremental.getNodeCount();
+        }
+        buildGraph();
+        return graph.getNodeCount();
+    }
+
+    // Adds the queued dependencies to the graph. The graph is the same as if they had been added one by one.
+    // Once files were updated, the graph is packed again from the current dependencies instead.
+    private void buildGraph() {
+        if (graphStale) {
+            DependencyGraph current = new DependencyGraph();
+            current.addNode(incremental.getNodeCount() - 1);
+            for (int v = 0; v < incremental.getNodeCount(); v++) {
+                for (int w : incremental.getSuccessors(v)) {
+                    current.addEdge(v, w);
+                }
+            }
+            graph = current;
+            graphStale = false;
+        }
+        if (!pending.isEmpty()) {
+            new DependencyGraphBuilder(symbols, graph).addAll(resolver == null ? pending : resolveReferences(pending));
+            pending = new ArrayList<>();
+        }
+    }
+
+    // Resolves the deferred references of every file on all cores, keeping each file's order of dependencies.
+    private List<Map<String, Set<String>>> resolveReferences(List<Map<String, Set<String>>> files) {
+        List<Map<String, Set<String>>> resolved = new ArrayList<>(Collections.nCopies(files.size(), null));
+        IntStream.range(0, files.size()).parallel().forEach(file -> {
+            Map<String, Set<String>> dependencies = new LinkedHashMap<>();
+            files.get(file).forEach((from, targets) -> {
+                Set<String> resolvedTargets = new LinkedHashSet<>();
+                for (String to : targets) {
+                    resolvedTargets.add(resolver.resolve(to));
+                }
+                dependencies.put(from, resolvedTargets);
+            });
+            resolved.set(file, dependencies);
+        });
+        return resolved;
+    }
+
+    // Returns the resolver used for names a file cannot resolve on its own, or null if names are guessed per file.
+    public TypeResolver getResolver() {
+        return resolver;
+    }
+
+    // Visitor that records every type a class refers to, in a single traversal: field, parameter, return and
+    // local variable types, types in new expressions, casts, throws and catch clauses, generic type arguments,
+    // extended and implemented types, the classes of static method calls and annotations.
+    // Primitives, var and void are not class types and are never seen; type variables are skipped.
+    // A class usually names the same type many times, so every name written in the file is interned to a small
+    // int id, and each class keeps the ids it has recorded in a bit set: a repeated reference costs one lookup.
+    private static class DependencyVisitor extends VoidVisitorAdapter<FileFacts> {
+        // Public types of java.lang, which every file imports implicitly
+        private static final Set<String> JAVA_LANG = Set.of(
+            "AbstractMethodError", "Appendable", "ArithmeticException", "ArrayIndexOutOfBoundsException",
+            "ArrayStoreException", "AssertionError", "AutoCloseable", "Boolean", "BootstrapMethodError", "Byte",
+            "CharSequence", "Character", "Class", "ClassCastException", "ClassCircularityError", "ClassFormatError",
+            "ClassLoader", "ClassNotFoundException", "ClassValue", "CloneNotSupportedException", "Cloneable",
+            "Comparable", "Deprecated", "Double", "Enum", "EnumConstantNotPresentException", "Error", "Exception",
+            "ExceptionInInitializerError", "Float", "FunctionalInterface", "IllegalAccessError",
+            "IllegalAccessException", "IllegalArgumentException", "IllegalCallerException",
+            "IllegalMonitorStateException", "IllegalStateException", "IllegalThreadStateException",
+            "IncompatibleClassChangeError", "IndexOutOfBoundsException", "InheritableThreadLocal",
+            "InstantiationError", "InstantiationException", "Integer", "InternalError", "InterruptedException",
+            "Iterable", "LayerInstantiationException", "LinkageError", "Long", "Math", "Module", "ModuleLayer",
+            "NegativeArraySizeException", "NoClassDefFoundError", "NoSuchFieldError", "NoSuchFieldException",
+            "NoSuchMethodError", "NoSuchMethodException", "NullPointerException", "Number", "NumberFormatException",
+            "Object", "OutOfMemoryError", "Override", "Package", "Process", "ProcessBuilder", "ProcessHandle",
+            "Readable", "Record", "ReflectiveOperationException", "Runnable", "Runtime", "RuntimeException",
+            "RuntimePermission", "SafeVarargs", "SecurityException", "SecurityManager", "Short", "StackOverflowError",
+            "StackTraceElement", "StackWalker", "StrictMath", "String", "StringBuffer", "StringBuilder",
+            "StringIndexOutOfBoundsException", "SuppressWarnings", "System", "Thread", "ThreadDeath", "ThreadGroup",
+            "ThreadLocal", "Throwable", "TypeNotPresentException", "UnknownError", "UnsatisfiedLinkError",
+            "UnsupportedClassVersionError", "UnsupportedOperationException", "VerifyError", "VirtualMachineError",
+            "Void");
+
         private final String packageName;
         private final Map<String, String> importMap; // Maps simple class names to their full names
+        private final List<String> onDemandImports; // Packages and classes imported with .*
+        private final Set<String> declaredTypes; // Fully qualified names of the classes declared in this file
+        private final Set<String> nestedNames; // Simple names of the nested classes declared in this file
+        private final boolean deferUnresolved; // Leave names the file cannot resolve to a TypeResolver
+        private final SymbolTable written = new SymbolTable(); // Type names as written in this file
+        private String[] resolved = new String[16]; // Fully qualified name of every written name, by id
+        private final ArrayDeque<ClassFrame> classes = new ArrayDeque<>(); // Enclosing classes, innermost first
+        private final ArrayList<String> typeVariables = new ArrayList<>(); // Type parameters in scope
 
-        public DependencyVisitor(String packageName, Map<String, String> importMap) {
+        public DependencyVisitor(String packageName, Map<String, String> importMap, List<String> onDemandImports,
+                                 Set<String> declaredTypes, boolean deferUnresolved) {
             this.packageName = packageName;
             this.importMap = importMap;
+            this.onDemandImports = onDemandImports;
+            this.declaredTypes = declaredTypes;
+            this.deferUnresolved = deferUnresolved;
+            this.nestedNames = new HashSet<>();
+            for (String type : declaredTypes) {
+                String simpleName = type.substring(type.lastIndexOf('.') + 1);
+                if (!type.equals(packageName.isEmpty() ? simpleName : packageName + "." + simpleName)) {
+                    nestedNames.add(simpleName);
+                }
+            }
+        }
+
+        // A class being visited and the written names it has already recorded
+        private static class ClassFrame {
+            final String fqn; // Fully Qualified Name of the class
+            final BitSet recorded = new BitSet();
+
+            ClassFrame(String fqn) {
+                this.fqn = fqn;
+            }
+        }
+
+        @Override
+        public void visit(ClassOrInterfaceDeclaration n, FileFacts arg) {
+            int scope = enterTypeVariables(n.getTypeParameters());
+            boolean entered = enterClass(n, arg);
+            super.visit(n, arg);
+            exitClass(entered);
+            exitTypeVariables(scope);
+        }
+
+        @Override
+        public void visit(EnumDeclaration n, FileFacts arg) {
+            boolean entered = enterClass(n, arg);
+            super.visit(n, arg);
+            exitClass(entered);
+        }
+
+        @Override
+        public void visit(RecordDeclaration n, FileFacts arg) {
+            int scope = enterTypeVariables(n.getTypeParameters());
+            boolean entered = enterClass(n, arg);
+            super.visit(n, arg);
+            exitClass(entered);
+            exitTypeVariables(scope);
         }
 
         @Override
-        public void visit(ClassOrInterfaceDeclaration n, Void arg) {
-            // Construct the fully qualified name of the current class
-            currentClassFQN = packageName.isEmpty() ? n.getNameAsString() : packageName + "." + n.getNameAsString();
+        public void visit(AnnotationDeclaration n, FileFacts arg) {
+            boolean entered = enterClass(n, arg);
+            super.visit(n, arg);
+            exitClass(entered);
+        }
 
-            // Continue visiting the body (fields, methods, etc.)
+        @Override
+        public void visit(MethodDeclaration n, FileFacts arg) {
+            int scope = enterTypeVariables(n.getTypeParameters());
             super.visit(n, arg);
+            exitTypeVariables(scope);
         }
 
         @Override
-        public void visit(FieldDeclaration n, Void arg) {
-            if (currentClassFQN != null) {
-                // Extract field type and register dependency
-                String fieldType = resolveFQN(n.getElementType().asString());
-                addDependency(currentClassFQN, fieldType);
+        public void visit(ConstructorDeclaration n, FileFacts arg) {
+            int scope = enterTypeVariables(n.getTypeParameters());
+            super.visit(n, arg);
+            exitTypeVariables(scope);
+        }
+
+        @Override
+        public void visit(ClassOrInterfaceType n, FileFacts arg) {
+            // Outer.Inner<T> is recorded as Outer.Inner; its type arguments are visited on their own
+            String name = n.getNameWithScope();
+            if (!typeVariables.contains(name)) {
+                record(name, arg);
             }
+            n.getTypeArguments().ifPresent(arguments -> arguments.forEach(argument -> argument.accept(this, arg)));
+            n.getAnnotations().forEach(annotation -> annotation.accept(this, arg));
+        }
+
+        @Override
+        public void visit(MethodCallExpr n, FileFacts arg) {
+            // Foo.bar() calls a static method of Foo; by convention class names are capitalised and
+            // constants, such as LOG.info(), are all upper case and longer than one letter
+            n.getScope().ifPresent(scope -> {
+                if (scope instanceof NameExpr) {
+                    String name = ((NameExpr) scope).getNameAsString();
+                    if (Character.isUpperCase(name.charAt(0)) && (name.length() == 1 || !name.equals(name.toUpperCase()))) {
+                        record(name, arg);
+                    }
+                }
+            });
+            super.visit(n, arg);
+        }
+
+        @Override
+        public void visit(MarkerAnnotationExpr n, FileFacts arg) {
+            recordAnnotation(n, arg);
+            super.visit(n, arg);
+        }
+
+        @Override
+        public void visit(SingleMemberAnnotationExpr n, FileFacts arg) {
+            recordAnnotation(n, arg);
             super.visit(n, arg);
         }
 
-        // Resolves a class name to a fully qualified name
+        @Override
+        public void visit(NormalAnnotationExpr n, FileFacts arg) {
+            recordAnnotation(n, arg);
+            super.visit(n, arg);
+        }
+
+        private void recordAnnotation(AnnotationExpr n, FileFacts arg) {
+            record(n.getNameAsString(), arg);
+        }
+
+        // Makes a named class the target of the references inside it. Local and anonymous classes have no
+        // fully qualified name, so their references are counted as the enclosing class' own.
+        private boolean enterClass(TypeDeclaration<?> n, FileFacts facts) {
+            Optional<String> fqn = n.getFullyQualifiedName();
+            if (fqn.isEmpty()) {
+                return false;
+            }
+            classes.push(new ClassFrame(fqn.get()));
+            facts.addDependent(fqn.get());
+            return true;
+        }
+
+        private void exitClass(boolean entered) {
+            if (entered) {
+                classes.pop();
+            }
+        }
+
+        // Brings type parameters into scope, returning the scope to go back to
+        private int enterTypeVariables(NodeList<TypeParameter> parameters) {
+            int scope = typeVariables.size();
+            for (TypeParameter parameter : parameters) {
+                typeVariables.add(parameter.getNameAsString());
+            }
+            return scope;
+        }
+
+        private void exitTypeVariables(int scope) {
+            typeVariables.subList(scope, typeVariables.size()).clear();
+        }
+
+        // Records a dependency of the current class on a type name, unless the class has recorded it already
+        private void record(String name, FileFacts arg) {
+            ClassFrame current = classes.peek();
+            if (current == null) {
+                return; // Annotations on the package or imports
+            }
+            int id = written.intern(name);
+            if (current.recorded.get(id)) {
+                return;
+            }
+            current.recorded.set(id);
+            if (id == resolved.length) {
+                resolved = Arrays.copyOf(resolved, id * 2);
+            }
+            String fqn = resolved[id];
+            if (fqn == null) {
+                fqn = resolveFQN(name);
+                if (!nestedNames.contains(firstSegment(name))) {
+                    resolved[id] = fqn; // Only names of nested classes depend on where they are written
+                }
+            }
+            arg.addDependency(current.fqn, fqn);
+        }
+
+        // Resolves a class name, possibly qualified like Outer.Inner, to a fully qualified name
         private String resolveFQN(String className) {
-            // 1. Check if the class is explicitly imported
-            if (importMap.containsKey(className)) {
-                return importMap.get(className);
+            String first = firstSegment(className);
+            String rest = className.substring(first.length());
+            // 1. Check if the class is nested in an enclosing class of this file, innermost first
+            if (nestedNames.contains(first)) {
+                for (ClassFrame enclosing : classes) {
+                    String candidate = enclosing.fqn + "." + first;
+                    if (declaredTypes.contains(candidate)) {
+                        return candidate + rest;
+                    }
+                }
             }
-            // 2. Check if it's in the same package
+            // 2. Check if it is declared at the top level of this file
+            String topLevel = packageName.isEmpty() ? first : packageName + "." + first;
+            if (declaredTypes.contains(topLevel)) {
+                return topLevel + rest;
+            }
+            // 3. Check if the class is explicitly imported
+            if (importMap.containsKey(first)) {
+                return importMap.get(first) + rest;
+            }
+            // 4. Check if it is already fully qualified, package names start in lower case
+            if (!rest.isEmpty() && Character.isLowerCase(first.charAt(0))) {
+                return className;
+            }
+            // 5. Leave the rest to the TypeResolver, which knows every class of the project
+            if (deferUnresolved) {
+                return TypeResolver.defer(className, packageName, onDemandImports);
+            }
+            // 6. Check if it is implicitly imported from java.lang
+            if (JAVA_LANG.contains(first)) {
+                return "java.lang." + className;
+            }
+            // 7. Check if it's in the same package
             return packageName.isEmpty() ? className : packageName + "." + className;
         }
+
+        private static String firstSegment(String className) {
+            int dot = className.indexOf('.');
+            return dot < 0 ? className : className.substring(0, dot);
+        }
+    }
+
+    // Returns the number of distinct dependencies between classes.
+    public int getDependencyCount() {
+        buildGraph();
+        return graph.getEdgeCount();
     }
 
-    // Checks if the dependency graph contains cycles.
+    // Returns one representative cycle for every cyclic group of classes.
     public Set<List<String>> getCycles() {
-        Set<String> visited = new HashSet<>();
-        Set<String> recStack = new HashSet<>();
-        ArrayList<String> cycle = new ArrayList<>();
-        for (String node : graph.keySet()) {
+        return getCycles(DEFAULT_CYCLES_PER_COMPONENT);
+    }
 
-            if (hasCycleUtil(node, visited, recStack, null)) {
-                // return true;
+    // Returns up to maxPerComponent elementary cycles for every strongly connected component.
+    // Each cycle starts at its alphabetically smallest class.
+    public Set<List<String>> getCycles(int maxPerComponent) {
+        StronglyConnectedComponents scc = computeComponents();
+        cycles = new HashSet<>();
+        for (int id = 0; id < scc.getComponentCount(); id++) {
+            for (int[] cycle : scc.findCycles(id, maxPerComponent)) {
+                cycles.add(cycleToNames(cycle));
             }
-            visited = new HashSet<>();
-            recStack = new HashSet<>();
-
         }
-        removeDuplicateCycles();
         return cycles;
     }
 
-    // Helper method for cycle detection using Depth First Search.
-    private boolean hasCycleUtil(String node, Set<String> visited, Set<String> recStack, List<String> cycle) {
-        if (recStack.contains(node)) {
-            if (cycle != null)
-                cycles.add(cycle);
-            return true;
+    // Returns every group of classes that depend on each other, each sorted, largest group first.
+    public List<List<String>> getCyclicComponents() {
+        StronglyConnectedComponents scc = computeComponents();
+        List<List<String>> components = new ArrayList<>();
+        for (int id = 0; id < scc.getComponentCount(); id++) {
+            if (scc.isCyclic(id)) {
+                List<String> members = toNames(scc.getMembers(id));
+                Collections.sort(members);
+                components.add(members);
+            }
         }
-        ;
-        if (visited.contains(node))
-            return false;
+        components.sort(Comparator.<List<String>>comparingInt(List::size).reversed()
+                .thenComparing(component -> component.get(0)));
+        return components;
+    }
 
-        if (cycle == null) {
-            cycle = new ArrayList<String>();
-        }
+    // Condenses the class dependency graph: every group of mutually dependent classes becomes one component,
+    // and the components form layers in which each only depends on lower layers.
+    public CondensationGraph getClassCondensation() {
+        buildGraph();
+        return new CondensationGraph(symbols, graph);
+    }
 
-        visited.add(node);
-        recStack.add(node);
-        cycle.add(node);
+    // Condenses the dependencies between packages, where a package depends on another if any of its classes does.
+    // Groups of mutually dependent packages are the architecture-level cycles. The default package is named "".
+    // Only packages of the project are included: a class is of the project if it is declared in an accepted file or
+    // has dependencies of its own, so libraries such as java.util, which are only depended on, are left out.
+    public CondensationGraph getPackageCondensation() {
+        buildGraph();
+        SymbolTable packages = new SymbolTable();
+        DependencyGraph packageGraph = new DependencyGraph();
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        int[] packageOf = new int[graph.getNodeCount()];
+        for (int v = 0; v < packageOf.length; v++) {
+            String className = symbols.name(v);
+            if (!declaredClasses.contains(className) && offsets[v + 1] == offsets[v]) {
+                packageOf[v] = -1; // a class outside the project
+                continue;
+            }
+            packageOf[v] = packages.intern(packageOf(className));
+            packageGraph.addNode(packageOf[v]);
+        }
+        for (int v = 0; v < packageOf.length; v++) {
+            if (packageOf[v] < 0) {
+                continue;
+            }
+            for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                if (packageOf[targets[e]] >= 0 && packageOf[v] != packageOf[targets[e]]) {
+                    packageGraph.addEdge(packageOf[v], packageOf[targets[e]]);
+                }
+            }
+        }
+        return new CondensationGraph(packages, packageGraph);
+    }
 
-        for (String neighbor : graph.getOrDefault(node, new HashSet<>())) {
-            if (hasCycleUtil(neighbor, visited, recStack, new ArrayList<>(cycle)))
-                return true;
+    // Returns the package of a class. A class declared in the project is in the package of its outermost
+    // enclosing class; for other classes the package is the segments before the first capitalised one,
+    // as in java.util.Map.Entry.
+    String packageOf(String className) {
+        if (declaredClasses.contains(className)) {
+            String outermost = className;
+            int dot = outermost.lastIndexOf('.');
+            while (dot > 0 && declaredClasses.contains(outermost.substring(0, dot))) {
+                outermost = outermost.substring(0, dot);
+                dot = outermost.lastIndexOf('.');
+            }
+            return dot < 0 ? "" : outermost.substring(0, dot);
         }
+        int end = 0;
+        for (int start = 0; start < className.length(); ) {
+            int dot = className.indexOf('.', start);
+            if (dot < 0 || Character.isUpperCase(className.charAt(start))) {
+                break;
+            }
+            end = dot;
+            start = dot + 1;
+        }
+        return className.substring(0, end);
+    }
 
-        recStack.remove(node);
-        return false;
+    // Runs Tarjan over the packed dependency graph.
+    private StronglyConnectedComponents computeComponents() {
+        buildGraph();
+        return new StronglyConnectedComponents(graph.getNodeCount(), graph.getOffsets(), graph.getTargets());
     }
 
-    // remove duplicate cycles with different starting points
-    private void removeDuplicateCycles() {
-        Set<List<String>> newCycles = new HashSet<List<String>>();
-        for (List<String> oldCycle : cycles) {
-            newCycles.add(rotateList(oldCycle));
+    // Maps node ids back to class names
+    private List<String> toNames(int[] nodes) {
+        List<String> names = new ArrayList<>(nodes.length);
+        for (int node : nodes) {
+            names.add(symbols.name(node));
         }
-        cycles = newCycles;
+        return names;
     }
 
-    // Rotate list so smallest element is first
-    private List<String> rotateList(List<String> list) {
+    // Maps a cycle back to class names, starting at its alphabetically smallest class
+    private List<String> cycleToNames(int[] cycle) {
+        List<String> names = toNames(cycle);
         int minIndex = 0;
-        for (int i = 1; i < list.size(); i++) {
-            if (list.get(i).compareTo(list.get(minIndex)) < 0) {
+        for (int i = 1; i < names.size(); i++) {
+            if (names.get(i).compareTo(names.get(minIndex)) < 0) {
                 minIndex = i;
             }
         }
-
-        Collections.rotate(list, -minIndex);
-        return list;
+        Collections.rotate(names, -minIndex);
+        return names;
     }
 
 }
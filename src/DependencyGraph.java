@@ -0,0 +1,168 @@
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * This class stores a directed graph over int node ids.
+ * Edges are appended to one growable int array per node while the graph is built; the first time
+ * the graph is read, duplicates are removed and it is packed into compressed sparse row (CSR) form:
+ * the successors of node v are getTargets()[getOffsets()[v] .. getOffsets()[v + 1] - 1], in ascending order.
+ * Adding an edge after that unpacks the graph again.
+ */
+public class DependencyGraph {
+    private static final int[] NO_EDGES = new int[0];
+    private static final int PARALLEL_PACK_NODES = 1 << 14; // graphs with more nodes sort their edge buffers on all cores
+
+    private int[][] successors; // per-node edge buffers, null once packed
+    private int[] degree; // number of used entries in each edge buffer
+    private int nodeCount; // nodes are 0 .. nodeCount - 1
+    private int[] offsets; // CSR row offsets, null while edges are being added
+    private int[] targets; // CSR column indices
+
+    /**
+     * Constructor for the DependencyGraph class.
+     */
+    public DependencyGraph() {
+        this.successors = new int[16][];
+        this.degree = new int[16];
+        this.nodeCount = 0;
+    }
+
+    /**
+     * This method makes sure a node exists, even if it has no edges.
+     * @param node - the node id
+     */
+    public void addNode(int node) {
+        unpack();
+        if (node >= successors.length) {
+            int capacity = Math.max(node + 1, successors.length * 2);
+            successors = Arrays.copyOf(successors, capacity);
+            degree = Arrays.copyOf(degree, capacity);
+        }
+        nodeCount = Math.max(nodeCount, node + 1);
+    }
+
+    /**
+     * This method adds an edge. Adding an edge that already exists has no effect.
+     * @param from - the source node id
+     * @param to - the target node id
+     */
+    public void addEdge(int from, int to) {
+        addNode(Math.max(from, to));
+        int[] edges = successors[from];
+        int count = degree[from];
+        if (edges == null) {
+            edges = successors[from] = new int[4];
+        } else if (count > 0 && edges[count - 1] == to) {
+            return; // the common case of several fields of one type
+        } else if (count == edges.length) {
+            edges = successors[from] = Arrays.copyOf(edges, count * 2);
+        }
+        edges[count] = to;
+        degree[from] = count + 1;
+    }
+
+    /**
+     * This method returns the number of nodes.
+     * @return the number of nodes
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * This method returns the number of distinct edges.
+     * @return the number of edges
+     */
+    public int getEdgeCount() {
+        pack();
+        return targets.length;
+    }
+
+    /**
+     * This method returns the CSR row offsets, of length getNodeCount() + 1.
+     * @return the offsets, must not be modified
+     */
+    public int[] getOffsets() {
+        pack();
+        return offsets;
+    }
+
+    /**
+     * This method returns the CSR successor array.
+     * @return the successors of all nodes, must not be modified
+     */
+    public int[] getTargets() {
+        pack();
+        return targets;
+    }
+
+    // Sorts and deduplicates every edge buffer and copies them into the CSR arrays.
+    // Each buffer belongs to one node only, so large graphs sort them in parallel.
+    private void pack() {
+        if (offsets != null) {
+            return;
+        }
+        IntStream nodes = IntStream.range(0, nodeCount);
+        (nodeCount >= PARALLEL_PACK_NODES ? nodes.parallel() : nodes).forEach(this::sortUnique);
+        offsets = new int[nodeCount + 1];
+        for (int v = 0; v < nodeCount; v++) {
+            offsets[v + 1] = offsets[v] + degree[v];
+        }
+        targets = new int[offsets[nodeCount]];
+        for (int v = 0; v < nodeCount; v++) {
+            if (degree[v] > 0) {
+                System.arraycopy(successors[v], 0, targets, offsets[v], degree[v]);
+            }
+        }
+        successors = null;
+        degree = null;
+    }
+
+    // Sorts one node's edge buffer and drops duplicate edges
+    private void sortUnique(int v) {
+        int[] edges = successors[v];
+        int count = degree[v];
+        if (edges != null && count > 1) {
+            Arrays.sort(edges, 0, count);
+            int unique = 1;
+            for (int i = 1; i < count; i++) {
+                if (edges[i] != edges[unique - 1]) {
+                    edges[unique++] = edges[i];
+                }
+            }
+            degree[v] = unique;
+        }
+    }
+
+    // Turns the CSR arrays back into per-node edge buffers so more edges can be added
+    private void unpack() {
+        if (offsets == null) {
+            return;
+        }
+        int capacity = Math.max(16, nodeCount);
+        successors = new int[capacity][];
+        degree = new int[capacity];
+        for (int v = 0; v < nodeCount; v++) {
+            int count = offsets[v + 1] - offsets[v];
+            if (count > 0) {
+                successors[v] = Arrays.copyOfRange(targets, offsets[v], offsets[v + 1]);
+                degree[v] = count;
+            }
+        }
+        offsets = null;
+        targets = null;
+    }
+
+    /**
+     * This method returns the successors of one node.
+     * @param node - the node id
+     * @return a copy of the node's successors, in ascending order
+     */
+    public int[] getSuccessors(int node) {
+        pack();
+        if (node >= nodeCount) {
+            return NO_EDGES;
+        }
+        return Arrays.copyOfRange(targets, offsets[node], offsets[node + 1]);
+    }
+}
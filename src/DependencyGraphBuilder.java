@@ -0,0 +1,122 @@
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * This class adds the dependencies of many files to a SymbolTable and a DependencyGraph using all cores.
+ * The result is identical to adding every dependency one after the other in file order: a name gets the id
+ * it would have got from that sequence, because ids are handed out in order of each name's first occurrence,
+ * and the edges of the packed graph do not depend on the order they were added in.
+ * The expensive passes over the files only read shared state and run in parallel: the names each file adds
+ * are collected, and after they have been interned file by file, every file's edges are turned into ids,
+ * into a buffer per file. Only interning the new names and appending the id pairs to the graph are sequential.
+ */
+public class DependencyGraphBuilder {
+    /** Below this many files the dependencies are simply added one after the other. */
+    public static final int PARALLEL_THRESHOLD = 64;
+
+    private final SymbolTable symbols; // names of the graph's nodes
+    private final DependencyGraph graph; // the graph the edges are added to
+    private final boolean parallel; // false on a single core, where the extra pass would only cost time
+
+    /**
+     * Constructor for the DependencyGraphBuilder class.
+     * @param symbols - interns the class names, may already hold names from earlier files
+     * @param graph - receives the edges, may already hold edges from earlier files
+     */
+    public DependencyGraphBuilder(SymbolTable symbols, DependencyGraph graph) {
+        this(symbols, graph, Runtime.getRuntime().availableProcessors() > 1);
+    }
+
+    // Lets tests use the parallel passes whatever the machine
+    DependencyGraphBuilder(SymbolTable symbols, DependencyGraph graph, boolean parallel) {
+        this.symbols = symbols;
+        this.graph = graph;
+        this.parallel = parallel;
+    }
+
+    /**
+     * This method adds the dependencies of a list of files, in the order given.
+     * Every class is a node of the graph, even if it depends on nothing; dependencies of a class on itself are ignored.
+     * @param files - for every file, class name -> names of the classes it depends on
+     */
+    public void addAll(List<Map<String, Set<String>>> files) {
+        if (!parallel || files.size() < PARALLEL_THRESHOLD) {
+            for (Map<String, Set<String>> dependencies : files) {
+                dependencies.forEach((from, targets) -> {
+                    int fromId = symbols.intern(from);
+                    for (String to : targets) {
+                        if (!from.equals(to)) {
+                            graph.addEdge(fromId, symbols.intern(to));
+                        }
+                    }
+                });
+            }
+        } else {
+            internInFirstSeenOrder(files);
+            int[][] edges = new int[files.size()][];
+            IntStream.range(0, files.size()).parallel().forEach(file -> edges[file] = toIds(files.get(file)));
+            for (int[] fileEdges : edges) {
+                for (int i = 0; i < fileEdges.length; i += 2) {
+                    graph.addEdge(fileEdges[i], fileEdges[i + 1]);
+                }
+            }
+        }
+        if (symbols.size() > 0) {
+            graph.addNode(symbols.size() - 1); // classes without dependencies
+        }
+    }
+
+    // Interns every name that is not interned yet, in the order a sequential pass would have met them.
+    // Each file's new names are collected in parallel, in the order they occur in the file and without repeats,
+    // so interning the lists file by file hands out the same ids as interning every occurrence would.
+    private void internInFirstSeenOrder(List<Map<String, Set<String>>> files) {
+        String[][] newNames = new String[files.size()][];
+        IntStream.range(0, files.size()).parallel().forEach(file -> newNames[file] = newNamesOf(files.get(file)));
+        for (String[] names : newNames) {
+            for (String name : names) {
+                symbols.intern(name);
+            }
+        }
+    }
+
+    // Returns the names of one file the symbol table does not know yet, in order of first occurrence
+    private String[] newNamesOf(Map<String, Set<String>> dependencies) {
+        LinkedHashSet<String> names = new LinkedHashSet<>();
+        for (Map.Entry<String, Set<String>> entry : dependencies.entrySet()) {
+            String from = entry.getKey();
+            if (symbols.find(from) < 0) {
+                names.add(from);
+            }
+            for (String to : entry.getValue()) {
+                if (!from.equals(to) && symbols.find(to) < 0) {
+                    names.add(to);
+                }
+            }
+        }
+        return names.toArray(new String[0]);
+    }
+
+    // Turns the dependencies of one file into pairs of ids, from at even and to at odd indexes
+    private int[] toIds(Map<String, Set<String>> dependencies) {
+        int[] edges = new int[16];
+        int count = 0;
+        for (Map.Entry<String, Set<String>> entry : dependencies.entrySet()) {
+            int from = symbols.find(entry.getKey());
+            for (String to : entry.getValue()) {
+                if (entry.getKey().equals(to)) {
+                    continue;
+                }
+                if (count == edges.length) {
+                    edges = Arrays.copyOf(edges, count * 2);
+                }
+                edges[count++] = from;
+                edges[count++] = symbols.find(to);
+            }
+        }
+        return Arrays.copyOf(edges, count);
+    }
+}
@@ -1,18 +1,92 @@
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 abstract class Evaluator {
-    protected void traverseFolder(File root, List<File> files) {
-        File[] list = root.listFiles();
-        if (list == null)
-            return;
-
-        for (File f : list) {
-            if (f.isDirectory()) {
-                traverseFolder(f, files);
-            } else if (f.getName().endsWith(".java")) {
-                files.add(f);
-            }
+
+    // Receives source files as they are discovered
+    protected interface SourceConsumer {
+        void accept(File file) throws Exception;
+    }
+
+    // Carries an exception thrown by a SourceConsumer out of the file tree walk
+    private static class ConsumerFailure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        ConsumerFailure(Exception cause) {
+            super(cause);
         }
     }
+
+    // Collects every .java file below root, failing if root is not a directory that can be listed
+    protected void traverseFolder(File root, List<File> files) throws IOException {
+        Path start = root.toPath();
+        if (!Files.isDirectory(start)) {
+            throw new NoSuchFileException(root.getPath(), null, "not a directory");
+        }
+        if (!Files.isReadable(start)) {
+            throw new AccessDeniedException(root.getPath());
+        }
+        walk(root, new SourceFilter(), files::add); // adding to a list throws nothing a ConsumerFailure would carry
+    }
+
+    // Walks the tree below root with NIO and hands every accepted source file to the consumer as soon as it is found,
+    // so work on the first files starts while the rest of the tree is still being listed.
+    // Unreadable directories are skipped, and link cycles are skipped when links are followed.
+    // Returns the number of files handed to the consumer.
+    protected int walkSources(File root, SourceFilter filter, SourceConsumer consumer) throws Exception {
+        try {
+            return walk(root, filter, consumer);
+        } catch (ConsumerFailure e) {
+            throw (Exception) e.getCause();
+        }
+    }
+
+    // Walks the tree as walkSources does, but leaves whatever the consumer throws wrapped in a ConsumerFailure
+    private int walk(File root, SourceFilter filter, SourceConsumer consumer) throws IOException {
+        Path start = root.toPath();
+        Set<FileVisitOption> options = filter.isFollowLinks()
+                ? EnumSet.of(FileVisitOption.FOLLOW_LINKS) : EnumSet.noneOf(FileVisitOption.class);
+        int[] found = {0};
+        Files.walkFileTree(start, options, Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                return filter.acceptsDirectory(start.relativize(dir)) ? FileVisitResult.CONTINUE : FileVisitResult.SKIP_SUBTREE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                // A link to a file is still read, a link to a directory that is not followed is not
+                if (!attrs.isDirectory() && filter.acceptsFile(start.relativize(file)) && Files.isRegularFile(file)) {
+                    try {
+                        consumer.accept(file.toFile());
+                    } catch (Exception e) {
+                        throw new ConsumerFailure(e);
+                    }
+                    found[0]++;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                if (e instanceof FileSystemLoopException) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE; // unreadable entries are skipped, as File.listFiles did
+            }
+        });
+        return found[0];
+    }
 }
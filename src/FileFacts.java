@@ -0,0 +1,224 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class holds everything the analyses need to know about one source file.
+ * Analyzers extract their facts from the AST once; after that the AST can be discarded,
+ * and the facts can be stored in an AnalysisCache and reused while the file is unchanged.
+ */
+public class FileFacts {
+    private final String path; // the file these facts were extracted from
+    private final List<ClassFacts> classes; // classes and interfaces declared in the file, in source order
+    private final Map<String, Set<String>> dependencies; // class FQN -> FQNs of the types it depends on
+    private int[] controlFlowCounts; // counts indexed by ControlFlowCounter.ordinal()
+    private ComplexityHotSpots methodComplexity; // the file's most complex methods and its histogram
+
+    /**
+     * Constructor for the FileFacts class.
+     * @param path - the file the facts describe
+     */
+    public FileFacts(String path) {
+        this.path = path;
+        this.classes = new ArrayList<>();
+        this.dependencies = new LinkedHashMap<>();
+        this.controlFlowCounts = ControlFlowVisitor.newCounts();
+        this.methodComplexity = new ComplexityHotSpots(0);
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * This method records a class or interface declared in the file.
+     * @param declared - the declared class
+     */
+    public void addClass(ClassFacts declared) {
+        classes.add(declared);
+    }
+
+    public List<ClassFacts> getClasses() {
+        return Collections.unmodifiableList(classes);
+    }
+
+    /**
+     * This method records that one class depends on another.
+     * @param from - fully qualified name of the dependent class
+     * @param to - fully qualified name of the class it depends on
+     */
+    public void addDependency(String from, String to) {
+        dependencies.computeIfAbsent(from, k -> new LinkedHashSet<>()).add(to);
+    }
+
+    /**
+     * This method records a class whose dependencies are tracked, even if it turns out to have none.
+     * @param from - fully qualified name of the class
+     */
+    public void addDependent(String from) {
+        dependencies.computeIfAbsent(from, k -> new LinkedHashSet<>());
+    }
+
+    /**
+     * This method adds the classes and dependencies of another file, so several files can be replaced as one.
+     * @param other - the facts of the other file
+     */
+    public void addAll(FileFacts other) {
+        classes.addAll(other.classes);
+        other.dependencies.forEach((from, targets) -> dependencies.computeIfAbsent(from, k -> new LinkedHashSet<>()).addAll(targets));
+    }
+
+    public Map<String, Set<String>> getDependencies() {
+        return Collections.unmodifiableMap(dependencies);
+    }
+
+    public int[] getControlFlowCounts() {
+        return controlFlowCounts;
+    }
+
+    public void setControlFlowCounts(int[] controlFlowCounts) {
+        this.controlFlowCounts = controlFlowCounts;
+    }
+
+    public ComplexityHotSpots getMethodComplexity() {
+        return methodComplexity;
+    }
+
+    public void setMethodComplexity(ComplexityHotSpots methodComplexity) {
+        this.methodComplexity = methodComplexity;
+    }
+
+    /**
+     * This method writes the facts, without the path, to a stream.
+     * @param out - the stream to write to
+     * @throws IOException if writing fails
+     */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(classes.size());
+        for (ClassFacts declared : classes) {
+            declared.write(out);
+        }
+        out.writeInt(dependencies.size());
+        for (Map.Entry<String, Set<String>> entry : dependencies.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeInt(entry.getValue().size());
+            for (String to : entry.getValue()) {
+                out.writeUTF(to);
+            }
+        }
+        out.writeInt(controlFlowCounts.length);
+        for (int count : controlFlowCounts) {
+            out.writeInt(count);
+        }
+        methodComplexity.write(out);
+    }
+
+    /**
+     * This method reads facts written by write().
+     * @param in - the stream to read from
+     * @param path - the file the facts describe
+     * @return the facts
+     * @throws IOException if reading fails or the data does not match this version
+     */
+    public static FileFacts read(DataInputStream in, String path) throws IOException {
+        FileFacts facts = new FileFacts(path);
+        int classCount = in.readInt();
+        for (int i = 0; i < classCount; i++) {
+            facts.classes.add(ClassFacts.read(in));
+        }
+        int dependencyCount = in.readInt();
+        for (int i = 0; i < dependencyCount; i++) {
+            String from = in.readUTF();
+            facts.addDependent(from); // a class without dependencies is still a class of the project
+            int targets = in.readInt();
+            for (int j = 0; j < targets; j++) {
+                facts.addDependency(from, in.readUTF());
+            }
+        }
+        int counters = in.readInt();
+        if (counters != facts.controlFlowCounts.length) {
+            throw new IOException("Cached control flow counters do not match this version");
+        }
+        for (int i = 0; i < counters; i++) {
+            facts.controlFlowCounts[i] = in.readInt();
+        }
+        facts.methodComplexity = ComplexityHotSpots.read(in);
+        return facts;
+    }
+
+    /**
+     * This class describes one class or interface declaration.
+     * Names are fully qualified, including the enclosing classes of nested classes;
+     * the types it extends and implements are resolved to fully qualified names where the file allows it.
+     */
+    public static class ClassFacts {
+        private final String name; // fully qualified name of the class
+        private final boolean isInterface; // true for interfaces
+        private final List<String> extendedTypes; // fully qualified names of the extended types
+        private final List<String> implementedTypes; // fully qualified names of the implemented interfaces
+
+        public ClassFacts(String name, boolean isInterface, List<String> extendedTypes) {
+            this(name, isInterface, extendedTypes, List.of());
+        }
+
+        public ClassFacts(String name, boolean isInterface, List<String> extendedTypes, List<String> implementedTypes) {
+            this.name = name;
+            this.isInterface = isInterface;
+            this.extendedTypes = extendedTypes;
+            this.implementedTypes = implementedTypes;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isInterface() {
+            return isInterface;
+        }
+
+        public List<String> getExtendedTypes() {
+            return extendedTypes;
+        }
+
+        public List<String> getImplementedTypes() {
+            return implementedTypes;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeUTF(name);
+            out.writeBoolean(isInterface);
+            writeNames(out, extendedTypes);
+            writeNames(out, implementedTypes);
+        }
+
+        static ClassFacts read(DataInputStream in) throws IOException {
+            String name = in.readUTF();
+            boolean isInterface = in.readBoolean();
+            List<String> extendedTypes = readNames(in);
+            return new ClassFacts(name, isInterface, extendedTypes, readNames(in));
+        }
+
+        private static void writeNames(DataOutputStream out, List<String> names) throws IOException {
+            out.writeInt(names.size());
+            for (String name : names) {
+                out.writeUTF(name);
+            }
+        }
+
+        private static List<String> readNames(DataInputStream in) throws IOException {
+            int count = in.readInt();
+            List<String> names = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                names.add(in.readUTF());
+            }
+            return names;
+        }
+    }
+}
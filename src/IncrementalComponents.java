@@ -0,0 +1,511 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class keeps the strongly connected components of a directed graph, and a topological order of them, up to
+ * date while edges are added and removed, so that a change to a few dependencies does not mean running Tarjan over
+ * the whole graph again.
+ * The order is kept with the algorithm of Pearce and Kelly: every component has a position, and every edge between
+ * two components leads from a lower position to a higher one. An edge that agrees with the order changes nothing.
+ * An edge u -> v against the order only involves the components positioned between v and u: a forward search from
+ * v and a backward search from u, both bounded by these positions, find the affected region. If the forward search
+ * reaches u, the edge closed a cycle and the components found by both searches merge into one; either way only the
+ * positions of the region are reassigned, so the cost depends on the region rather than on the size of the graph.
+ * Removing an edge inside a component can only split that component, so Tarjan runs again on its nodes alone and
+ * the parts take its place in the order, which shifts the positions after it. Removing an edge between components
+ * changes nothing. Self-loops and duplicate edges are ignored, as in the DependencyGraph.
+ */
+public class IncrementalComponents {
+    private int nodeCount;
+    private int[][] successors; // outgoing edges of every node, in no particular order
+    private int[] outDegree;
+    private int[][] predecessors; // incoming edges of every node, in no particular order
+    private int[] inDegree;
+    private int[] component; // component id of every node
+    private int edgeCount;
+
+    private int[][] members; // nodes of every component id, null for unused ids
+    private int[] size; // number of nodes of every component id
+    private int[] position; // position of every component id in the topological order
+    private int[] freeIds; // component ids that can be reused
+    private int freeCount;
+    private int idLimit; // component ids below this have been used
+    private int componentCount;
+    private int cyclicCount; // components with more than one node
+
+    private int[] atPosition; // component id at every position, -1 for the positions merged components left
+    private int positionLimit; // positions below this have been used
+
+    private int[] forwardMark; // components reached by the forward search, valid for the current stamp
+    private int[] backwardMark; // components reached by the backward search, valid for the current stamp
+    private int stamp;
+    private int[] local; // index of every node within the component being split
+
+    /**
+     * Constructor for the IncrementalComponents class. Computes the components of the initial graph with Tarjan.
+     * @param nodeCount - number of nodes in the graph
+     * @param offsets - start of every node's successors in targets, with offsets[nodeCount] == targets.length
+     * @param targets - successors of all nodes, grouped by node, without self-loops or duplicates
+     */
+    public IncrementalComponents(int nodeCount, int[] offsets, int[] targets) {
+        int capacity = Math.max(16, nodeCount);
+        this.successors = new int[capacity][];
+        this.outDegree = new int[capacity];
+        this.predecessors = new int[capacity][];
+        this.inDegree = new int[capacity];
+        this.component = new int[capacity];
+        this.local = new int[capacity];
+        this.nodeCount = nodeCount;
+        int[] incoming = new int[nodeCount];
+        for (int e = 0; e < targets.length; e++) {
+            incoming[targets[e]]++;
+        }
+        for (int v = 0; v < nodeCount; v++) {
+            successors[v] = Arrays.copyOfRange(targets, offsets[v], offsets[v + 1]);
+            outDegree[v] = successors[v].length;
+            predecessors[v] = new int[incoming[v]];
+        }
+        for (int v = 0; v < nodeCount; v++) {
+            for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                int w = targets[e];
+                predecessors[w][inDegree[w]++] = v;
+            }
+        }
+        this.edgeCount = targets.length;
+
+        // Tarjan completes the components in reverse topological order
+        StronglyConnectedComponents scc = new StronglyConnectedComponents(nodeCount, offsets, targets);
+        int count = scc.getComponentCount();
+        int ids = Math.max(16, count);
+        this.members = new int[ids][];
+        this.size = new int[ids];
+        this.position = new int[ids];
+        this.forwardMark = new int[ids];
+        this.backwardMark = new int[ids];
+        this.atPosition = new int[ids];
+        this.freeIds = new int[16];
+        for (int c = 0; c < count; c++) {
+            members[c] = scc.getMembers(c);
+            size[c] = members[c].length;
+            for (int v : members[c]) {
+                component[v] = c;
+            }
+            if (size[c] > 1) {
+                cyclicCount++;
+            }
+            position[c] = count - 1 - c;
+            atPosition[count - 1 - c] = c;
+        }
+        this.componentCount = count;
+        this.idLimit = count;
+        this.positionLimit = count;
+    }
+
+    /**
+     * This method adds a node without edges, in a component of its own at the end of the order.
+     * @return the id of the new node
+     */
+    public int addNode() {
+        int v = nodeCount++;
+        if (v == successors.length) {
+            int capacity = v * 2;
+            successors = Arrays.copyOf(successors, capacity);
+            outDegree = Arrays.copyOf(outDegree, capacity);
+            predecessors = Arrays.copyOf(predecessors, capacity);
+            inDegree = Arrays.copyOf(inDegree, capacity);
+            component = Arrays.copyOf(component, capacity);
+            local = Arrays.copyOf(local, capacity);
+        }
+        successors[v] = new int[2];
+        predecessors[v] = new int[2];
+        int c = newComponent(new int[] {v}, 1);
+        if (positionLimit == atPosition.length) {
+            placeAt(-1, new int[0]); // makes room, dropping the positions merged components left
+        }
+        position[c] = positionLimit;
+        atPosition[positionLimit++] = c;
+        return v;
+    }
+
+    /**
+     * This method returns whether adding an edge would close a cycle between components, without adding it.
+     * Like addEdge, it only searches the components positioned between the two nodes.
+     * @param from - the node the edge would leave
+     * @param to - the node the edge would enter
+     * @return true if the edge would merge components
+     */
+    public boolean wouldCloseCycle(int from, int to) {
+        int cu = component[from];
+        int cv = component[to];
+        if (cu == cv || position[cu] < position[cv]) {
+            return false;
+        }
+        int mark = nextStamp();
+        search(cv, true, position[cu], mark);
+        return forwardMark[cu] == mark;
+    }
+
+    /**
+     * This method adds an edge, merges the components it closes a cycle through and keeps the order.
+     * @param from - the node the edge leaves
+     * @param to - the node the edge enters
+     * @return true if components were merged, that is if the edge created a new cycle between components
+     */
+    public boolean addEdge(int from, int to) {
+        if (from == to || hasEdge(from, to)) {
+            return false;
+        }
+        successors[from] = append(successors[from], outDegree[from]++, to);
+        predecessors[to] = append(predecessors[to], inDegree[to]++, from);
+        edgeCount++;
+        int cu = component[from];
+        int cv = component[to];
+        if (cu == cv || position[cu] < position[cv]) {
+            return false; // the order already agrees with the edge
+        }
+
+        // The region: components reachable from the target and components reaching the source, between the two
+        int mark = nextStamp();
+        List<Integer> forward = search(cv, true, position[cu], mark);
+        boolean closesCycle = forwardMark[cu] == mark;
+        List<Integer> backward = search(cu, false, position[cv], mark);
+        List<Integer> positions = new ArrayList<>(forward.size() + backward.size());
+        for (int c : forward) {
+            positions.add(position[c]);
+        }
+        for (int c : backward) {
+            if (forwardMark[c] != mark) {
+                positions.add(position[c]);
+            }
+        }
+        positions.sort(null);
+        forward.sort((a, b) -> Integer.compare(position[a], position[b]));
+        backward.sort((a, b) -> Integer.compare(position[a], position[b]));
+
+        // Components reaching the source go first, then those on the new cycle merged into one, then the rest.
+        // The merged component takes the first of the positions the cycle had, the others are left empty, so that
+        // the components after the cycle keep positions above every component outside the region they followed.
+        List<Integer> order = new ArrayList<>(positions.size());
+        List<Integer> onCycle = new ArrayList<>();
+        for (int c : backward) {
+            if (forwardMark[c] == mark) {
+                onCycle.add(c);
+            } else {
+                order.add(c);
+            }
+        }
+        if (closesCycle) {
+            order.add(merge(onCycle));
+            for (int i = 1; i < onCycle.size(); i++) {
+                order.add(-1);
+            }
+        }
+        for (int c : forward) {
+            if (backwardMark[c] != mark) {
+                order.add(c);
+            }
+        }
+        for (int i = 0; i < positions.size(); i++) {
+            int p = positions.get(i);
+            int c = order.get(i);
+            atPosition[p] = c;
+            if (c >= 0) {
+                position[c] = p;
+            }
+        }
+        return closesCycle;
+    }
+
+    // Finds the components reachable from start, forward or backward, without leaving the region given by bound
+    private List<Integer> search(int start, boolean forward, int bound, int mark) {
+        int[] marks = forward ? forwardMark : backwardMark;
+        List<Integer> found = new ArrayList<>();
+        found.add(start);
+        marks[start] = mark;
+        for (int i = 0; i < found.size(); i++) {
+            int c = found.get(i);
+            for (int m = 0; m < size[c]; m++) {
+                int v = members[c][m];
+                int[] edges = forward ? successors[v] : predecessors[v];
+                int degree = forward ? outDegree[v] : inDegree[v];
+                for (int e = 0; e < degree; e++) {
+                    int next = component[edges[e]];
+                    if (marks[next] != mark && (forward ? position[next] <= bound : position[next] >= bound)) {
+                        marks[next] = mark;
+                        found.add(next);
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * This method removes an edge and splits the component it held together, if any.
+     * @param from - the node the edge leaves
+     * @param to - the node the edge enters
+     * @return true if a component was split, that is if the edge was needed for a cycle
+     */
+    public boolean removeEdge(int from, int to) {
+        if (!remove(successors[from], outDegree[from], to)) {
+            return false;
+        }
+        outDegree[from]--;
+        remove(predecessors[to], inDegree[to], from);
+        inDegree[to]--;
+        edgeCount--;
+        if (component[from] != component[to]) {
+            return false;
+        }
+        return split(component[from]);
+    }
+
+    // Runs Tarjan on the nodes of one component and the edges between them, and puts the parts in its place
+    private boolean split(int c) {
+        int[] nodes = Arrays.copyOf(members[c], size[c]);
+        for (int i = 0; i < nodes.length; i++) {
+            local[nodes[i]] = i;
+        }
+        int[] offsets = new int[nodes.length + 1];
+        int[] targets = new int[16];
+        int count = 0;
+        for (int i = 0; i < nodes.length; i++) {
+            int v = nodes[i];
+            for (int e = 0; e < outDegree[v]; e++) {
+                int w = successors[v][e];
+                if (component[w] == c) {
+                    targets = append(targets, count++, local[w]);
+                }
+            }
+            offsets[i + 1] = count;
+        }
+        StronglyConnectedComponents parts = new StronglyConnectedComponents(nodes.length, offsets, targets);
+        int partCount = parts.getComponentCount();
+        if (partCount == 1) {
+            return false;
+        }
+        int at = position[c];
+        members[c] = null;
+        size[c] = 0;
+        freeIds = append(freeIds, freeCount++, c);
+        componentCount--;
+        cyclicCount--;
+        // Tarjan completes the parts in reverse topological order
+        int[] ordered = new int[partCount];
+        for (int p = 0; p < partCount; p++) {
+            int[] part = parts.getMembers(p);
+            int[] partNodes = new int[part.length];
+            for (int i = 0; i < part.length; i++) {
+                partNodes[i] = nodes[part[i]];
+            }
+            ordered[partCount - 1 - p] = newComponent(partNodes, part.length);
+        }
+        placeAt(at, ordered);
+        return true;
+    }
+
+    // Rebuilds the order without the positions merged components left, putting the given components at a position
+    private void placeAt(int at, int[] placed) {
+        int[] order = new int[Math.max(16, componentCount * 2)];
+        int count = 0;
+        for (int p = 0; p < positionLimit; p++) {
+            if (p == at) {
+                for (int c : placed) {
+                    order[count++] = c;
+                }
+            } else if (atPosition[p] >= 0) {
+                order[count++] = atPosition[p];
+            }
+        }
+        for (int p = 0; p < count; p++) {
+            position[order[p]] = p;
+        }
+        atPosition = order;
+        positionLimit = count;
+    }
+
+    // Moves the nodes of every given component into the largest of them, which keeps its id
+    private int merge(List<Integer> merged) {
+        int target = merged.get(0);
+        for (int c : merged) {
+            if (size[c] > size[target]) {
+                target = c;
+            }
+            if (size[c] > 1) {
+                cyclicCount--;
+            }
+        }
+        for (int c : merged) {
+            if (c == target) {
+                continue;
+            }
+            for (int i = 0; i < size[c]; i++) {
+                int v = members[c][i];
+                component[v] = target;
+                members[target] = append(members[target], size[target]++, v);
+            }
+            members[c] = null;
+            size[c] = 0;
+            freeIds = append(freeIds, freeCount++, c);
+            componentCount--;
+        }
+        cyclicCount++;
+        return target;
+    }
+
+    // Gives a group of nodes a component id of its own, without a position yet
+    private int newComponent(int[] nodes, int count) {
+        int id;
+        if (freeCount > 0) {
+            id = freeIds[--freeCount];
+        } else {
+            if (idLimit == members.length) {
+                int capacity = idLimit * 2;
+                members = Arrays.copyOf(members, capacity);
+                size = Arrays.copyOf(size, capacity);
+                position = Arrays.copyOf(position, capacity);
+                forwardMark = Arrays.copyOf(forwardMark, capacity);
+                backwardMark = Arrays.copyOf(backwardMark, capacity);
+            }
+            id = idLimit++;
+        }
+        members[id] = nodes;
+        size[id] = count;
+        for (int i = 0; i < count; i++) {
+            component[nodes[i]] = id;
+        }
+        if (count > 1) {
+            cyclicCount++;
+        }
+        componentCount++;
+        return id;
+    }
+
+    private int nextStamp() {
+        if (stamp == Integer.MAX_VALUE) {
+            Arrays.fill(forwardMark, 0);
+            Arrays.fill(backwardMark, 0);
+            stamp = 0;
+        }
+        return ++stamp;
+    }
+
+    private static int[] append(int[] array, int index, int value) {
+        if (index == array.length) {
+            array = Arrays.copyOf(array, Math.max(2, index * 2));
+        }
+        array[index] = value;
+        return array;
+    }
+
+    // Removes one occurrence of a value from the first count entries by moving the last entry into its place
+    private static boolean remove(int[] array, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (array[i] == value) {
+                array[i] = array[count - 1];
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * This method returns whether an edge is in the graph.
+     * @param from - the node the edge leaves
+     * @param to - the node the edge enters
+     * @return true if the edge was added and not removed since
+     */
+    public boolean hasEdge(int from, int to) {
+        for (int i = 0; i < outDegree[from]; i++) {
+            if (successors[from][i] == to) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * This method returns the successors of a node.
+     * @param node - the node id
+     * @return the nodes it has an edge to, in no particular order
+     */
+    public int[] getSuccessors(int node) {
+        return Arrays.copyOf(successors[node], outDegree[node]);
+    }
+
+    /**
+     * This method returns the component a node belongs to. Ids of merged and split components are reused.
+     * @param node - the node id
+     * @return the component id
+     */
+    public int getComponent(int node) {
+        return component[node];
+    }
+
+    /**
+     * This method returns the nodes of a component.
+     * @param id - the component id
+     * @return the node ids, in no particular order
+     */
+    public int[] getMembers(int id) {
+        return Arrays.copyOf(members[id], size[id]);
+    }
+
+    /**
+     * This method returns whether a component contains a cycle.
+     * @param id - the component id
+     * @return true if the component has more than one node
+     */
+    public boolean isCyclic(int id) {
+        return size[id] > 1;
+    }
+
+    /**
+     * This method returns the components in topological order: every edge between two components leads from
+     * one earlier in the order to one later in the order.
+     * @return the component ids
+     */
+    public int[] getOrder() {
+        int[] order = new int[componentCount];
+        int count = 0;
+        for (int p = 0; p < positionLimit; p++) {
+            if (atPosition[p] >= 0) {
+                order[count++] = atPosition[p];
+            }
+        }
+        return order;
+    }
+
+    /**
+     * This method returns the number of nodes.
+     * @return the number of nodes
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * This method returns the number of edges.
+     * @return the number of edges
+     */
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * This method returns the number of components.
+     * @return the number of components
+     */
+    public int getComponentCount() {
+        return componentCount;
+    }
+
+    /**
+     * This method returns the number of components that contain a cycle.
+     * @return the number of cyclic components
+     */
+    public int getCyclicCount() {
+        return cyclicCount;
+    }
+}
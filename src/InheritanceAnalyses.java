@@ -1,148 +1,455 @@
 
 import java.io.File;
-import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
 
 import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.NodeList;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
 import com.github.javaparser.ast.visitor.VoidVisitor;
 import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
-import com.github.javaparser.utils.SourceRoot;
 
 /**
  * This class is responsible for analyzing the inheritance hierarchy of a directory of Java source files.
- * In particular, it finds the maximum breadth of the inheritance hierarchy and the average branching factor.
+ * In particular, it finds the maximum breadth of the inheritance hierarchy and the average branching factor,
+ * and the depth of inheritance and number of descendants of every class.
+ * Classes are indexed by fully qualified name, so classes with the same simple name in different packages
+ * or enclosing classes are kept apart. Every name is interned once in a SymbolTable, so the index, the
+ * subclass sets and the implementor sets all share a single String for each class.
  * @author 190031593
  */
-public class InheritanceAnalyses {
+public class InheritanceAnalyses implements Analyzer {
     private  HashMap<String, SubClassCollection> parentChildMap; // key is parent class, value is set of children as SubClassCollection object
-    private List<CompilationUnit> asts; //list of the ASTs for the files in the directory
+    private HashMap<String, SubClassCollection> implementorMap; // key is interface, value is set of implementing classes
+    private HashMap<String, SubClassCollection> subInterfaceMap; // key is interface, value is set of interfaces extending it
+    private SymbolTable types; // fully qualified names of all classes and interfaces, interned
+    private List<FileFacts.ClassFacts> classes; //classes declared in the files accepted so far
     private double avgBranchingFactor; //average branching factor for the inheritance hierarchy
     private int maxBreadth;  //maximum breadth of the inheritance hierarchy
+    private int maxDepth; //maximum depth of inheritance of any class
+    private boolean depthsComputed; //true once depths and descendants are known for the current hierarchy
     private double numberOfParentClasses; //number of parent classes
     private double numberOfSubClasses; //number of subclasses
+    private Map<String, FileFacts.ClassFacts> declared; //classes of the files updated one by one, null unless updateFile is used
+    private Map<String, Set<String>> extenders; //type name -> declared classes that extend it, for updateFile
+    private Map<String, Set<String>> implementers; //type name -> declared classes that implement it, for updateFile
+    private Map<String, Set<String>> interfaceExtenders; //type name -> declared interfaces that extend it, for updateFile
+    private TreeMap<Integer, Integer> breadths; //number of children -> number of classes with that many, for updateFile
     /**
      * Constructor for the InheritanceAnalyses class.
-     * @param dir - the directory containing the Java source files to be analyzed
+     * The hierarchy is filled in by a ParsePipeline that this analysis has been registered with.
      */
-    public InheritanceAnalyses(String dir) {
+    public InheritanceAnalyses() {
         this.parentChildMap = new HashMap<>();
-        this.asts = convertSourceCodeToAsts(dir);
+        this.implementorMap = new HashMap<>();
+        this.subInterfaceMap = new HashMap<>();
+        this.types = new SymbolTable();
+        this.classes = new ArrayList<>();
         this.avgBranchingFactor = 0;
         this.maxBreadth = 0;
+        this.maxDepth = 0;
+        this.depthsComputed = false;
         this.numberOfParentClasses = 0;
         this.numberOfSubClasses = 0;
+    }
 
-        getAllClasses();
-        findChildrenForAllClasses();
+    /**
+     * Constructor for the InheritanceAnalyses class.
+     * @param dir - the directory containing the Java source files to be analyzed
+     */
+    public InheritanceAnalyses(String dir) {
+        this();
+        convertSourceCodeToAsts(dir);
     }
 
     /**
-     * This method converts the source code in the directory to ASTs.
+     * This method parses the source code in the directory and collects the hierarchy from it.
+     * Files that cannot be parsed are left out, and reported, so one syntax error does not lose the whole hierarchy.
      * @param dir - the directory containing the Java source files
-     * @return a list of CompilationUnits, each representing the AST for a file in the directory
      */
-    private List<CompilationUnit> convertSourceCodeToAsts(String dir) {
+    private void convertSourceCodeToAsts(String dir) {
         File dirFile = new File(dir);
         if (!dirFile.exists()) {
             System.out.println("This directory does not exsit!");
             System.exit(0);
         }
-        SourceRoot root = new SourceRoot(dirFile.toPath());
         try {
-            root.tryToParse();
-        } catch (IOException e) {
+            ParsePipeline pipeline = new ParsePipeline().setSkipUnparsable(true).register(this);
+            pipeline.run(dirFile);
+            for (File skipped : pipeline.getSkippedFiles().keySet()) {
+                System.out.println("Skipped " + skipped + ", which could not be parsed.");
+            }
+        } catch (Exception e) {
             System.out.println("Something went wrong when trying to parse source files." + e);
         }
-        return root.getCompilationUnits();
+    }
+
+    /**
+     * This method records the classes declared in a file and the types they extend and implement.
+     * @param ast - Compilation Unit - the AST for the file
+     * @param facts - the facts for the file
+     */
+    @Override
+    public void extract(CompilationUnit ast, FileFacts facts) {
+        VoidVisitor<FileFacts> classCollector = new ClassCollector(ast);
+        classCollector.visit(ast, facts);
+    }
 
+    /**
+     * This method stores the classes of a file so the hierarchy can be built once every class is known.
+     * @param facts - the facts for the file
+     */
+    @Override
+    public void accept(FileFacts facts) {
+        classes.addAll(facts.getClasses());
     }
 
     /**
-     * This method gets the name of all classes contained in the directory/amongst all ASTs.
+     * This method builds the parentChildMap once every file has been accepted.
+     * The class facts are released afterwards, only the hierarchy is kept.
+     */
+    @Override
+    public void finish() {
+        getAllClasses();
+        findChildrenForAllClasses();
+        classes = new ArrayList<>();
+        depthsComputed = false;
+    }
+
+    /**
+     * This method adds the name of all classes contained in the directory to the parentChildMap,
+     * and the name of all interfaces to the implementorMap and the subInterfaceMap.
      */
     private void getAllClasses() {
-        asts.forEach(ast -> getAllClassesInFile(ast));
+        for (FileFacts.ClassFacts declared : classes) {
+            String name = intern(declared.getName());
+            if (!declared.isInterface()) {
+                parentChildMap.put(name, new SubClassCollection(name, false));
+            } else {
+                implementorMap.put(name, new SubClassCollection(name, false));
+                subInterfaceMap.put(name, new SubClassCollection(name, false));
+            }
+        }
     }
 
     /**
-     * This method counts the number of subclass each class in the directory has. 
+     * This method adds every class to the set of children of the class it extends,
+     * and to the set of implementors of every interface it implements.
+     * Every interface is added to the set of sub-interfaces of the interfaces it extends.
+     * Classes without a parent are base classes.
      */
     private void findChildrenForAllClasses() {
-       // asts.forEach(ast -> findAllChildrenForClass(ast));
-      //System.out.println(asts.get(0));
-        for(int i = 0; i < asts.size() ;i++){
-           // System.out.println(i);
-            findAllChildrenForClass(asts.get(i));
+        for (FileFacts.ClassFacts child : classes) {
+            if (child.isInterface()) {
+                String interfaceName = intern(child.getName());
+                child.getExtendedTypes().forEach((parent) -> {
+                    SubClassCollection parentCollection = subInterfaceMap.get(parent);
+                    if (parentCollection == null) return; // Happens if the parent is from an external library
+                    parentCollection.addSubClass(interfaceName);
+                });
+                continue;
+            }
+            String childName = intern(child.getName());
+            if (!child.getExtendedTypes().isEmpty()) {
+                child.getExtendedTypes().forEach((parent) -> {
+                    SubClassCollection parentCollection = parentChildMap.get(parent);
+                    if(parentCollection == null) return; // Happens if parent is from external library
+                    parentCollection.addSubClass(childName); //adds the child to the parent's set of children
+                    parentCollection.setIsParentClass(true); //sets the parent as a base class
+                });
+            }else{
+                parentChildMap.get(childName).setIsParentClass(true); //sets the class as a base class if it has no parent
+            }
+            child.getImplementedTypes().forEach((implemented) -> {
+                SubClassCollection interfaceCollection = implementorMap.get(implemented);
+                if (interfaceCollection == null) return; // Happens if the interface is from an external library
+                interfaceCollection.addSubClass(childName);
+                interfaceCollection.setIsParentClass(true);
+            });
         }
     }
 
     /**
-     * This method gets the name of all classes in a file and adds them to the parentChildMap.
-     * 
-     * @param ast - Compilation Unit - the AST for the file
+     * This method replaces the classes of a file that changed and brings the hierarchy and its metrics up to date,
+     * without building it again: only the changed classes, their parents and their children are revisited.
+     * Afterwards the maximum breadth, the average branching factor and the numbers of parent classes and subclasses
+     * are the same as for a hierarchy built from the current files; depths and descendants are computed again when
+     * they are next asked for. A hierarchy is either built with accept and finish or file by file with this method.
+     * Files that changed together should be replaced at once, with their facts merged by FileFacts.addAll,
+     * so that a class moving from one of them to another is not removed after it was added.
+     * @param removed - the earlier facts of the file, null for a new file
+     * @param added - the new facts of the file, null for a deleted file
      */
-    private void getAllClassesInFile(CompilationUnit ast) {
-        VoidVisitor<HashMap<String, SubClassCollection>> classCollector = new ClassCollector();
-        classCollector.visit(ast, parentChildMap);
+    public void updateFile(FileFacts removed, FileFacts added) {
+        if (declared == null) {
+            if (!parentChildMap.isEmpty() || !implementorMap.isEmpty()) {
+                throw new IllegalStateException("A hierarchy built by finish cannot be updated file by file");
+            }
+            declared = new HashMap<>();
+            extenders = new HashMap<>();
+            implementers = new HashMap<>();
+            interfaceExtenders = new HashMap<>();
+            breadths = new TreeMap<>();
+        }
+        List<FileFacts.ClassFacts> before = removed == null ? List.of() : removed.getClasses();
+        List<FileFacts.ClassFacts> after = added == null ? List.of() : added.getClasses();
+
+        // The metrics of every class whose children or parents may change are taken out, then added back
+        Set<String> affected = new HashSet<>();
+        for (FileFacts.ClassFacts changed : before) {
+            collectAffected(changed, affected);
+        }
+        for (FileFacts.ClassFacts changed : after) {
+            collectAffected(changed, affected);
+        }
+        affected.forEach(name -> count(name, -1));
+        before.forEach(this::removeClass);
+        after.forEach(this::addClass);
+        affected.forEach(name -> count(name, 1));
+
+        maxBreadth = breadths.isEmpty() ? 0 : breadths.lastKey();
+        avgBranchingFactor = Math.round(numberOfSubClasses / numberOfParentClasses * 100.0) / 100.0;
+        depthsComputed = false;
     }
 
     /**
-     * This adaptee class is used to collect all class declarations/ class names within an AST.
-     * It is used to initialise the parentChildMap.
+     * This method collects the classes whose metrics may change with a class: itself, its parents and its children.
+     * @param changed - the class that is added or removed
+     * @param affected - receives the names of the classes
      */
-    private static class ClassCollector extends VoidVisitorAdapter<HashMap<String, SubClassCollection>> {
+    private void collectAffected(FileFacts.ClassFacts changed, Set<String> affected) {
+        affected.add(changed.getName());
+        affected.addAll(changed.getExtendedTypes());
+        affected.addAll(extenders.getOrDefault(changed.getName(), Set.of()));
+    }
 
-        @Override
-        public void visit(ClassOrInterfaceDeclaration parent, HashMap<String, SubClassCollection> map) {
-            super.visit(parent, map);
-            if(parent.isInterface()) {
-                return;
+    /**
+     * This method adds the metrics of a class to the totals of the hierarchy, or takes them out.
+     * @param name - the name of the class
+     * @param sign - 1 to add the metrics, -1 to take them out
+     */
+    private void count(String name, int sign) {
+        SubClassCollection node = parentChildMap.get(name);
+        if (node == null) {
+            return;
+        }
+        int children = node.getNumberOfSubClasses();
+        if (children > 0) {
+            breadths.merge(children, sign, (a, b) -> a + b == 0 ? null : a + b);
+        }
+        if (node.isParentClass()) {
+            numberOfParentClasses += sign;
+        }
+        for (String parent : declared.get(name).getExtendedTypes()) {
+            if (parentChildMap.containsKey(parent)) {
+                numberOfSubClasses += sign; // a class counts once, whichever of its parents are in the directory
+                break;
             }
-            map.put(parent.getNameAsString(),new SubClassCollection(parent.getNameAsString(), false));
         }
     }
 
     /**
-     * This adapter class is used to collect all child classes present within an AST for its associated parent class within parentChildMap.
-     * It is used to populate the parentChildMap. 
-     * 
+     * This method adds a class to the hierarchy, as a child of the types it extends and implements.
+     * An interface is added as a sub-interface of the interfaces it extends.
+     * @param added - the class
      */
-    private static class ChildCollector extends VoidVisitorAdapter<HashMap<String, SubClassCollection>> {
-
-        @Override
-        public void visit(ClassOrInterfaceDeclaration child, HashMap<String,  SubClassCollection> map) {
-            super.visit(child, map);
-            if(child.isInterface()){
-                return;
+    private void addClass(FileFacts.ClassFacts added) {
+        String name = intern(added.getName());
+        declared.put(name, added);
+        SubClassCollection node = new SubClassCollection(name, false);
+        if (added.isInterface()) {
+            implementers.getOrDefault(name, Set.of()).forEach(node::addSubClass);
+            node.setIsParentClass(node.getNumberOfSubClasses() > 0);
+            implementorMap.put(name, node);
+            SubClassCollection subInterfaces = new SubClassCollection(name, false);
+            interfaceExtenders.getOrDefault(name, Set.of()).forEach(subInterfaces::addSubClass);
+            subInterfaceMap.put(name, subInterfaces);
+            for (String parent : added.getExtendedTypes()) {
+                interfaceExtenders.computeIfAbsent(parent, key -> new HashSet<>()).add(name);
+                SubClassCollection parentCollection = subInterfaceMap.get(parent);
+                if (parentCollection != null) {
+                    parentCollection.addSubClass(name);
+                }
+            }
+            return;
+        }
+        extenders.getOrDefault(name, Set.of()).forEach(node::addSubClass);
+        node.setIsParentClass(added.getExtendedTypes().isEmpty() || node.getNumberOfSubClasses() > 0);
+        parentChildMap.put(name, node);
+        for (String parent : added.getExtendedTypes()) {
+            extenders.computeIfAbsent(parent, key -> new HashSet<>()).add(name);
+            SubClassCollection parentCollection = parentChildMap.get(parent);
+            if (parentCollection != null) {
+                parentCollection.addSubClass(name);
+                parentCollection.setIsParentClass(true);
+            }
+        }
+        for (String implemented : added.getImplementedTypes()) {
+            implementers.computeIfAbsent(implemented, key -> new HashSet<>()).add(name);
+            SubClassCollection interfaceCollection = implementorMap.get(implemented);
+            if (interfaceCollection != null) {
+                interfaceCollection.addSubClass(name);
+                interfaceCollection.setIsParentClass(true);
             }
+        }
+    }
 
-            if (!child.getExtendedTypes().isEmpty()) {
-                child.getExtendedTypes().forEach((cl) -> {
-                    String parent = cl.getNameAsString(); //parent class name
-                    SubClassCollection parentCollection = map.get(parent);
-                    if(parentCollection == null) return; // Happens if parent is from external library
-                    parentCollection.addSubClass(child.getNameAsString()); //adds the child to the parent's set of children
-                    parentCollection.setIsParentClass(true); //sets the parent as a base class
-                }); 
-            }else{
-                map.get(child.getNameAsString()).setIsParentClass(true); //sets the class as a base class if it has no parent
+    /**
+     * This method removes a class from the hierarchy and from the children of the types it extends and implements.
+     * @param removed - the class
+     */
+    private void removeClass(FileFacts.ClassFacts removed) {
+        String name = removed.getName();
+        declared.remove(name);
+        if (removed.isInterface()) {
+            implementorMap.remove(name);
+            subInterfaceMap.remove(name);
+            for (String parent : removed.getExtendedTypes()) {
+                removeFrom(interfaceExtenders, parent, name);
+                SubClassCollection parentCollection = subInterfaceMap.get(parent);
+                if (parentCollection != null) {
+                    parentCollection.removeSubClass(name);
+                }
+            }
+            return;
+        }
+        parentChildMap.remove(name);
+        for (String parent : removed.getExtendedTypes()) {
+            removeFrom(extenders, parent, name);
+            SubClassCollection parentCollection = parentChildMap.get(parent);
+            if (parentCollection != null) {
+                parentCollection.removeSubClass(name);
+                parentCollection.setIsParentClass(declared.get(parent).getExtendedTypes().isEmpty()
+                        || parentCollection.getNumberOfSubClasses() > 0);
+            }
+        }
+        for (String implemented : removed.getImplementedTypes()) {
+            removeFrom(implementers, implemented, name);
+            SubClassCollection interfaceCollection = implementorMap.get(implemented);
+            if (interfaceCollection != null) {
+                interfaceCollection.removeSubClass(name);
+                interfaceCollection.setIsParentClass(interfaceCollection.getNumberOfSubClasses() > 0);
             }
-      
         }
     }
 
+    private static void removeFrom(Map<String, Set<String>> index, String key, String name) {
+        Set<String> names = index.get(key);
+        if (names != null && names.remove(name) && names.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    /**
+     * This method returns the single interned instance of a fully qualified class name.
+     * @param name - the fully qualified name
+     * @return the interned name
+     */
+    private String intern(String name) {
+        return types.name(types.intern(name));
+    }
+
     /**
-     * This method finds all children for a class and adds them to the parentChildMap.
-     * @param ast - Compilation Unit - the AST for the class source file
+     * This adaptee class is used to collect all class declarations within an AST, together with the classes they extend
+     * and the interfaces they implement. It is used to initialise the parentChildMap and the implementorMap.
+     * Type names are resolved the way the compiler looks them up: classes nested in an enclosing class first,
+     * then the other classes declared in the file, then single-type imports, and finally the same package.
      */
-    private void findAllChildrenForClass(CompilationUnit ast) {
-        VoidVisitor<HashMap<String,  SubClassCollection>> childCollector = new ChildCollector();
-        childCollector.visit(ast, parentChildMap);
+    private static class ClassCollector extends VoidVisitorAdapter<FileFacts> {
+        private final String packageName; // package of the file, empty for the default package
+        private final Map<String, String> importMap; // simple name -> fully qualified name of single-type imports
+        private final Set<String> declaredTypes; // fully qualified names of all classes declared in the file
+
+        ClassCollector(CompilationUnit ast) {
+            this.packageName = ast.getPackageDeclaration().map(pd -> pd.getNameAsString()).orElse("");
+            this.importMap = new HashMap<>();
+            for (ImportDeclaration importDecl : ast.getImports()) {
+                if (!importDecl.isAsterisk() && !importDecl.isStatic()) {
+                    String importName = importDecl.getNameAsString();
+                    importMap.put(importName.substring(importName.lastIndexOf('.') + 1), importName);
+                }
+            }
+            this.declaredTypes = new HashSet<>();
+            for (TypeDeclaration<?> type : ast.findAll(TypeDeclaration.class)) {
+                type.getFullyQualifiedName().ifPresent(declaredTypes::add);
+            }
+        }
+
+        @Override
+        public void visit(ClassOrInterfaceDeclaration declaration, FileFacts facts) {
+            super.visit(declaration, facts);
+            String name = declaration.getFullyQualifiedName().orElse(declaration.getNameAsString()); // local classes have no FQN
+            facts.addClass(new FileFacts.ClassFacts(name, declaration.isInterface(),
+                    resolveAll(declaration.getExtendedTypes(), declaration), resolveAll(declaration.getImplementedTypes(), declaration)));
+        }
+
+        /**
+         * This method resolves the names of the types in an extends or implements clause.
+         * @param written - the types as written
+         * @param declaration - the class the clause belongs to
+         * @return the fully qualified names
+         */
+        private List<String> resolveAll(NodeList<ClassOrInterfaceType> written, ClassOrInterfaceDeclaration declaration) {
+            List<String> resolved = new ArrayList<>(written.size());
+            for (ClassOrInterfaceType type : written) {
+                resolved.add(resolveFQN(type.getNameWithScope(), declaration));
+            }
+            return resolved;
+        }
+
+        /**
+         * This method resolves a possibly qualified type name, such as Outer.Inner, to a fully qualified name.
+         * @param name - the name as written, without type arguments
+         * @param declaration - the class the name is used in
+         * @return the fully qualified name
+         */
+        private String resolveFQN(String name, ClassOrInterfaceDeclaration declaration) {
+            int dot = name.indexOf('.');
+            String first = dot < 0 ? name : name.substring(0, dot);
+            String rest = dot < 0 ? "" : name.substring(dot);
+            // 1. A class nested in one of the enclosing classes, innermost first
+            for (TypeDeclaration<?> outer = enclosingType(declaration); outer != null; outer = enclosingType(outer)) {
+                String candidate = outer.getFullyQualifiedName().orElse(null);
+                if (candidate != null && declaredTypes.contains(candidate + "." + first)) {
+                    return candidate + "." + first + rest;
+                }
+            }
+            // 2. Another top level class declared in the same file
+            String samePackage = packageName.isEmpty() ? first : packageName + "." + first;
+            if (declaredTypes.contains(samePackage)) {
+                return samePackage + rest;
+            }
+            // 3. A single-type import
+            if (importMap.containsKey(first)) {
+                return importMap.get(first) + rest;
+            }
+            // 4. Already fully qualified, by convention package names start in lower case
+            if (dot > 0 && Character.isLowerCase(first.charAt(0))) {
+                return name;
+            }
+            // 5. The same package
+            return packageName.isEmpty() ? name : packageName + "." + name;
+        }
+
+        private static TypeDeclaration<?> enclosingType(TypeDeclaration<?> type) {
+            for (Node parent = type.getParentNode().orElse(null); parent != null; parent = parent.getParentNode().orElse(null)) {
+                if (parent instanceof TypeDeclaration) {
+                    return (TypeDeclaration<?>) parent;
+                }
+            }
+            return null;
+        }
     }
 
     /**
@@ -198,6 +505,121 @@ public class InheritanceAnalyses {
        // System.out.println("Average branching factor for the inheritence hierarchy is : " + avgBranchingFactor +" children per class");
         return avgBranchingFactor;
     }
+    /**
+     * This method finds the classes deepest in the inheritance hierarchy in the directory.
+     * @return the classes with the maximum depth of inheritance, empty if no class has a parent in the directory
+     */
+    public Map<String, SubClassCollection> findMaximumDepth() {
+        computeDepthsAndDescendants();
+        Map<String, SubClassCollection> deepest = new HashMap<>();
+        if (maxDepth == 0) {
+            return deepest;
+        }
+        for (Entry<String, SubClassCollection> entry : parentChildMap.entrySet()) {
+            if (entry.getValue().getDepth() == maxDepth) {
+                deepest.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return deepest;
+    }
+
+    /**
+     * This method returns the classes of the directory, without interfaces.
+     * @return the fully qualified class names, sorted
+     */
+    public List<String> getClassNames() {
+        List<String> names = new ArrayList<>(parentChildMap.keySet());
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * This method returns the number of direct subclasses of a class in the directory.
+     * @param className - the name of the class
+     * @return the number of children, or -1 if the class is not in the directory
+     */
+    public int getNumberOfChildren(String className) {
+        SubClassCollection node = parentChildMap.get(className);
+        return node == null ? -1 : node.getNumberOfSubClasses();
+    }
+
+    /**
+     * This method returns the depth of inheritance of a class: the number of its ancestors in the directory.
+     * @param className - the name of the class
+     * @return the depth of inheritance, or -1 if the class is not in the directory
+     */
+    public int getDepthOfInheritance(String className) {
+        computeDepthsAndDescendants();
+        SubClassCollection node = parentChildMap.get(className);
+        return node == null ? -1 : node.getDepth();
+    }
+
+    /**
+     * This method returns the number of direct and indirect subclasses of a class in the directory.
+     * @param className - the name of the class
+     * @return the number of descendants, or -1 if the class is not in the directory
+     */
+    public int getNumberOfDescendants(String className) {
+        computeDepthsAndDescendants();
+        SubClassCollection node = parentChildMap.get(className);
+        return node == null ? -1 : node.getNumberOfDescendants();
+    }
+
+    /**
+     * This method computes the depth of inheritance and the number of descendants of every class in one pass.
+     * Classes are visited parents first, starting from the classes without a parent in the directory, so each
+     * depth is the parent's depth plus one. Walking the same order backwards visits children first, so each class
+     * adds its descendants to its parent. Both passes are linear and iterative, however deep the hierarchy is.
+     * The results are kept in the SubClassCollection of each class until the hierarchy changes.
+     */
+    private void computeDepthsAndDescendants() {
+        if (depthsComputed) {
+            return;
+        }
+        HashSet<String> hasParent = new HashSet<>();
+        parentChildMap.forEach((name, node) -> hasParent.addAll(node.getSubClasses()));
+
+        // Breadth-first order from the roots; reachedFrom holds the position of the parent each class was reached from
+        List<SubClassCollection> order = new ArrayList<>(parentChildMap.size());
+        for (SubClassCollection node : parentChildMap.values()) {
+            node.setDepth(-1);
+            node.setNumberOfDescendants(0);
+        }
+        for (SubClassCollection node : parentChildMap.values()) {
+            if (!hasParent.contains(node.getParentClassName())) {
+                node.setDepth(0);
+                order.add(node);
+            }
+        }
+        int[] reachedFrom = new int[parentChildMap.size()];
+        int roots = order.size();
+        for (int i = 0; i < order.size(); i++) {
+            SubClassCollection parent = order.get(i);
+            for (String childName : parent.getSubClasses()) {
+                SubClassCollection child = parentChildMap.get(childName);
+                if (child != null && child.getDepth() < 0) { // a class is only reached once, even if names clash
+                    child.setDepth(parent.getDepth() + 1);
+                    reachedFrom[order.size()] = i;
+                    order.add(child);
+                }
+            }
+        }
+
+        maxDepth = 0;
+        for (int i = order.size() - 1; i >= roots; i--) {
+            SubClassCollection child = order.get(i);
+            SubClassCollection parent = order.get(reachedFrom[i]);
+            parent.setNumberOfDescendants(parent.getNumberOfDescendants() + 1 + child.getNumberOfDescendants());
+            maxDepth = Math.max(maxDepth, child.getDepth());
+        }
+        for (SubClassCollection node : parentChildMap.values()) {
+            if (node.getDepth() < 0) {
+                node.setDepth(0); // only on a cycle of clashing names, which no root reaches
+            }
+        }
+        depthsComputed = true;
+    }
+
     /**
      *  This method returns the average branching factor for the inheritance hierarchy.
      * @return the average branching factor
@@ -215,6 +637,64 @@ public class InheritanceAnalyses {
         return maxBreadth;
     }
 
+    /**
+     * This method returns the maximum depth of inheritance of any class in the directory.
+     * @return the maximum depth of inheritance
+     */
+    public int getMaximumDepth(){
+        computeDepthsAndDescendants();
+        return maxDepth;
+    }
+
+    /**
+     * This method finds the interfaces with the most implementing classes in the directory.
+     * @return the most implemented interfaces, empty if no class implements an interface from the directory
+     */
+    public Map<String, SubClassCollection> findMostImplementedInterfaces() {
+        int mostImplementors = 0;
+        for (SubClassCollection implementors : implementorMap.values()) {
+            mostImplementors = Math.max(mostImplementors, implementors.getNumberOfSubClasses());
+        }
+        Map<String, SubClassCollection> mostImplemented = new HashMap<>();
+        if (mostImplementors == 0) {
+            return mostImplemented;
+        }
+        for (Entry<String, SubClassCollection> entry : implementorMap.entrySet()) {
+            if (entry.getValue().getNumberOfSubClasses() == mostImplementors) {
+                mostImplemented.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return mostImplemented;
+    }
+
+    /**
+     * This method returns the classes in the directory that directly implement an interface.
+     * @param interfaceName - the fully qualified name of the interface
+     * @return the fully qualified names of the implementing classes, empty if the interface is not in the directory
+     */
+    public Set<String> getImplementors(String interfaceName) {
+        SubClassCollection implementors = implementorMap.get(interfaceName);
+        return implementors == null ? Set.of() : implementors.getSubClasses();
+    }
+
+    /**
+     * This method returns the interfaces in the directory that directly extend an interface.
+     * @param interfaceName - the fully qualified name of the interface
+     * @return the fully qualified names of the extending interfaces, empty if the interface is not in the directory
+     */
+    public Set<String> getSubInterfaces(String interfaceName) {
+        SubClassCollection subInterfaces = subInterfaceMap.get(interfaceName);
+        return subInterfaces == null ? Set.of() : subInterfaces.getSubClasses();
+    }
+
+    /**
+     * This method returns the number of interfaces in the directory.
+     * @return the number of interfaces in the directory
+     */
+    public int getNumberOfInterfaces(){
+        return implementorMap.size();
+    }
+
     /**
      * This method returns the number of classes in the directory.
      * @return the number of classes in the directory
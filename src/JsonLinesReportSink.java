@@ -0,0 +1,130 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * This class writes the report as JSON Lines: one JSON object per line and record, in UTF-8.
+ * The type of the record is the "type" member, followed by its fields in the order RecordReportSink lists them,
+ * for example {"type":"cycle","classes":["a.A","a.B"]}. NaN is written as null.
+ * Records are written straight into a buffer, without building a string for each.
+ */
+public class JsonLinesReportSink extends RecordReportSink {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Writer out;
+
+    /**
+     * Constructor for the JsonLinesReportSink class.
+     * @param out - the stream to write to
+     */
+    public JsonLinesReportSink(OutputStream out) {
+        this(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Constructor for the JsonLinesReportSink class.
+     * @param out - the writer to write to
+     */
+    public JsonLinesReportSink(Writer out) {
+        this.out = new BufferedWriter(out, 1 << 16);
+    }
+
+    @Override
+    protected void beginRecord(String type) throws IOException {
+        out.write("{\"type\":");
+        string(type);
+    }
+
+    @Override
+    protected void field(String name, String value) throws IOException {
+        name(name);
+        string(value);
+    }
+
+    @Override
+    protected void field(String name, long value) throws IOException {
+        name(name);
+        out.write(Long.toString(value));
+    }
+
+    @Override
+    protected void field(String name, double value) throws IOException {
+        name(name);
+        out.write(Double.isFinite(value) ? Double.toString(value) : "null");
+    }
+
+    @Override
+    protected void field(String name, List<String> values) throws IOException {
+        name(name);
+        out.write('[');
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            string(values.get(i));
+        }
+        out.write(']');
+    }
+
+    @Override
+    protected void endRecord() throws IOException {
+        out.write("}\n");
+    }
+
+    private void name(String name) throws IOException {
+        out.write(',');
+        string(name);
+        out.write(':');
+    }
+
+    // Writes a JSON string, escaping quotes, backslashes and control characters
+    private void string(String value) throws IOException {
+        out.write('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            out.write(value, start, i - start);
+            start = i + 1;
+            switch (c) {
+                case '"':
+                    out.write("\\\"");
+                    break;
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\r':
+                    out.write("\\r");
+                    break;
+                case '\t':
+                    out.write("\\t");
+                    break;
+                default:
+                    out.write("\\u00");
+                    out.write(HEX[c >> 4]);
+                    out.write(HEX[c & 0xF]);
+            }
+        }
+        out.write(value, start, value.length() - start);
+        out.write('"');
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
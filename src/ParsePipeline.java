@@ -0,0 +1,422 @@
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ParserConfiguration.LanguageLevel;
+import com.github.javaparser.ParseStart;
+import com.github.javaparser.Providers;
+import com.github.javaparser.ast.CompilationUnit;
+
+import java.io.CharArrayReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class is the shared front end for all analyses.
+ * It walks the project directory, streaming each source file to the parser as soon as it is found, parses every Java file exactly once and lets each registered Analyzer
+ * extract its facts from the resulting AST, which is then dropped. Peak heap therefore depends on the
+ * size of the extracted facts and the few ASTs in flight, not on the size of the source tree.
+ * Files that no registered analyzer needs an AST for, because each can work from the source text, are not parsed.
+ * With an AnalysisCache, files whose content has not changed are not parsed at all and their cached facts are used.
+ * With more than one thread, files are parsed and extracted concurrently by a fixed worker pool, but analyzers
+ * still accept the facts one file at a time and in traversal order, so results do not depend on scheduling.
+ * With read-ahead, for sources on slow or network storage, every file is read on a thread of its own, a virtual
+ * thread where the runtime has them, and handed to the parser threads, so the wait for the disk overlaps parsing
+ * and only the number of parser threads needs to match the machine.
+ */
+public class ParsePipeline extends Evaluator {
+    private static final int IN_FLIGHT_PER_THREAD = 2; // analyzed files allowed to wait for the analyzers, per worker
+    private static final int READS_PER_THREAD = 16; // files being read or waiting to be parsed with read-ahead, per worker
+
+    private final ParserConfiguration configuration;
+    private final ThreadLocal<JavaParser> parsers; // JavaParser instances are not thread safe
+    private final SourceLoader loader; // reads and decodes files into per-thread buffers
+    private final int threads; // number of parser threads
+    private final List<Analyzer> analyzers; // analyses fed by this pipeline, in registration order
+    private SourceFilter filter; // which files of the project tree are analyzed
+    private boolean readAhead; // read files on reader threads of their own, see analyzeWithReaders
+    private boolean skipUnparsable; // leave out files with syntax errors instead of failing the run
+    private final Map<File, Exception> skipped; // files left out of the last run, by path, with the reason
+    private AnalysisCache cache; // facts of previously analyzed files, null if caching is off
+    private int filesAnalyzed; // number of files delivered to the analyzers in the last run
+    private final LongAdder filesParsed; // number of files actually parsed in the last run
+    private final LongAdder parseNanos; // time spent inside the parser in the last run, summed over all threads
+    private final LongAccumulator astAnalyzers; // most analyzers that needed the AST of one file in the last run
+
+    /**
+     * Constructor for the ParsePipeline class, parsing on the calling thread.
+     */
+    public ParsePipeline() {
+        this(1);
+    }
+
+    /**
+     * Constructor for the ParsePipeline class.
+     * @param threads - the number of threads used to parse files, 1 parses on the calling thread
+     */
+    public ParsePipeline(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1, got " + threads);
+        }
+        // Only the facts outlive a parse, so skip everything kept for pretty printing and comment attribution:
+        // without the token list an AST needs roughly half the heap.
+        this.configuration = new ParserConfiguration()
+                .setLanguageLevel(LanguageLevel.JAVA_18)
+                .setStoreTokens(false)
+                .setAttributeComments(false);
+        this.parsers = ThreadLocal.withInitial(() -> new JavaParser(configuration));
+        this.loader = new SourceLoader(configuration.getCharacterEncoding());
+        this.threads = threads;
+        this.analyzers = new ArrayList<>();
+        this.filter = new SourceFilter();
+        this.skipped = new ConcurrentSkipListMap<>();
+        this.filesParsed = new LongAdder();
+        this.parseNanos = new LongAdder();
+        this.astAnalyzers = new LongAccumulator(Math::max, 0);
+    }
+
+    /**
+     * This method registers an analysis that will be given every parsed file.
+     * @param analyzer - the analysis to register
+     * @return this pipeline, so registrations can be chained
+     */
+    public ParsePipeline register(Analyzer analyzer) {
+        analyzers.add(analyzer);
+        return this;
+    }
+
+    /**
+     * This method makes the pipeline reuse facts for files whose content is in the cache.
+     * The caller is responsible for saving the cache after the run.
+     * @param cache - the cache to read and fill
+     * @return this pipeline
+     */
+    public ParsePipeline setCache(AnalysisCache cache) {
+        this.cache = cache;
+        return this;
+    }
+
+    /**
+     * This method restricts the files analyzed to those accepted by the filter.
+     * @param filter - include and exclude patterns for the project tree
+     * @return this pipeline
+     */
+    public ParsePipeline setFilter(SourceFilter filter) {
+        this.filter = filter;
+        return this;
+    }
+
+    /**
+     * This method makes the pipeline read files on reader threads while the parser threads parse, which hides the
+     * latency of slow storage. Reader threads are virtual where the runtime supports them. Even with a single
+     * parser thread files are then parsed off the calling thread.
+     * @param readAhead - true to read ahead of the parser threads
+     * @return this pipeline
+     */
+    public ParsePipeline setReadAhead(boolean readAhead) {
+        this.readAhead = readAhead;
+        return this;
+    }
+
+    /**
+     * This method makes a run leave out files that cannot be parsed, as a source tree being edited often has some,
+     * instead of failing. The files left out are returned by getSkippedFiles.
+     * @param skipUnparsable - true to skip files with syntax errors
+     * @return this pipeline
+     */
+    public ParsePipeline setSkipUnparsable(boolean skipUnparsable) {
+        this.skipUnparsable = skipUnparsable;
+        return this;
+    }
+
+    /**
+     * This method returns the files the last run left out because they could not be parsed.
+     * @return the skipped files, sorted by path, with the parse problems
+     */
+    public Map<File, Exception> getSkippedFiles() {
+        return Collections.unmodifiableMap(skipped);
+    }
+
+    /**
+     * This method returns whether the pipeline reads files ahead of the parser threads.
+     * @return true if files are read on reader threads of their own
+     */
+    public boolean isReadAhead() {
+        return readAhead;
+    }
+
+    /**
+     * This method parses all Java files in the given project directory and feeds them to every registered analyzer.
+     * @param projectDir - the root directory of the project
+     * @throws Exception if the directory contains no Java files, or a file cannot be parsed and such files are not skipped
+     */
+    public void run(File projectDir) throws Exception {
+        resetStatistics();
+        int found;
+        if (readAhead) {
+            found = analyzeWithReaders(projectDir);
+        } else if (threads == 1) {
+            found = walkSources(projectDir, filter, file -> deliver(factsOrSkip(file, loader.read(file.toPath()))));
+        } else {
+            found = analyzeConcurrently(projectDir);
+        }
+        if (found == 0) {
+            throw new Exception("Directory not found or no Java files in: " + projectDir);
+        }
+        for (Analyzer analyzer : analyzers) {
+            analyzer.finish();
+        }
+    }
+
+    /**
+     * This method extracts the facts of a single file with every registered analyzer, on the calling thread,
+     * without handing them to the analyzers. It counts towards the statistics of the current run.
+     * @param file - the Java source file
+     * @return the facts for the file
+     * @throws IOException if the file cannot be read
+     * @throws ParseProblemException if the file cannot be parsed
+     */
+    public FileFacts analyze(File file) throws IOException {
+        FileFacts facts = factsFor(file);
+        filesAnalyzed++;
+        return facts;
+    }
+
+    /**
+     * This method resets the file counts, skipped files, parse time and source reading statistics,
+     * as the start of a run does.
+     */
+    public void resetStatistics() {
+        filesAnalyzed = 0;
+        skipped.clear();
+        filesParsed.reset();
+        parseNanos.reset();
+        astAnalyzers.reset();
+        loader.reset();
+    }
+
+    // Extracts facts on a worker pool while the tree is still being walked and delivers them in traversal order.
+    // At most IN_FLIGHT_PER_THREAD * threads files are held at once, however far ahead the workers get.
+    private int analyzeConcurrently(File projectDir) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<FileFacts>> inFlight = new ArrayDeque<>();
+        int maxInFlight = threads * IN_FLIGHT_PER_THREAD;
+        try {
+            int found = walkSources(projectDir, filter, file -> {
+                if (inFlight.size() >= maxInFlight) {
+                    deliver(await(inFlight.poll()));
+                }
+                inFlight.add(pool.submit(() -> factsOrSkip(file, loader.read(file.toPath()))));
+            });
+            while (!inFlight.isEmpty()) {
+                deliver(await(inFlight.poll()));
+            }
+            return found;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Reads every file on a reader thread of its own, which hands the content to the parser pool and ends, so a slow
+    // read only holds up its own file and no thread waits for a parse. Facts are delivered in traversal order as above.
+    // At most READS_PER_THREAD * threads files are in flight, so readers cannot run arbitrarily far ahead of
+    // the parsers, and no more ASTs exist at once than there are parser threads.
+    private int analyzeWithReaders(File projectDir) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ExecutorService readers = newReaderExecutor();
+        ArrayDeque<CompletableFuture<FileFacts>> inFlight = new ArrayDeque<>();
+        int maxInFlight = threads * READS_PER_THREAD;
+        try {
+            int found = walkSources(projectDir, filter, file -> {
+                if (inFlight.size() >= maxInFlight) {
+                    deliver(await(inFlight.poll()));
+                }
+                CompletableFuture<FileFacts> facts = new CompletableFuture<>();
+                inFlight.add(facts);
+                readers.execute(() -> {
+                    try {
+                        ByteBuffer content = loader.readDetached(file.toPath());
+                        pool.execute(() -> {
+                            try {
+                                facts.complete(factsOrSkip(file, content));
+                            } catch (Throwable e) {
+                                facts.completeExceptionally(e);
+                            }
+                        });
+                    } catch (Throwable e) {
+                        facts.completeExceptionally(e);
+                    }
+                });
+            });
+            while (!inFlight.isEmpty()) {
+                deliver(await(inFlight.poll()));
+            }
+            return found;
+        } finally {
+            readers.shutdownNow();
+            pool.shutdownNow();
+        }
+    }
+
+    // Returns an executor starting a virtual thread per task. Virtual threads only exist from Java 21 on, so on older
+    // runtimes platform threads are reused instead. As readers never wait for a parse, there are only as many of
+    // them as reads are pending at once, which the number of files in flight bounds.
+    private static ExecutorService newReaderExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    // Waits for a worker task, rethrowing whatever the task threw.
+    private FileFacts await(Future<FileFacts> task) throws Exception {
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    // Hands the facts of one file to every registered analyzer.
+    private void deliver(FileFacts facts) {
+        if (facts == null) {
+            return; // skipped, see setSkipUnparsable
+        }
+        filesAnalyzed++;
+        for (Analyzer analyzer : analyzers) {
+            analyzer.accept(facts);
+        }
+    }
+
+    // Returns the facts for one file of a run, or null if it cannot be parsed and such files are skipped.
+    private FileFacts factsOrSkip(File file, ByteBuffer content) {
+        try {
+            return factsFor(file, content);
+        } catch (ParseProblemException e) {
+            if (!skipUnparsable) {
+                throw e;
+            }
+            skipped.put(file, e);
+            return null;
+        }
+    }
+
+    // Returns the facts for one file, from the cache if its content is unchanged.
+    private FileFacts factsFor(File file) throws IOException {
+        return factsFor(file, loader.read(file.toPath()));
+    }
+
+    // Returns the facts for one file whose content has already been read.
+    private FileFacts factsFor(File file, ByteBuffer content) {
+        String hash = null;
+        if (cache != null) {
+            hash = AnalysisCache.hash(content);
+            FileFacts cached = cache.get(hash, file.getPath());
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        CharBuffer source = loader.decode(content);
+        FileFacts facts = new FileFacts(file.getPath());
+        boolean[] needsAst = new boolean[analyzers.size()];
+        boolean parse = analyzers.isEmpty(); // with nothing registered a run still checks that every file parses
+        int needingAst = 0;
+        for (int i = 0; i < needsAst.length; i++) {
+            needsAst[i] = !analyzers.get(i).extractFromSource(source, facts);
+            parse |= needsAst[i];
+            needingAst += needsAst[i] ? 1 : 0;
+        }
+        if (parse) {
+            astAnalyzers.accumulate(needingAst);
+            long start = System.nanoTime();
+            CompilationUnit cu = parse(file, new CharArrayReader(source.array(),
+                    source.arrayOffset() + source.position(), source.remaining()));
+            parseNanos.add(System.nanoTime() - start);
+            filesParsed.increment();
+            for (int i = 0; i < needsAst.length; i++) {
+                if (needsAst[i]) {
+                    analyzers.get(i).extract(cu, facts);
+                }
+            }
+        }
+        if (cache != null) {
+            cache.put(hash, facts);
+        }
+        return facts;
+    }
+
+    // Parses a single file, failing the same way StaticJavaParser does on syntax errors.
+    private CompilationUnit parse(File file, Reader source) {
+        ParseResult<CompilationUnit> result = parsers.get().parse(ParseStart.COMPILATION_UNIT, Providers.provider(source));
+        if (!result.isSuccessful() || result.getResult().isEmpty()) {
+            throw new ParseProblemException(result.getProblems());
+        }
+        CompilationUnit cu = result.getResult().get();
+        cu.setStorage(file.toPath(), configuration.getCharacterEncoding());
+        return cu;
+    }
+
+    /**
+     * This method returns the number of files analyzed in the last run, parsed or cached.
+     * @return the number of files analyzed
+     */
+    public int getFilesAnalyzed() {
+        return filesAnalyzed;
+    }
+
+    /**
+     * This method returns the number of files parsed in the last run.
+     * Files served from the cache are not parsed.
+     * @return the number of files parsed
+     */
+    public int getFilesParsed() {
+        return filesParsed.intValue();
+    }
+
+    /**
+     * This method returns the time spent parsing in the last run, summed over all parser threads.
+     * @return parse time in milliseconds
+     */
+    public long getParseTimeMillis() {
+        return parseNanos.sum() / 1_000_000;
+    }
+
+    /**
+     * This method returns the source reading statistics of the last run.
+     * @return the loader used to read and decode files
+     */
+    public SourceLoader getLoader() {
+        return loader;
+    }
+
+    /**
+     * This method estimates the parse time saved compared with every analysis parsing the project on its own.
+     * Before the shared pipeline each analysis that needs an AST parsed every file again.
+     * @return the estimated saving in milliseconds
+     */
+    public long getParseTimeSavedMillis() {
+        return getParseTimeMillis() * Math.max(0, astAnalyzers.get() - 1);
+    }
+}
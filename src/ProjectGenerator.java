@@ -0,0 +1,440 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+/**
+ * This class writes reproducible synthetic Java projects for testing the analyses at scale.
+ * Every class goes into its own file. The same settings and seed always produce the same sources.
+ *
+ * The project is built so that the correct result of every analysis is known while writing it,
+ * and those answers are written to expected.properties next to the sources:
+ * - classes extend a random earlier class, limited by the maximum depth and breadth of the hierarchy;
+ * - field dependencies only point to earlier classes, so they never form a cycle on their own, and
+ *   the requested number of cycles is injected as rings over blocks of consecutive classes,
+ *   which makes each ring exactly one strongly connected component;
+ * - every method contains a random mix of control flow constructs whose counts are tallied as they are written.
+ */
+public class ProjectGenerator {
+    public static final String EXPECTED_FILE = "expected.properties";
+
+    /**
+     * Preset settings for the benchmark suite.
+     */
+    public enum Shape {
+        DEEP,   // long single inheritance chains
+        WIDE,   // shallow hierarchies with many direct subclasses
+        CYCLIC  // dense field dependencies with many injected cycles
+    }
+
+    private long seed = 1;
+    private int classes = 1000; // number of classes, one per file
+    private int classesPerPackage = 100; // classes in each package
+    private int packageFanOut = 10; // sub packages of each package
+    private double inheritanceRatio = 0.5; // share of classes that extend another class
+    private int maxDepth = 5; // maximum number of ancestors of a class
+    private int maxBreadth = 10; // maximum number of direct subclasses of a class
+    private double dependencyDensity = 1.0; // average number of field dependencies on earlier classes
+    private int cycles = 0; // number of dependency cycles to inject
+    private int cycleLength = 3; // classes in each injected cycle
+    private int methodsPerClass = 2;
+    private double decisionDensity = 3.0; // average number of control flow constructs per method
+
+    /**
+     * This method returns a generator preset for one of the benchmark shapes.
+     * @param shape - the shape of the project
+     * @param classes - the number of classes
+     * @return the generator
+     */
+    public static ProjectGenerator forShape(Shape shape, int classes) {
+        ProjectGenerator generator = new ProjectGenerator().setClasses(classes);
+        switch (shape) {
+            case DEEP:
+                return generator.setInheritance(1.0, 100, 1).setDependencies(1.0, 0, 3);
+            case WIDE:
+                return generator.setInheritance(1.0, 1, 500).setDependencies(1.0, 0, 3);
+            default:
+                return generator.setInheritance(0.0, 0, 0).setDependencies(3.0, classes / 10, 10);
+        }
+    }
+
+    public ProjectGenerator setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public ProjectGenerator setClasses(int classes) {
+        require(classes > 0, "classes must be positive");
+        this.classes = classes;
+        return this;
+    }
+
+    /**
+     * This method sets the package layout: packages form a tree with the given fan-out,
+     * filled in breadth first order with the given number of classes each.
+     * @param classesPerPackage - classes in each package
+     * @param packageFanOut - sub packages of each package
+     * @return this generator
+     */
+    public ProjectGenerator setPackages(int classesPerPackage, int packageFanOut) {
+        require(classesPerPackage > 0 && packageFanOut > 0, "package sizes must be positive");
+        this.classesPerPackage = classesPerPackage;
+        this.packageFanOut = packageFanOut;
+        return this;
+    }
+
+    /**
+     * This method sets the shape of the inheritance hierarchy.
+     * @param ratio - share of classes, between 0 and 1, that extend an earlier class when one has room
+     * @param maxDepth - maximum number of ancestors of a class
+     * @param maxBreadth - maximum number of direct subclasses of a class
+     * @return this generator
+     */
+    public ProjectGenerator setInheritance(double ratio, int maxDepth, int maxBreadth) {
+        require(ratio >= 0 && ratio <= 1 && maxDepth >= 0 && maxBreadth >= 0, "invalid inheritance settings");
+        this.inheritanceRatio = ratio;
+        this.maxDepth = maxDepth;
+        this.maxBreadth = maxBreadth;
+        return this;
+    }
+
+    /**
+     * This method sets the field dependencies between classes.
+     * @param density - average number of field dependencies on earlier classes per class
+     * @param cycles - number of dependency cycles to inject
+     * @param cycleLength - classes in each injected cycle, at least 2
+     * @return this generator
+     */
+    public ProjectGenerator setDependencies(double density, int cycles, int cycleLength) {
+        require(density >= 0 && cycles >= 0 && cycleLength >= 2, "invalid dependency settings");
+        this.dependencyDensity = density;
+        this.cycles = cycles;
+        this.cycleLength = cycleLength;
+        return this;
+    }
+
+    /**
+     * This method sets the amount of control flow.
+     * @param methodsPerClass - methods in every class
+     * @param decisionDensity - average number of control flow constructs per method
+     * @return this generator
+     */
+    public ProjectGenerator setControlFlow(int methodsPerClass, double decisionDensity) {
+        require(methodsPerClass >= 0 && decisionDensity >= 0, "invalid control flow settings");
+        this.methodsPerClass = methodsPerClass;
+        this.decisionDensity = decisionDensity;
+        return this;
+    }
+
+    private static void require(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    /**
+     * This method writes the project and its expected analysis results.
+     * @param root - the directory to write the sources to
+     * @return the expected results, as also written to EXPECTED_FILE
+     * @throws IOException if a file cannot be written
+     */
+    public Properties generate(Path root) throws IOException {
+        require((long) cycles * cycleLength <= classes, "not enough classes for the requested cycles");
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] parent = new int[classes];
+        int[] depth = new int[classes];
+        int[] children = new int[classes];
+        int[] open = new int[classes]; // classes that can still take a subclass
+        int openCount = 0;
+        long[] controlFlow = new long[ControlFlowCounter.values().length];
+        long edges = 0;
+        int maxMethodComplexity = 0;
+
+        for (int i = 0; i < classes; i++) {
+            // Inheritance: pick a random earlier class that still has room
+            parent[i] = -1;
+            if (openCount > 0 && random.nextDouble() < inheritanceRatio) {
+                int pick = random.nextInt(openCount);
+                int p = open[pick];
+                parent[i] = p;
+                depth[i] = depth[p] + 1;
+                if (++children[p] >= maxBreadth) {
+                    open[pick] = open[--openCount];
+                }
+            }
+            if (depth[i] < maxDepth && maxBreadth > 0) {
+                open[openCount++] = i;
+            }
+
+            // Dependencies: distinct earlier classes, plus the next class of the ring this class belongs to
+            Set<Integer> fields = new LinkedHashSet<>();
+            int wanted = sample(random, dependencyDensity);
+            for (int attempt = 0; attempt < wanted * 2 && fields.size() < Math.min(wanted, i); attempt++) {
+                fields.add(random.nextInt(i));
+            }
+            int ringNext = ringSuccessor(i);
+            if (ringNext >= 0) {
+                fields.add(ringNext);
+            }
+            // Every class the class refers to is a dependency: its fields, its parent, and the exception it catches
+            edges += fields.size() + (parent[i] >= 0 && !fields.contains(parent[i]) ? 1 : 0);
+
+            StringBuilder src = new StringBuilder();
+            writeHeader(src, i, parent[i], fields);
+            long catchesBefore = controlFlow[ControlFlowCounter.CATCH.ordinal()];
+            for (int m = 0; m < methodsPerClass; m++) {
+                int complexity = writeMethod(src, m, random, controlFlow);
+                maxMethodComplexity = Math.max(maxMethodComplexity, complexity);
+            }
+            if (controlFlow[ControlFlowCounter.CATCH.ordinal()] > catchesBefore) {
+                edges++;
+            }
+            src.append("}\n");
+
+            Path packageDir = root.resolve(packageName(packageOf(i)).replace('.', '/'));
+            Files.createDirectories(packageDir);
+            try (BufferedWriter out = Files.newBufferedWriter(packageDir.resolve(className(i) + ".java"))) {
+                out.write(src.toString());
+            }
+        }
+
+        Properties expected = expectedResults(parent, depth, children, edges, controlFlow, maxMethodComplexity);
+        try (BufferedWriter out = Files.newBufferedWriter(root.resolve(EXPECTED_FILE))) {
+            expected.store(out, "Expected analysis results, seed " + seed);
+        }
+        return expected;
+    }
+
+    // Draws a count with the given mean: uniformly from 0 to twice the mean
+    private static int sample(SplittableRandom random, double mean) {
+        int whole = (int) Math.floor(2 * mean);
+        int count = random.nextInt(whole + 1);
+        if (random.nextDouble() < 2 * mean - whole) {
+            count = random.nextInt(whole + 2);
+        }
+        return count;
+    }
+
+    // Returns the next class in class i's injected cycle, or -1 if i is not part of one.
+    // Cycle r occupies cycleLength consecutive classes starting at r * classes / cycles.
+    private int ringSuccessor(int i) {
+        if (cycles == 0) {
+            return -1;
+        }
+        // The last cycle starting at or before i; cycles are at least cycleLength apart, so no other can contain i
+        long ring = ((long) (i + 1) * cycles - 1) / classes;
+        int start = (int) (ring * classes / cycles);
+        if (i >= start + cycleLength) {
+            return -1;
+        }
+        return i + 1 < start + cycleLength ? i + 1 : start;
+    }
+
+    // Writes the package, imports, class declaration and fields of class i
+    private void writeHeader(StringBuilder src, int i, int parent, Set<Integer> fields) {
+        int pkg = packageOf(i);
+        src.append("package ").append(packageName(pkg)).append(";\n\n");
+        // Classes in other packages are imported, so every reference can use the simple name
+        Set<Integer> imports = new LinkedHashSet<>(fields);
+        if (parent >= 0) {
+            imports.add(parent);
+        }
+        boolean imported = false;
+        for (int other : imports) {
+            if (packageOf(other) != pkg) {
+                src.append("import ").append(packageName(packageOf(other))).append('.').append(className(other)).append(";\n");
+                imported = true;
+            }
+        }
+        if (imported) {
+            src.append("\n");
+        }
+        src.append("public class ").append(className(i));
+        if (parent >= 0) {
+            src.append(" extends ").append(className(parent));
+        }
+        src.append(" {\n");
+        int f = 0;
+        for (int field : fields) {
+            src.append("    private ").append(className(field)).append(" field").append(f++).append(";\n");
+        }
+    }
+
+    // Writes one method with a random mix of control flow and returns its cyclomatic complexity
+    private int writeMethod(StringBuilder src, int m, SplittableRandom random, long[] controlFlow) {
+        src.append("\n    public int method").append(m).append("(int n) {\n");
+        src.append("        int total = 0;\n");
+        int decisions = 0;
+        int constructs = sample(random, decisionDensity);
+        for (int c = 0; c < constructs; c++) {
+            ControlFlowCounter kind = CONSTRUCTS[random.nextInt(CONSTRUCTS.length)];
+            int count = 1;
+            switch (kind) {
+                case IF:
+                    src.append("        if (n > ").append(c).append(") {\n            total++;\n        }\n");
+                    break;
+                case FOR:
+                    src.append("        for (int i = 0; i < n; i++) {\n            total += i;\n        }\n");
+                    break;
+                case FOR_EACH:
+                    src.append("        for (int v : new int[] {1, 2}) {\n            total += v;\n        }\n");
+                    break;
+                case WHILE:
+                    src.append("        while (total > ").append(100 + c).append(") {\n            total /= 2;\n        }\n");
+                    break;
+                case DO:
+                    src.append("        do {\n            total++;\n        } while (total < n);\n");
+                    break;
+                case SWITCH_CASE:
+                    count = 1 + random.nextInt(3); // the cases plus default
+                    src.append("        switch (n) {\n");
+                    for (int k = 1; k < count; k++) {
+                        src.append("            case ").append(k).append(":\n                total += ").append(k).append(";\n                break;\n");
+                    }
+                    src.append("            default:\n                total--;\n        }\n");
+                    break;
+                case CATCH:
+                    src.append("        try {\n            total += n / total;\n        } catch (ArithmeticException e) {\n            total = 1;\n        }\n");
+                    break;
+                case CONDITIONAL:
+                    src.append("        total += n > ").append(c).append(" ? 1 : 2;\n");
+                    break;
+                case LOGICAL_AND:
+                    src.append("        boolean and").append(c).append(" = n > 1 && n < 9;\n");
+                    break;
+                default:
+                    src.append("        boolean or").append(c).append(" = n < 1 || n > 9;\n");
+                    break;
+            }
+            controlFlow[kind.ordinal()] += count;
+            if (kind.isDecisionPoint()) {
+                decisions += count;
+            }
+        }
+        src.append("        return total;\n    }\n");
+        controlFlow[ControlFlowCounter.METHOD.ordinal()]++;
+        return decisions + 1;
+    }
+
+    // Every counted construct except method declarations
+    private static final ControlFlowCounter[] CONSTRUCTS = Arrays.stream(ControlFlowCounter.values())
+            .filter(counter -> counter != ControlFlowCounter.METHOD)
+            .toArray(ControlFlowCounter[]::new);
+
+    // Computes the known answers from what was written
+    private Properties expectedResults(int[] parent, int[] depth, int[] children, long edges,
+                                       long[] controlFlow, int maxMethodComplexity) {
+        int parents = 0;
+        int subClasses = 0;
+        int breadth = 0;
+        int deepest = 0;
+        for (int i = 0; i < classes; i++) {
+            if (parent[i] < 0 || children[i] > 0) {
+                parents++;
+            }
+            if (parent[i] >= 0) {
+                subClasses++;
+            }
+            breadth = Math.max(breadth, children[i]);
+            deepest = Math.max(deepest, depth[i]);
+        }
+        long decisions = 0;
+        for (ControlFlowCounter counter : ControlFlowCounter.values()) {
+            if (counter.isDecisionPoint()) {
+                decisions += controlFlow[counter.ordinal()];
+            }
+        }
+        long methods = controlFlow[ControlFlowCounter.METHOD.ordinal()];
+
+        Map<String, String> values = new TreeMap<>();
+        values.put("classes", String.valueOf(classes));
+        values.put("packages", String.valueOf(packageOf(classes - 1) + 1));
+        values.put("inheritance.maxBreadth", String.valueOf(breadth));
+        values.put("inheritance.maxDepth", String.valueOf(deepest));
+        values.put("inheritance.parentClasses", String.valueOf(parents));
+        values.put("inheritance.subClasses", String.valueOf(subClasses));
+        values.put("inheritance.averageBranchingFactor", String.valueOf(Math.round((double) subClasses / parents * 100.0) / 100.0));
+        values.put("dependencies.edges", String.valueOf(edges));
+        values.put("dependencies.cyclicComponents", String.valueOf(cycles));
+        values.put("dependencies.largestCyclicComponent", String.valueOf(cycles == 0 ? 0 : cycleLength));
+        for (ControlFlowCounter counter : ControlFlowCounter.values()) {
+            values.put("controlflow." + counter.name(), String.valueOf(controlFlow[counter.ordinal()]));
+        }
+        values.put("controlflow.complexity", String.valueOf(methods == 0 ? 0 : decisions / methods + 1));
+        values.put("controlflow.maxMethodComplexity", String.valueOf(maxMethodComplexity));
+
+        Properties expected = new Properties();
+        expected.putAll(values);
+        return expected;
+    }
+
+    // Package of class i: packages are filled in order, classesPerPackage at a time
+    private int packageOf(int i) {
+        return i / classesPerPackage;
+    }
+
+    // Name of package k in a tree with packageFanOut children per package, e.g. gen.p3.p0
+    private String packageName(int k) {
+        StringBuilder name = new StringBuilder();
+        while (k > 0) {
+            name.insert(0, ".p" + ((k - 1) % packageFanOut));
+            k = (k - 1) / packageFanOut;
+        }
+        return name.insert(0, "gen").toString();
+    }
+
+    private static String className(int i) {
+        return "C" + i;
+    }
+
+    /**
+     * Writes a project from the command line:
+     * ProjectGenerator directory [--classes=N] [--seed=N] [--shape=DEEP|WIDE|CYCLIC] [--package-size=N] [--fan-out=N]
+     *                  [--inheritance=RATIO] [--depth=N] [--breadth=N] [--dependencies=AVG] [--cycles=N]
+     *                  [--cycle-length=N] [--methods=N] [--decisions=AVG]
+     * A shape sets presets, options given after it override them.
+     * @param args - the output directory followed by options
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Usage: ProjectGenerator <directory> [--classes=N] [--seed=N] [--shape=DEEP|WIDE|CYCLIC] ...");
+            return;
+        }
+        try {
+            ProjectGenerator generator = new ProjectGenerator();
+            for (int i = 1; i < args.length; i++) {
+                String[] option = args[i].split("=", 2);
+                String value = option.length > 1 ? option[1] : "";
+                switch (option[0]) {
+                    case "--classes": generator.setClasses(Integer.parseInt(value)); break;
+                    case "--seed": generator.setSeed(Long.parseLong(value)); break;
+                    case "--shape": generator = forShape(Shape.valueOf(value), generator.classes).setSeed(generator.seed); break;
+                    case "--package-size": generator.setPackages(Integer.parseInt(value), generator.packageFanOut); break;
+                    case "--fan-out": generator.setPackages(generator.classesPerPackage, Integer.parseInt(value)); break;
+                    case "--inheritance": generator.setInheritance(Double.parseDouble(value), generator.maxDepth, generator.maxBreadth); break;
+                    case "--depth": generator.setInheritance(generator.inheritanceRatio, Integer.parseInt(value), generator.maxBreadth); break;
+                    case "--breadth": generator.setInheritance(generator.inheritanceRatio, generator.maxDepth, Integer.parseInt(value)); break;
+                    case "--dependencies": generator.setDependencies(Double.parseDouble(value), generator.cycles, generator.cycleLength); break;
+                    case "--cycles": generator.setDependencies(generator.dependencyDensity, Integer.parseInt(value), generator.cycleLength); break;
+                    case "--cycle-length": generator.setDependencies(generator.dependencyDensity, generator.cycles, Integer.parseInt(value)); break;
+                    case "--methods": generator.setControlFlow(Integer.parseInt(value), generator.decisionDensity); break;
+                    case "--decisions": generator.setControlFlow(generator.methodsPerClass, Double.parseDouble(value)); break;
+                    default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            Properties expected = generator.generate(Paths.get(args[0]));
+            System.out.println("Wrote " + generator.classes + " classes to " + args[0] + ", expected results in " + EXPECTED_FILE);
+            new TreeMap<>(expected).forEach((key, value) -> System.out.println("\t" + key + " = " + value));
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Could not generate project: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,196 @@
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.ast.CompilationUnit;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class keeps the facts of every file of a project in memory, so the project can be analysed again after
+ * some of its files changed by parsing only those files.
+ * The facts are extracted by the analyzers registered with a ParsePipeline. Fresh analyses are then fed the
+ * facts of every file, which is far cheaper than parsing, and produce the same results as a run over the tree.
+ * Files are kept in traversal order, and files created later are added at the end.
+ */
+public class ProjectModel {
+    private final File root; // the project folder
+    private final ParsePipeline pipeline; // extracts facts with its registered analyzers
+    private final SourceFilter filter; // which files of the project tree are analyzed
+    private final Map<Path, FileFacts> files; // absolute path -> facts, in traversal order
+    private final Map<Path, Long> modified; // absolute path -> last modified time when its facts were extracted
+
+    /**
+     * Constructor for the ProjectModel class. The model is empty until it is loaded.
+     * @param root - the project folder
+     * @param pipeline - the pipeline whose analyzers extract the facts of a file
+     * @param filter - include and exclude patterns for the project tree
+     */
+    public ProjectModel(File root, ParsePipeline pipeline, SourceFilter filter) {
+        this.root = root;
+        this.pipeline = pipeline;
+        this.filter = filter;
+        this.files = new LinkedHashMap<>();
+        this.modified = new LinkedHashMap<>();
+        pipeline.setFilter(filter).register(new Analyzer() {
+            @Override
+            public void extract(CompilationUnit cu, FileFacts facts) {
+            }
+
+            @Override
+            public boolean extractFromSource(CharBuffer source, FileFacts facts) {
+                return true; // the facts are collected once every other analyzer has extracted them
+            }
+
+            @Override
+            public void accept(FileFacts facts) {
+                put(facts);
+            }
+        });
+    }
+
+    /**
+     * This method runs the pipeline over the whole project and keeps the facts of every file.
+     * The other analyzers registered with the pipeline accept the facts as usual.
+     * @throws Exception if the folder contains no Java files or a file cannot be parsed
+     */
+    public void load() throws Exception {
+        files.clear();
+        modified.clear();
+        pipeline.run(root);
+    }
+
+    /**
+     * This method extracts the facts of changed files again. A file that no longer exists is removed from the model,
+     * and files outside the project folder or excluded by the filter are ignored.
+     * A file that cannot be read or parsed, typically because it is being edited, keeps its earlier facts.
+     * @param changed - files that were created, modified or deleted
+     * @param failures - receives every file that could not be read or parsed, with the reason
+     * @return the facts of the changed files that were extracted again, in the order given
+     */
+    public List<FileFacts> update(Collection<File> changed, Map<File, Exception> failures) {
+        List<FileFacts> updated = new ArrayList<>();
+        for (File file : changed) {
+            Path path = key(file);
+            Path relative = relativeSource(path);
+            if (relative == null) {
+                continue;
+            }
+            if (!Files.isRegularFile(path)) {
+                files.remove(path);
+                modified.remove(path);
+                continue;
+            }
+            // Named as a walk of the project names it, so reports do not depend on how the change was given
+            FileFacts facts;
+            try {
+                facts = pipeline.analyze(root.toPath().resolve(relative).toFile());
+            } catch (IOException | ParseProblemException e) {
+                failures.put(file, e);
+                continue;
+            }
+            put(facts);
+            updated.add(facts);
+        }
+        return updated;
+    }
+
+    /**
+     * This method finds the files that changed since their facts were extracted, by their modification time.
+     * @return the files that were created, modified or deleted
+     * @throws Exception if the project folder cannot be walked
+     */
+    public List<File> findChanged() throws Exception {
+        List<File> changed = new ArrayList<>();
+        Set<Path> seen = new HashSet<>();
+        pipeline.walkSources(root, filter, file -> {
+            Path path = key(file);
+            seen.add(path);
+            Long known = modified.get(path);
+            if (known == null || known != file.lastModified()) {
+                changed.add(file);
+            }
+        });
+        for (Path path : files.keySet()) {
+            if (!seen.contains(path)) {
+                changed.add(path.toFile());
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * This method returns the facts of one file.
+     * @param file - the file, by any path that leads to it
+     * @return the facts of the file, or null if it is not in the model
+     */
+    public FileFacts get(File file) {
+        return files.get(key(file));
+    }
+
+    /**
+     * This method returns the facts of every file, in traversal order.
+     * @return the facts of the project
+     */
+    public Collection<FileFacts> getFiles() {
+        return files.values();
+    }
+
+    /**
+     * This method returns the number of files in the model.
+     * @return the number of files
+     */
+    public int getFileCount() {
+        return files.size();
+    }
+
+    /**
+     * This method returns the project folder.
+     * @return the project folder
+     */
+    public File getRoot() {
+        return root;
+    }
+
+    /**
+     * This method returns the filter that decides which files of the project tree are analyzed.
+     * @return the filter
+     */
+    public SourceFilter getFilter() {
+        return filter;
+    }
+
+    // Returns the path of a file relative to the project folder if a walk of the project would reach it:
+    // inside the folder, in no excluded directory and accepted by the filter. Returns null otherwise.
+    private Path relativeSource(Path path) {
+        Path start = key(root);
+        if (!path.startsWith(start) || path.equals(start)) {
+            return null;
+        }
+        Path relative = start.relativize(path);
+        for (int i = 1; i < relative.getNameCount(); i++) {
+            if (!filter.acceptsDirectory(relative.subpath(0, i))) {
+                return null;
+            }
+        }
+        return filter.acceptsFile(relative) ? relative : null;
+    }
+
+    private void put(FileFacts facts) {
+        Path path = key(new File(facts.getPath()));
+        files.put(path, facts);
+        modified.put(path, path.toFile().lastModified());
+    }
+
+    private static Path key(File file) {
+        return file.toPath().toAbsolutePath().normalize();
+    }
+}
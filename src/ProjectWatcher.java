@@ -0,0 +1,219 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class keeps the results for a project up to date while its files are edited, by watching the project tree
+ * instead of waiting to be asked. Every batch of changes is applied to analyses that are updated in place: the
+ * inheritance hierarchy replaces the classes of the changed files, and the class dependency graph adds and removes
+ * the dependencies that changed while IncrementalComponents keeps its groups of mutually dependent classes.
+ * Nothing is rebuilt from the facts of the unchanged files, so a save costs about one parse however large the
+ * project is.
+ * After every batch the facts of the changed files, the updated hierarchy metrics and the cyclic groups that contain
+ * a changed class are written, followed by a done record. Control flow complexity is only in the full report.
+ */
+public class ProjectWatcher {
+    static final long QUIET_MILLIS = 50; // a batch ends once no change has been seen for this long
+
+    private final ProjectModel model; // facts of every file of the project
+    private final ParsePipeline pipeline; // extracts the facts of changed files
+    private final InheritanceAnalyses inheritance; // updated file by file
+    private final DependencyCycles dependencies; // updated file by file
+
+    /**
+     * Constructor for the ProjectWatcher class. The inheritance hierarchy is built again from the facts of the model,
+     * file by file, so that it can be updated; the dependency graph is taken over as it is.
+     * @param model - the loaded project
+     * @param pipeline - the pipeline the model extracts facts with
+     * @param dependencies - the dependency analysis that accepted every file of the model
+     */
+    public ProjectWatcher(ProjectModel model, ParsePipeline pipeline, DependencyCycles dependencies) {
+        this.model = model;
+        this.pipeline = pipeline;
+        this.dependencies = dependencies;
+        this.inheritance = new InheritanceAnalyses();
+        for (FileFacts facts : model.getFiles()) {
+            inheritance.updateFile(null, facts);
+        }
+    }
+
+    /**
+     * This method watches the project tree and applies every batch of changes, until the thread is interrupted.
+     * Files changed while the project was loading are applied first, and directories created later are watched too.
+     * If the watch service lost events, or a watched directory disappeared, the whole tree is checked for changed
+     * modification times instead.
+     * @param sink - where the changes are reported
+     * @throws IOException if the tree cannot be watched or the report cannot be written
+     * @throws InterruptedException if the thread is interrupted while waiting for changes
+     */
+    public void watch(ReportSink sink) throws IOException, InterruptedException {
+        try (WatchService service = FileSystems.getDefault().newWatchService()) {
+            register(service, model.getRoot().toPath());
+            List<File> changedWhileLoading = findChanged(sink);
+            if (!changedWhileLoading.isEmpty()) {
+                apply(changedWhileLoading, sink);
+            }
+            while (true) {
+                WatchKey key = service.take();
+                Set<File> changed = new LinkedHashSet<>();
+                boolean rescan = false;
+                // Editors save in several steps, so events are collected until the tree has been quiet for a moment
+                while (key != null) {
+                    Path dir = (Path) key.watchable();
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            rescan = true;
+                            continue;
+                        }
+                        Path path = dir.resolve((Path) event.context());
+                        if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                            register(service, path);
+                            rescan = true; // its files may have been created before it was watched
+                        } else {
+                            changed.add(path.toFile());
+                        }
+                    }
+                    if (!key.reset()) {
+                        rescan = true; // a deleted or moved directory, whose files may not all have been reported
+                    }
+                    key = service.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                if (rescan) {
+                    changed.addAll(findChanged(sink));
+                }
+                apply(changed, sink);
+            }
+        }
+    }
+
+    // Finds the files whose modification time changed, reporting an error if the tree cannot be walked
+    private List<File> findChanged(ReportSink sink) throws IOException {
+        try {
+            return model.findChanged();
+        } catch (Exception e) {
+            sink.error("Cannot read " + model.getRoot() + ": " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    // Watches a directory and every directory below it that the filter accepts
+    private void register(WatchService service, Path dir) throws IOException {
+        Path start = model.getRoot().toPath();
+        SourceFilter filter = model.getFilter();
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path visited, BasicFileAttributes attrs) throws IOException {
+                if (!filter.acceptsDirectory(start.relativize(visited))) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                visited.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                return FileVisitResult.CONTINUE; // unreadable directories are not watched, as they are not analyzed
+            }
+        });
+    }
+
+    /**
+     * This method analyses changed files again, updates the analyses in place and reports the changes.
+     * Files that cannot be parsed keep their earlier facts and are reported as errors.
+     * @param changed - files that were created, modified or deleted
+     * @param sink - where the changes are reported
+     * @throws IOException if the report cannot be written
+     */
+    public void apply(Collection<File> changed, ReportSink sink) throws IOException {
+        long start = System.nanoTime();
+        pipeline.resetStatistics();
+        // The same file may have been given by different paths
+        Map<Path, File> files = new LinkedHashMap<>();
+        for (File file : changed) {
+            files.putIfAbsent(file.toPath().toAbsolutePath().normalize(), file);
+        }
+        Map<File, FileFacts> before = new LinkedHashMap<>();
+        for (File file : files.values()) {
+            before.put(file, model.get(file));
+        }
+        Map<File, Exception> failures = new LinkedHashMap<>();
+        List<FileFacts> updated = model.update(files.values(), failures);
+
+        List<String> removed = new ArrayList<>();
+        Set<String> changedClasses = new LinkedHashSet<>();
+        // The batch is applied as one change, so a class that moved to another file of the batch is not removed
+        // by the earlier facts of its old file after the new file added it
+        FileFacts earlierFiles = new FileFacts("");
+        FileFacts currentFiles = new FileFacts("");
+        for (Map.Entry<File, FileFacts> entry : before.entrySet()) {
+            FileFacts earlier = entry.getValue();
+            FileFacts current = model.get(entry.getKey());
+            if (earlier == current) {
+                continue; // not a source file of the project, or it could not be parsed
+            }
+            if (earlier != null) {
+                earlierFiles.addAll(earlier);
+            }
+            if (current == null) {
+                removed.add(earlier.getPath());
+            } else {
+                currentFiles.addAll(current);
+                changedClasses.addAll(current.getDependencies().keySet());
+            }
+        }
+        inheritance.updateFile(earlierFiles, currentFiles);
+        dependencies.updateFile(earlierFiles, currentFiles);
+
+        for (Map.Entry<File, Exception> failure : failures.entrySet()) {
+            String reason = String.valueOf(failure.getValue().getMessage()).lines().findFirst().orElse("");
+            sink.error(failure.getKey() + ": " + reason);
+        }
+        List<String> updatedPaths = new ArrayList<>();
+        for (FileFacts facts : updated) {
+            sink.file(facts);
+            updatedPaths.add(facts.getPath());
+        }
+        List<List<String>> changedGroups = new ArrayList<>();
+        Set<String> grouped = new HashSet<>();
+        for (String className : changedClasses) {
+            if (grouped.contains(className)) {
+                continue;
+            }
+            List<String> group = dependencies.getCyclicGroup(className);
+            if (!group.isEmpty()) {
+                changedGroups.add(group);
+                grouped.addAll(group);
+            }
+        }
+        sink.changes(updatedPaths, removed, inheritance, dependencies.getCyclicGroupCount(), changedGroups);
+        sink.done((System.nanoTime() - start) / 1_000_000);
+        sink.flush();
+    }
+
+    /**
+     * This method returns the inheritance hierarchy kept up to date by the watcher.
+     * @return the inheritance analysis
+     */
+    public InheritanceAnalyses getInheritance() {
+        return inheritance;
+    }
+}
@@ -0,0 +1,266 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class turns the results of StaticCodeAnalysis into a stream of flat records for machine-readable formats.
+ * Every record has a type and a fixed list of named fields, each a string, an integer, a decimal or a list of strings.
+ * The records, and the order of their fields, are:
+ * <ul>
+ *     <li>file: path, classes, dependencies, methods, complexity - one for every file, as it is accepted</li>
+ *     <li>inheritance: maxBreadth, broadest, averageBranchingFactor, maxDepth, deepest, interfaces, mostImplemented</li>
+ *     <li>class: name, depth, descendants, children - one for every class of the hierarchy</li>
+ *     <li>classGroup: size, dependencies, outgoing, classes - one for every group of mutually dependent classes</li>
+ *     <li>cycle: classes - one for every elementary cycle found, as it is found</li>
+ *     <li>condensation: components, dependencies, layers - for the class dependency graph</li>
+ *     <li>packageGroup: size, dependencies, packages - one for every group of mutually dependent packages</li>
+ *     <li>packageLayer: layer, packages - one for every layer of the package graph, from layer 0 up</li>
+ *     <li>complexity: cyclomatic, methods, totalComplexity</li>
+ *     <li>hotSpot: method, complexity - one for every reported method, most complex first</li>
+ *     <li>complexityRange: range, methods - one for every range of the histogram</li>
+ *     <li>score: score</li>
+ *     <li>frontEnd: files, parsed, parseMillis, bytesRead, filesMapped, decodeMillis, then cacheHits and cacheMisses
+ *     if facts were cached, then projectClasses, resolverHits and resolverMisses if names were resolved</li>
+ *     <li>removed: path - one for every file a watcher saw deleted</li>
+ *     <li>change: updated, removed, maxBreadth, averageBranchingFactor, cyclicGroups - after every batch of changes
+ *     a watcher applied</li>
+ *     <li>changedGroup: classes - one for every group of mutually dependent classes with a class of an updated file</li>
+ *     <li>error: message - for a daemon request that could not be answered</li>
+ *     <li>done: millis - at the end of every answer of a daemon and every batch of changes of a watcher</li>
+ * </ul>
+ * The default package is named "" and an undefined decimal, such as the branching factor of a project without
+ * classes, is NaN. Subclasses only decide how a record is encoded.
+ */
+public abstract class RecordReportSink implements ReportSink {
+
+    /**
+     * This method starts a record.
+     * @param type - the type of the record
+     * @throws IOException if the record cannot be written
+     */
+    protected abstract void beginRecord(String type) throws IOException;
+
+    /**
+     * This method writes a string field of the current record.
+     * @param name - the field name
+     * @param value - the value
+     * @throws IOException if the record cannot be written
+     */
+    protected abstract void field(String name, String value) throws IOException;
+
+    /**
+     * This method writes an integer field of the current record.
+     * @param name - the field name
+     * @param value - the value
+     * @throws IOException if the record cannot be written
+     */
+    protected abstract void field(String name, long value) throws IOException;
+
+    /**
+     * This method writes a decimal field of the current record.
+     * @param name - the field name
+     * @param value - the value, possibly NaN
+     * @throws IOException if the record cannot be written
+     */
+    protected abstract void field(String name, double value) throws IOException;
+
+    /**
+     * This method writes a list field of the current record.
+     * @param name - the field name
+     * @param values - the values, in order
+     * @throws IOException if the record cannot be written
+     */
+    protected abstract void field(String name, List<String> values) throws IOException;
+
+    /**
+     * This method ends the current record.
+     * @throws IOException if the record cannot be written
+     */
+    protected abstract void endRecord() throws IOException;
+
+    @Override
+    public void file(FileFacts facts) throws IOException {
+        List<String> classes = new ArrayList<>(facts.getClasses().size());
+        for (FileFacts.ClassFacts declared : facts.getClasses()) {
+            classes.add(declared.getName());
+        }
+        long dependencies = 0;
+        for (Set<String> targets : facts.getDependencies().values()) {
+            dependencies += targets.size();
+        }
+        ComplexityHotSpots methods = facts.getMethodComplexity();
+        beginRecord("file");
+        field("path", facts.getPath());
+        field("classes", classes);
+        field("dependencies", dependencies);
+        field("methods", methods == null ? 0 : methods.getMethodCount());
+        field("complexity", methods == null ? 0 : methods.getTotalComplexity());
+        endRecord();
+    }
+
+    @Override
+    public void inheritance(InheritanceAnalyses inheritance) throws IOException {
+        beginRecord("inheritance");
+        field("maxBreadth", inheritance.getMaximumBreadth());
+        field("broadest", sorted(inheritance.findMaximumBreadth()));
+        field("averageBranchingFactor", inheritance.getAverageBranchingFactor());
+        field("maxDepth", inheritance.getMaximumDepth());
+        field("deepest", sorted(inheritance.findMaximumDepth()));
+        field("interfaces", inheritance.getNumberOfInterfaces());
+        field("mostImplemented", sorted(inheritance.findMostImplementedInterfaces()));
+        endRecord();
+        for (String name : inheritance.getClassNames()) {
+            beginRecord("class");
+            field("name", name);
+            field("depth", inheritance.getDepthOfInheritance(name));
+            field("descendants", inheritance.getNumberOfDescendants(name));
+            field("children", inheritance.getNumberOfChildren(name));
+            endRecord();
+        }
+    }
+
+    private static List<String> sorted(Map<String, ?> classes) {
+        List<String> names = new ArrayList<>(classes.keySet());
+        Collections.sort(names);
+        return names;
+    }
+
+    @Override
+    public void classGroups(CondensationGraph classes) throws IOException {
+        for (int component : classes.getCyclicComponents()) {
+            beginRecord("classGroup");
+            field("size", classes.getSize(component));
+            field("dependencies", classes.getInternalEdgeCount(component));
+            field("outgoing", classes.getOutgoingEdgeCount(component));
+            field("classes", classes.getMemberNames(component));
+            endRecord();
+        }
+    }
+
+    @Override
+    public void cycle(List<String> cycle) throws IOException {
+        beginRecord("cycle");
+        field("classes", cycle);
+        endRecord();
+    }
+
+    @Override
+    public void packageStructure(CondensationGraph classes, CondensationGraph packages) throws IOException {
+        beginRecord("condensation");
+        field("components", classes.getComponentCount());
+        field("dependencies", classes.getDependencyCount());
+        field("layers", classes.getLayerCount());
+        endRecord();
+        for (int component : packages.getCyclicComponents()) {
+            beginRecord("packageGroup");
+            field("size", packages.getSize(component));
+            field("dependencies", packages.getInternalEdgeCount(component));
+            field("packages", packages.getMemberNames(component));
+            endRecord();
+        }
+        List<int[]> layers = packages.getLayers();
+        for (int l = 0; l < layers.size(); l++) {
+            List<String> names = new ArrayList<>();
+            for (int component : layers.get(l)) {
+                names.addAll(packages.getMemberNames(component));
+            }
+            Collections.sort(names);
+            beginRecord("packageLayer");
+            field("layer", l);
+            field("packages", names);
+            endRecord();
+        }
+    }
+
+    @Override
+    public void complexity(ControlFlow controlFlow, int cyclomaticComplexity) throws IOException {
+        ComplexityHotSpots hotSpots = controlFlow.getHotSpots();
+        beginRecord("complexity");
+        field("cyclomatic", cyclomaticComplexity);
+        field("methods", hotSpots.getMethodCount());
+        field("totalComplexity", hotSpots.getTotalComplexity());
+        endRecord();
+        for (ComplexityHotSpots.MethodComplexity method : hotSpots.getHotSpots()) {
+            beginRecord("hotSpot");
+            field("method", method.getName());
+            field("complexity", method.getComplexity());
+            endRecord();
+        }
+        String[] labels = ComplexityHotSpots.getHistogramLabels();
+        long[] histogram = hotSpots.getHistogram();
+        for (int i = 0; i < labels.length; i++) {
+            beginRecord("complexityRange");
+            field("range", labels[i]);
+            field("methods", histogram[i]);
+            endRecord();
+        }
+    }
+
+    @Override
+    public void score(int score) throws IOException {
+        beginRecord("score");
+        field("score", score);
+        endRecord();
+    }
+
+    @Override
+    public void frontEnd(ParsePipeline pipeline, AnalysisCache cache, TypeResolver resolver, boolean parsed) throws IOException {
+        SourceLoader loader = pipeline.getLoader();
+        beginRecord("frontEnd");
+        field("files", pipeline.getFilesAnalyzed());
+        field("parsed", pipeline.getFilesParsed());
+        field("parseMillis", pipeline.getParseTimeMillis());
+        field("bytesRead", loader.getBytesRead());
+        field("filesMapped", loader.getFilesMapped());
+        field("decodeMillis", loader.getDecodeTimeMillis());
+        if (cache != null) {
+            field("cacheHits", cache.getHits());
+            field("cacheMisses", cache.getMisses());
+        }
+        if (resolver != null) {
+            field("projectClasses", resolver.getProjectTypeCount());
+            field("resolverHits", resolver.getCacheHits());
+            field("resolverMisses", resolver.getCacheMisses());
+        }
+        endRecord();
+    }
+
+    @Override
+    public void changes(List<String> updated, List<String> removed, InheritanceAnalyses inheritance, int cyclicGroups,
+                        List<List<String>> changedGroups) throws IOException {
+        for (String path : removed) {
+            beginRecord("removed");
+            field("path", path);
+            endRecord();
+        }
+        beginRecord("change");
+        field("updated", updated.size());
+        field("removed", removed.size());
+        field("maxBreadth", inheritance.getMaximumBreadth());
+        field("averageBranchingFactor", inheritance.getAverageBranchingFactor());
+        field("cyclicGroups", cyclicGroups);
+        endRecord();
+        for (List<String> group : changedGroups) {
+            beginRecord("changedGroup");
+            field("classes", group);
+            endRecord();
+        }
+    }
+
+    @Override
+    public void error(String message) throws IOException {
+        beginRecord("error");
+        field("message", message);
+        endRecord();
+    }
+
+    @Override
+    public void done(long millis) throws IOException {
+        beginRecord("done");
+        field("millis", millis);
+        endRecord();
+    }
+}
@@ -0,0 +1,125 @@
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * A destination for the results of StaticCodeAnalysis.
+ * Results are handed over as soon as they are known: every file as the pipeline accepts it, every cycle as it is
+ * found, and the project-wide results once the analyses have finished. A sink writes them out in its own format,
+ * buffered, and nothing is kept in memory once it has been written.
+ * Closing the sink flushes it and closes the stream it writes to. An AnalysisDaemon keeps one sink open for a whole
+ * session and flushes it after every answer, and a ProjectWatcher after every batch of changes.
+ */
+public interface ReportSink extends Closeable, Flushable {
+    /** The names of the formats create accepts, the first is the default. */
+    List<String> FORMATS = List.of("text", "jsonl", "binary");
+
+    /**
+     * This method creates a sink for one of the supported formats.
+     * @param format - text for the human readable report, jsonl for JSON Lines, binary for the compact binary format
+     * @param out - the stream to write to, closed with the sink
+     * @return the sink
+     * @throws IllegalArgumentException if the format is not supported
+     */
+    static ReportSink create(String format, OutputStream out) {
+        switch (format) {
+            case "text":
+                return new TextReportSink(out);
+            case "jsonl":
+                return new JsonLinesReportSink(out);
+            case "binary":
+                return new BinaryReportSink(out);
+            default:
+                throw new IllegalArgumentException("Unknown report format: " + format);
+        }
+    }
+
+    /**
+     * This method reports the facts of one file, in the order the pipeline accepts them.
+     * @param facts - the facts for the file
+     * @throws IOException if the report cannot be written
+     */
+    void file(FileFacts facts) throws IOException;
+
+    /**
+     * This method reports the inheritance hierarchy and its classes.
+     * @param inheritance - the finished inheritance analysis
+     * @throws IOException if the report cannot be written
+     */
+    void inheritance(InheritanceAnalyses inheritance) throws IOException;
+
+    /**
+     * This method reports the groups of mutually dependent classes, before their cycles.
+     * @param classes - the condensed class dependency graph
+     * @throws IOException if the report cannot be written
+     */
+    void classGroups(CondensationGraph classes) throws IOException;
+
+    /**
+     * This method reports one elementary cycle of class dependencies.
+     * @param cycle - the classes of the cycle, in dependency order
+     * @throws IOException if the report cannot be written
+     */
+    void cycle(List<String> cycle) throws IOException;
+
+    /**
+     * This method reports the layers of the class and package dependency graphs and the package cycles.
+     * @param classes - the condensed class dependency graph
+     * @param packages - the condensed package dependency graph, the default package is named ""
+     * @throws IOException if the report cannot be written
+     */
+    void packageStructure(CondensationGraph classes, CondensationGraph packages) throws IOException;
+
+    /**
+     * This method reports the control flow complexity of the project and its most complex methods.
+     * @param controlFlow - the finished control flow analysis
+     * @param cyclomaticComplexity - the cyclomatic complexity of the project
+     * @throws IOException if the report cannot be written
+     */
+    void complexity(ControlFlow controlFlow, int cyclomaticComplexity) throws IOException;
+
+    /**
+     * This method reports the overall quality score.
+     * @param score - the score, from 0 to 100
+     * @throws IOException if the report cannot be written
+     */
+    void score(int score) throws IOException;
+
+    /**
+     * This method reports how the project was read, parsed and resolved.
+     * @param pipeline - the pipeline that ran the analyses
+     * @param cache - the cache of per-file facts, null if caching is off
+     * @param resolver - the resolver for type names, null if names were guessed per file
+     * @param parsed - false if control flow was counted from tokens without parsing
+     * @throws IOException if the report cannot be written
+     */
+    void frontEnd(ParsePipeline pipeline, AnalysisCache cache, TypeResolver resolver, boolean parsed) throws IOException;
+
+    /**
+     * This method reports what changed when a ProjectWatcher brought the analyses up to date after files changed.
+     * @param updated - the paths of the files that were analysed again
+     * @param removed - the paths of the files that were deleted
+     * @param inheritance - the updated inheritance hierarchy
+     * @param cyclicGroups - the number of groups of mutually dependent classes in the project
+     * @param changedGroups - the groups that contain a class of an updated file, each sorted
+     * @throws IOException if the report cannot be written
+     */
+    void changes(List<String> updated, List<String> removed, InheritanceAnalyses inheritance, int cyclicGroups,
+                 List<List<String>> changedGroups) throws IOException;
+
+    /**
+     * This method reports a request that could not be answered, such as a file with syntax errors.
+     * @param message - what went wrong
+     * @throws IOException if the report cannot be written
+     */
+    void error(String message) throws IOException;
+
+    /**
+     * This method ends the answer to one request of an AnalysisDaemon, or one batch of changes of a ProjectWatcher.
+     * @param millis - the time taken to answer, in milliseconds
+     * @throws IOException if the report cannot be written
+     */
+    void done(long millis) throws IOException;
+}
@@ -0,0 +1,124 @@
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class decides which files and directories of a project are analyzed.
+ * Patterns are globs, such as "**&#47;generated/**" or "*.java". A pattern containing '/' is matched against the
+ * path relative to the project root; any other pattern is matched against the file or directory name only,
+ * so "target" skips every directory called target.
+ * A leading "**&#47;" also matches no directories at all, so "**&#47;generated/**" covers a generated directory at
+ * the project root as well as deeper ones, and a trailing "/**" also matches the directory itself, so an excluded
+ * directory is not walked into.
+ * A file is analyzed if it matches an include pattern and neither it nor any of its directories match an exclude pattern.
+ */
+public class SourceFilter {
+    private final List<PathMatcher> includes;
+    private final List<Boolean> includeOnName; // true if the include pattern applies to the name only
+    private final List<PathMatcher> excludes;
+    private final List<Boolean> excludeOnName; // true if the exclude pattern applies to the name only
+    private boolean followLinks; // whether symbolic links to directories are walked into
+
+    /**
+     * Constructor for the SourceFilter class. With no include pattern added, every .java file is included.
+     */
+    public SourceFilter() {
+        this.includes = new ArrayList<>();
+        this.includeOnName = new ArrayList<>();
+        this.excludes = new ArrayList<>();
+        this.excludeOnName = new ArrayList<>();
+        this.followLinks = false;
+    }
+
+    /**
+     * This method adds a pattern for files to analyze.
+     * @param glob - the pattern
+     * @return this filter
+     */
+    public SourceFilter include(String glob) {
+        includes.add(matcher(glob));
+        includeOnName.add(glob.indexOf('/') < 0);
+        return this;
+    }
+
+    /**
+     * This method adds a pattern for files and directories to skip.
+     * @param glob - the pattern
+     * @return this filter
+     */
+    public SourceFilter exclude(String glob) {
+        excludes.add(matcher(glob));
+        excludeOnName.add(glob.indexOf('/') < 0);
+        return this;
+    }
+
+    /**
+     * This method sets whether symbolic links to directories are followed. Link cycles are detected and skipped.
+     * @param followLinks - true to follow links
+     * @return this filter
+     */
+    public SourceFilter setFollowLinks(boolean followLinks) {
+        this.followLinks = followLinks;
+        return this;
+    }
+
+    /**
+     * This method returns whether symbolic links to directories are followed.
+     * @return true if links are followed
+     */
+    public boolean isFollowLinks() {
+        return followLinks;
+    }
+
+    /**
+     * This method returns whether a directory should be walked into.
+     * @param relative - the directory, relative to the project root
+     * @return false if the directory is excluded
+     */
+    public boolean acceptsDirectory(Path relative) {
+        return relative.toString().isEmpty() || !matchesAny(excludes, excludeOnName, relative);
+    }
+
+    /**
+     * This method returns whether a file should be analyzed.
+     * @param relative - the file, relative to the project root
+     * @return true if the file is included and not excluded
+     */
+    public boolean acceptsFile(Path relative) {
+        boolean included = includes.isEmpty()
+                ? relative.getFileName().toString().endsWith(".java")
+                : matchesAny(includes, includeOnName, relative);
+        return included && !matchesAny(excludes, excludeOnName, relative);
+    }
+
+    private static boolean matchesAny(List<PathMatcher> matchers, List<Boolean> onName, Path relative) {
+        for (int i = 0; i < matchers.size(); i++) {
+            Path subject = onName.get(i) ? relative.getFileName() : relative;
+            if (subject != null && matchers.get(i).matches(subject)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // A glob matcher that also matches without a leading **/ and without a trailing /**, which a plain glob
+    // requires at least one directory for
+    private static PathMatcher matcher(String glob) {
+        List<PathMatcher> alternatives = new ArrayList<>();
+        alternatives.add(FileSystems.getDefault().getPathMatcher("glob:" + glob));
+        String trimmed = glob;
+        if (trimmed.startsWith("**/")) {
+            trimmed = trimmed.substring(3);
+            alternatives.add(FileSystems.getDefault().getPathMatcher("glob:" + trimmed));
+        }
+        if (trimmed.endsWith("/**") && trimmed.length() > 3) {
+            alternatives.add(FileSystems.getDefault().getPathMatcher("glob:" + trimmed.substring(0, trimmed.length() - 3)));
+        }
+        if (alternatives.size() == 1) {
+            return alternatives.get(0);
+        }
+        return path -> alternatives.stream().anyMatch(matcher -> matcher.matches(path));
+    }
+}
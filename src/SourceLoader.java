@@ -0,0 +1,163 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class reads source files for the parser with as few copies as possible.
+ * Large files are memory mapped, small files are read with a single channel read into a direct buffer
+ * that each thread reuses, and the bytes are decoded into a char buffer that each thread also reuses.
+ * The parser reads the decoded characters in place, so a file is copied once, from bytes to chars.
+ * Buffers belong to the calling thread and are only valid until that thread loads its next file,
+ * except those returned by readDetached, which may be handed to another thread.
+ */
+public class SourceLoader {
+    private static final int MAP_THRESHOLD = 256 * 1024; // files of at least this many bytes are memory mapped
+    private static final int INITIAL_CAPACITY = 16 * 1024; // starting size of the per-thread buffers
+    private static final int MAX_POOLED_CHARS = 1024 * 1024; // decoded files larger than this get a one-off buffer
+
+    private final Charset charset;
+    private final ThreadLocal<ByteBuffer[]> byteBuffers; // one-element holder so the buffer can be replaced when grown
+    private final ThreadLocal<CharBuffer[]> charBuffers;
+    private final ThreadLocal<CharsetDecoder> decoders; // decoders are not thread safe
+    private final LongAdder bytesRead; // bytes read in the last run
+    private final LongAdder filesMapped; // files read through a memory mapping in the last run
+    private final LongAdder decodeNanos; // time spent decoding in the last run, summed over all threads
+
+    /**
+     * Constructor for the SourceLoader class.
+     * @param charset - the encoding of the source files
+     */
+    public SourceLoader(Charset charset) {
+        this.charset = charset;
+        this.byteBuffers = ThreadLocal.withInitial(() -> new ByteBuffer[] {ByteBuffer.allocateDirect(INITIAL_CAPACITY)});
+        this.charBuffers = ThreadLocal.withInitial(() -> new CharBuffer[] {CharBuffer.allocate(INITIAL_CAPACITY)});
+        // Malformed input is replaced rather than rejected, as an InputStreamReader would do
+        this.decoders = ThreadLocal.withInitial(() -> this.charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE));
+        this.bytesRead = new LongAdder();
+        this.filesMapped = new LongAdder();
+        this.decodeNanos = new LongAdder();
+    }
+
+    /**
+     * This method reads the raw bytes of a file.
+     * @param file - the file to read
+     * @return a buffer holding the content between its position and limit, valid until this thread reads again
+     * @throws IOException if the file cannot be read
+     */
+    public ByteBuffer read(Path file) throws IOException {
+        return read(file, true);
+    }
+
+    /**
+     * This method reads the raw bytes of a file into a buffer that is not reused, so the content can be handed to
+     * another thread. Reader threads that each load a single file would not benefit from a per-thread buffer anyway.
+     * @param file - the file to read
+     * @return a buffer holding the content between its position and limit, owned by the caller
+     * @throws IOException if the file cannot be read
+     */
+    public ByteBuffer readDetached(Path file) throws IOException {
+        return read(file, false);
+    }
+
+    // Reads a file, into the buffer of this thread if pooled and into a buffer of its own otherwise
+    private ByteBuffer read(Path file, boolean pooled) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= MAP_THRESHOLD) {
+                ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                filesMapped.increment();
+                bytesRead.add(size);
+                return mapped;
+            }
+
+            ByteBuffer buffer;
+            if (pooled) {
+                ByteBuffer[] holder = byteBuffers.get();
+                if (holder[0].capacity() < size) {
+                    holder[0] = ByteBuffer.allocateDirect(Math.max((int) size, holder[0].capacity() * 2));
+                }
+                buffer = holder[0];
+            } else {
+                buffer = ByteBuffer.allocate((int) size);
+            }
+            buffer.clear().limit((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // a channel may return fewer bytes than asked for, keep reading until the file is in
+            }
+            buffer.flip();
+            bytesRead.add(buffer.remaining());
+            return buffer;
+        }
+    }
+
+    /**
+     * This method decodes file content for the parser.
+     * The position of the given buffer is not changed, so it can still be hashed or decoded again.
+     * @param content - the bytes returned by read
+     * @return an array-backed buffer holding the characters between its position and limit,
+     *         valid until this thread decodes again
+     */
+    public CharBuffer decode(ByteBuffer content) {
+        long start = System.nanoTime();
+        CharsetDecoder decoder = decoders.get().reset();
+        int needed = (int) Math.ceil(content.remaining() * (double) decoder.maxCharsPerByte()) + 1;
+        CharBuffer[] holder = charBuffers.get();
+        CharBuffer chars;
+        if (needed > MAX_POOLED_CHARS) {
+            chars = CharBuffer.allocate(needed); // not kept, so one huge file does not pin its size for the whole run
+        } else {
+            if (holder[0].capacity() < needed) {
+                holder[0] = CharBuffer.allocate(Math.min(MAX_POOLED_CHARS, Math.max(needed, holder[0].capacity() * 2)));
+            }
+            chars = holder[0];
+            chars.clear();
+        }
+        decoder.decode(content.duplicate(), chars, true);
+        decoder.flush(chars);
+        chars.flip();
+        decodeNanos.add(System.nanoTime() - start);
+        return chars;
+    }
+
+    /**
+     * This method resets the statistics before a new run.
+     */
+    public void reset() {
+        bytesRead.reset();
+        filesMapped.reset();
+        decodeNanos.reset();
+    }
+
+    /**
+     * This method returns the number of bytes read since the last reset.
+     * @return the number of bytes read
+     */
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    /**
+     * This method returns the number of files read through a memory mapping since the last reset.
+     * @return the number of mapped files
+     */
+    public int getFilesMapped() {
+        return filesMapped.intValue();
+    }
+
+    /**
+     * This method returns the time spent decoding bytes to characters since the last reset, summed over all threads.
+     * @return decode time in milliseconds
+     */
+    public long getDecodeTimeMillis() {
+        return decodeNanos.sum() / 1_000_000;
+    }
+}
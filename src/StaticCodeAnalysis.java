@@ -1,96 +1,217 @@
 
+import com.github.javaparser.ast.CompilationUnit;
+
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
 
 public class StaticCodeAnalysis {
-    static Set<List<String>> cycles;
     static int numCycles;
-    static Map<String, SubClassCollection> broadest;
     static double avgBranchingFactor;
     static int cyclomaticComplexity;
     static int maxBreath;
     static InheritanceAnalyses ia ;
+    static ControlFlow controlFlow;
+    static TypeResolver resolver;
+    static CondensationGraph classCondensation;
+    static CondensationGraph packageCondensation;
+    static DependencyCycles cyclicDeps;
     public static void main(String[] args) {
-        String folder = "";
+        AnalysisOptions options;
         try{
-            folder = args[0];
-        } catch (Exception e){
-            System.out.println("First argument should be the path to your project folder");
+            options = AnalysisOptions.parse(args);
+        } catch (IllegalArgumentException e){
+            System.out.println(e.getMessage());
+            return;
+        }
+        if (options.isDaemon()) {
+            runDaemon(options);
+            return;
+        }
+        if (options.isWatch()) {
+            runWatch(options);
             return;
         }
 
+        OutputStream out = System.out;
         try {
-            ia = new InheritanceAnalyses(folder);
-            broadest = ia.findMaximumBreadth();
-            avgBranchingFactor = ia.findAverageBranchingFactor();
-
-            
-            //Daniel
-
-            // Create an instance of the CyclicDependencies analyzer.
-            DependencyCycles cyclicDeps = new DependencyCycles();
+            if (options.getOutputFile() != null) {
+                out = Files.newOutputStream(Paths.get(options.getOutputFile()));
+            }
+        } catch (IOException e) {
+            System.out.println("Cannot write the report to " + options.getOutputFile() + ": " + e.getMessage());
+            return;
+        }
 
-            // Parse the project directory to build the dependency graph.
-            File file = new File(folder);
-            cyclicDeps.parseProject(file);
+        try (ReportSink sink = ReportSink.create(options.getFormat(), out)) {
+            // Parse the project once and share every AST between the analyses.
+            ParsePipeline pipeline = createPipeline(options);
+            pipeline.register(new FileReporter(sink));
+            AnalysisCache cache = openCache(options);
+            pipeline.setCache(cache);
+            pipeline.run(new File(options.getFolder()));
+            if (cache != null) {
+                cache.save();
+            }
+            for (Map.Entry<File, Exception> skipped : pipeline.getSkippedFiles().entrySet()) {
+                String reason = String.valueOf(skipped.getValue().getMessage()).lines().findFirst().orElse("");
+                sink.error(skipped.getKey() + " was skipped: " + reason);
+            }
+            report(sink, options, pipeline, cache);
+        } catch (Exception e) {
+            // Print any exceptions that occur during parsing or analysis.
+            e.printStackTrace();
+        }
+    }
 
-            // Check for cyclic dependencies and print the result.
-            cycles = cyclicDeps.getCycles();
-            numCycles = cycles.size();
- 
+    // Loads the project once and then answers requests until the input ends, see AnalysisDaemon
+    private static void runDaemon(AnalysisOptions options) {
+        try {
+            ParsePipeline pipeline = createPipeline(options);
+            ProjectModel model = loadProject(options, pipeline);
+            AnalysisDaemon daemon = new AnalysisDaemon(options, model, pipeline);
+            if (options.getDaemonPort() > 0) {
+                daemon.listen(options.getDaemonPort());
+            } else {
+                daemon.serve(System.in, System.out);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
 
-            //Arman
-            ControlFlow controlFlow = new ControlFlow();
-            controlFlow.parseProject(file);
-            cyclomaticComplexity = ControlFlow.calculateCyclometicComplexity();
-            printReport();
+    // Reports the project once and then every change to its files, until the process is stopped, see ProjectWatcher
+    private static void runWatch(AnalysisOptions options) {
+        try (ReportSink sink = ReportSink.create(options.getFormat(), System.out)) {
+            long start = System.nanoTime();
+            ParsePipeline pipeline = createPipeline(options);
+            ProjectModel model = loadProject(options, pipeline);
+            report(sink, options, pipeline, null);
+            sink.done((System.nanoTime() - start) / 1_000_000);
+            sink.flush();
+            new ProjectWatcher(model, pipeline, cyclicDeps).watch(sink);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
 
+    // Creates the pipeline the options ask for, with a fresh set of analyses registered, see createAnalyses.
+    // Files with syntax errors are left out rather than losing the whole report; a daemon or watcher that loaded
+    // without them finds them changed and reports them on its first answer.
+    static ParsePipeline createPipeline(AnalysisOptions options) {
+        ParsePipeline pipeline = new ParsePipeline(options.getThreads())
+                .setSkipUnparsable(true)
+                .setReadAhead(options.isReadAhead())
+                .setFilter(options.getFilter());
+        createAnalyses(options).forEach(pipeline::register);
+        return pipeline;
+    }
 
+    // Loads every file of the project into a model with the registered analyses
+    private static ProjectModel loadProject(AnalysisOptions options, ParsePipeline pipeline) throws Exception {
+        ProjectModel model = new ProjectModel(new File(options.getFolder()), pipeline, options.getFilter());
+        // Cached facts speed up loading, but the edits of a session are not worth caching
+        AnalysisCache loadCache = openCache(options);
+        pipeline.setCache(loadCache);
+        model.load();
+        if (loadCache != null) {
+            loadCache.save();
+        }
+        pipeline.setCache(null);
+        return model;
+    }
 
+    // Creates a fresh set of analyses for the options, in the order they are registered.
+    // In the fast mode only control flow is counted, from tokens, and nothing is parsed.
+    static List<Analyzer> createAnalyses(AnalysisOptions options) {
+        controlFlow = new ControlFlow(options.getHotSpots(), options.isComplexityOnly());
+        if (options.isComplexityOnly()) {
+            ia = null;
+            cyclicDeps = null;
+            return List.of(controlFlow);
+        }
+        ia = new InheritanceAnalyses();
+        cyclicDeps = new DependencyCycles(options.isAccurate() ? new TypeResolver() : null);
+        return List.of(ia, cyclicDeps, controlFlow);
+    }
 
-        } catch (Exception e) {
-            // Print any exceptions that occur during parsing or analysis.
-            e.printStackTrace();
+    // Opens the cache of per-file facts, or returns null if caching is off
+    private static AnalysisCache openCache(AnalysisOptions options) {
+        if (options.getCacheFile() == null) {
+            return null;
         }
+        // Cached facts are only valid for the same number of hot spots and the same analyses
+        String fingerprint = "top=" + options.getHotSpots() + (options.isComplexityOnly() ? ",fast" : "")
+                + (options.isAccurate() ? ",accurate" : "");
+        return new AnalysisCache(Paths.get(options.getCacheFile()), fingerprint);
     }
 
-    static void printReport(){
-        // Inheritence analysis
-        maxBreath = ia.getMaximumBreadth();
-        System.out.println("The Maximum Breadth of the inheritance hierarchy in this directory is " + maxBreath);
-        System.out.println("The following classes have "+ maxBreath +" subclasses : ");
-        for(Entry<String, SubClassCollection> entry : broadest.entrySet()) {    
-            System.out.println("\t- "+ entry.getKey() + ", with subclasses:");
-            entry.getValue().getSubClasses().forEach((child) -> {
-                System.out.println("\t\t- "+child);
-            });
-        };
-        System.out.println("Average branching factor for the inheritence hierarchy is : " + avgBranchingFactor +" children per class");
-
-        // Dependency Cycles
-        if (cycles.size() > 0) {
-            System.out.println("Cyclic dependencies found!");
-            for (List<String> cycle : cycles) {
-                printCycle(cycle);
+    // Reports the results of the analyses created last, once they have accepted every file.
+    // The cache is null if caching is off.
+    static void report(ReportSink sink, AnalysisOptions options, ParsePipeline pipeline, AnalysisCache cache) throws IOException {
+        resolver = null;
+        if (cyclicDeps != null) {
+            resolver = cyclicDeps.getResolver();
+            ia.findMaximumBreadth();
+            maxBreath = ia.getMaximumBreadth();
+            avgBranchingFactor = ia.findAverageBranchingFactor();
+            sink.inheritance(ia);
+
+            // Check for cyclic dependencies and report each cycle as soon as it is found.
+            classCondensation = cyclicDeps.getClassCondensation();
+            packageCondensation = cyclicDeps.getPackageCondensation();
+            List<Integer> cyclicComponents = classCondensation.getCyclicComponents();
+            sink.classGroups(classCondensation);
+            // The score counts the cycles found, as it did before cycles were grouped into components
+            numCycles = 0;
+            for (int component : cyclicComponents) {
+                for (List<String> cycle : classCondensation.getCycles(component, options.getCyclesPerComponent())) {
+                    sink.cycle(cycle);
+                    numCycles++;
+                }
             }
-        } else {
-            System.out.println("No cyclic dependencies detected.");
+            sink.packageStructure(classCondensation, packageCondensation);
         }
 
-        // Cyclomatic Complexity
-        System.out.println("The cyclomatic complexity is: " + cyclomaticComplexity);
-        System.out.println("Overall quality score: " + calcuateScore());
-
+        cyclomaticComplexity = controlFlow.calculateCyclometicComplexity();
+        sink.complexity(controlFlow, cyclomaticComplexity);
+        if (ia != null) {
+            sink.score(calcuateScore());
+        }
+        sink.frontEnd(pipeline, cache, resolver, ia != null);
     }
 
-    static private void printCycle(List<String> cycle) {
-        String output = String.join(" -> ", cycle);
+    // Reports every file as the pipeline accepts it, once every analysis has extracted its facts
+    private static class FileReporter implements Analyzer {
+        private final ReportSink sink;
 
-        output += " -> " + cycle.get(0);
-        System.out.println(output);
+        FileReporter(ReportSink sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void extract(CompilationUnit cu, FileFacts facts) {
+        }
+
+        @Override
+        public boolean extractFromSource(CharBuffer source, FileFacts facts) {
+            return true; // needs no facts of its own
+        }
+
+        @Override
+        public void accept(FileFacts facts) {
+            try {
+                sink.file(facts);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
     }
 
     static private int calcuateScore(){
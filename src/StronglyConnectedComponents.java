@@ -0,0 +1,229 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class finds the strongly connected components of a directed graph with Tarjan's algorithm.
+ * The graph is given in compressed sparse row form: the successors of node v are
+ * targets[offsets[v]] .. targets[offsets[v + 1] - 1].
+ * The depth first search keeps its own stack, so it runs in O(V + E) without recursion
+ * and cannot overflow the call stack on long dependency chains.
+ */
+public class StronglyConnectedComponents {
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] component; // component id of every node
+    private final List<int[]> members; // nodes of every component, in the order Tarjan completes them
+    private int[] parent; // breadth first search links, shared by every findCycles call
+
+    /**
+     * Constructor for the StronglyConnectedComponents class. Computes the components immediately.
+     * @param nodeCount - number of nodes in the graph
+     * @param offsets - start of every node's successors in targets, with offsets[nodeCount] == targets.length
+     * @param targets - successors of all nodes, grouped by node
+     */
+    public StronglyConnectedComponents(int nodeCount, int[] offsets, int[] targets) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.component = new int[nodeCount];
+        this.members = new ArrayList<>();
+        compute(nodeCount);
+    }
+
+    // Iterative Tarjan: callStack/edgeCursor replace the recursion of the textbook version
+    private void compute(int nodeCount) {
+        int[] index = new int[nodeCount];
+        int[] lowLink = new int[nodeCount];
+        boolean[] onStack = new boolean[nodeCount];
+        int[] stack = new int[nodeCount]; // Tarjan's stack of visited, unassigned nodes
+        int[] callStack = new int[nodeCount]; // nodes whose successors are being explored
+        int[] edgeCursor = new int[nodeCount]; // next edge to explore for each call stack entry
+        Arrays.fill(index, -1);
+        int nextIndex = 0;
+        int stackSize = 0;
+
+        for (int root = 0; root < nodeCount; root++) {
+            if (index[root] != -1) {
+                continue;
+            }
+            int depth = 0;
+            callStack[depth] = root;
+            edgeCursor[depth] = offsets[root];
+            index[root] = lowLink[root] = nextIndex++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+            depth++;
+
+            while (depth > 0) {
+                int v = callStack[depth - 1];
+                if (edgeCursor[depth - 1] < offsets[v + 1]) {
+                    int w = targets[edgeCursor[depth - 1]++];
+                    if (index[w] == -1) {
+                        callStack[depth] = w;
+                        edgeCursor[depth] = offsets[w];
+                        index[w] = lowLink[w] = nextIndex++;
+                        stack[stackSize++] = w;
+                        onStack[w] = true;
+                        depth++;
+                    } else if (onStack[w]) {
+                        lowLink[v] = Math.min(lowLink[v], index[w]);
+                    }
+                    continue;
+                }
+
+                // All successors of v explored
+                depth--;
+                if (lowLink[v] == index[v]) {
+                    int id = members.size();
+                    int start = stackSize;
+                    do {
+                        start--;
+                        onStack[stack[start]] = false;
+                        component[stack[start]] = id;
+                    } while (stack[start] != v);
+                    members.add(Arrays.copyOfRange(stack, start, stackSize));
+                    stackSize = start;
+                }
+                if (depth > 0) {
+                    int parent = callStack[depth - 1];
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[v]);
+                }
+            }
+        }
+    }
+
+    /**
+     * This method returns the number of components.
+     * @return the number of components
+     */
+    public int getComponentCount() {
+        return members.size();
+    }
+
+    /**
+     * This method returns the component a node belongs to.
+     * Components are numbered in reverse topological order: edges only lead to components with a lower or equal id.
+     * @param node - the node
+     * @return the component id
+     */
+    public int getComponent(int node) {
+        return component[node];
+    }
+
+    /**
+     * This method returns the nodes of a component.
+     * @param id - the component id
+     * @return the nodes in the component
+     */
+    public int[] getMembers(int id) {
+        return members.get(id);
+    }
+
+    /**
+     * This method returns whether a component contains a cycle,
+     * i.e. it has more than one node or its only node depends on itself.
+     * @param id - the component id
+     * @return true if the component is cyclic
+     */
+    public boolean isCyclic(int id) {
+        int[] nodes = members.get(id);
+        if (nodes.length > 1) {
+            return true;
+        }
+        int v = nodes[0];
+        for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+            if (targets[e] == v) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * This method finds up to limit distinct elementary cycles inside a component.
+     * For each member in turn it takes the shortest cycle through that member (breadth first, inside the component),
+     * so the cost is bounded by limit searches over the component rather than by the number of cycles.
+     * @param id - the component id
+     * @param limit - maximum number of cycles to return
+     * @return cycles as node lists, each rotated to start at its smallest node id
+     */
+    public List<int[]> findCycles(int id, int limit) {
+        List<int[]> cycles = new ArrayList<>();
+        if (limit <= 0 || !isCyclic(id)) {
+            return cycles;
+        }
+        int[] nodes = members.get(id).clone();
+        Arrays.sort(nodes);
+        if (parent == null) {
+            parent = new int[component.length];
+        }
+        int[] queue = new int[nodes.length];
+        int attempts = Math.min(nodes.length, limit * 4); // duplicates are likely, but keep the work bounded
+
+        for (int a = 0; a < attempts && cycles.size() < limit; a++) {
+            int start = nodes[a];
+            int[] cycle = shortestCycleThrough(start, id, queue, nodes);
+            if (cycle != null && cycles.stream().noneMatch(c -> Arrays.equals(c, cycle))) {
+                cycles.add(cycle);
+            }
+        }
+        return cycles;
+    }
+
+    // Breadth first search from start back to start, restricted to component id
+    private int[] shortestCycleThrough(int start, int id, int[] queue, int[] nodes) {
+        for (int v : nodes) {
+            parent[v] = -1;
+        }
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        while (head < tail) {
+            int v = queue[head++];
+            for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                int w = targets[e];
+                if (component[w] != id) {
+                    continue;
+                }
+                if (w == start) {
+                    return rotate(pathTo(v, start, parent));
+                }
+                if (parent[w] == -1) {
+                    parent[w] = v;
+                    queue[tail++] = w;
+                }
+            }
+        }
+        return null;
+    }
+
+    // Walks the parent links back from end to start
+    private static int[] pathTo(int end, int start, int[] parent) {
+        int length = 1;
+        for (int v = end; v != start; v = parent[v]) {
+            length++;
+        }
+        int[] path = new int[length];
+        int v = end;
+        for (int i = length - 1; i >= 0; i--) {
+            path[i] = v;
+            v = i > 0 ? parent[v] : v;
+        }
+        return path;
+    }
+
+    // Rotates a cycle so that it starts at its smallest node
+    private static int[] rotate(int[] cycle) {
+        int min = 0;
+        for (int i = 1; i < cycle.length; i++) {
+            if (cycle[i] < cycle[min]) {
+                min = i;
+            }
+        }
+        int[] rotated = new int[cycle.length];
+        for (int i = 0; i < cycle.length; i++) {
+            rotated[i] = cycle[(min + i) % cycle.length];
+        }
+        return rotated;
+    }
+}
@@ -7,6 +7,8 @@ public class SubClassCollection {
     private String parentClassName; // the name of the parent class
     private boolean isParentClass; // true if the class is a parent class, false otherwise
     private HashSet<String> subClasses; // the set of subclasses
+    private int depth; // the number of ancestors of the class within the directory
+    private int numberOfDescendants; // the number of direct and indirect subclasses of the class
 
     /**
      * Constructor for the SubClassCollection class.
@@ -35,6 +37,14 @@ public class SubClassCollection {
         this.subClasses.add(subClass);
     }
 
+    /**
+     * This method removes a subclass from the subClasses set.
+     * @param subClass - the name of the subclass
+     */
+    public void removeSubClass(String subClass) {
+        this.subClasses.remove(subClass);
+    }
+
     /**
      * This method returns whether the class is a parent class or not.
      * @return - boolean - true if the class is a parent class, false otherwise.
@@ -66,4 +76,37 @@ public class SubClassCollection {
     public int getNumberOfSubClasses() {
         return this.subClasses.size();
     }
+
+    /**
+     * This method sets the depth of the class in the inheritance hierarchy.
+     * @param depth - the number of ancestors of the class within the directory
+     */
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    /**
+     * This method returns the depth of the class in the inheritance hierarchy.
+     * A class whose parent is not in the directory has depth 0.
+     * @return - int - the number of ancestors of the class within the directory.
+     */
+    public int getDepth() {
+        return this.depth;
+    }
+
+    /**
+     * This method sets the number of descendants of the class.
+     * @param numberOfDescendants - the number of direct and indirect subclasses
+     */
+    public void setNumberOfDescendants(int numberOfDescendants) {
+        this.numberOfDescendants = numberOfDescendants;
+    }
+
+    /**
+     * This method returns the number of descendants of the class.
+     * @return - int - the number of direct and indirect subclasses.
+     */
+    public int getNumberOfDescendants() {
+        return this.numberOfDescendants;
+    }
 }
@@ -0,0 +1,107 @@
+import java.util.Arrays;
+
+/**
+ * This class interns names, such as fully qualified class names, to dense int ids.
+ * Ids are handed out in first-seen order starting at 0, so they can index plain arrays.
+ * Lookups use open addressing over an int array, so no Integer or map entry is allocated per name.
+ */
+public class SymbolTable {
+    private String[] names; // name of every id
+    private int[] hashes; // hash of every id's name, kept to avoid recomputing on resize
+    private int[] slots; // open addressing table, holds id + 1, 0 marks an empty slot
+    private int size; // number of interned names
+
+    /**
+     * Constructor for the SymbolTable class.
+     */
+    public SymbolTable() {
+        this.names = new String[16];
+        this.hashes = new int[16];
+        this.slots = new int[32];
+        this.size = 0;
+    }
+
+    /**
+     * This method returns the id of a name, assigning the next free id if the name is new.
+     * @param name - the name to intern
+     * @return the id of the name
+     */
+    public int intern(String name) {
+        int hash = spread(name.hashCode());
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == 0) {
+                int id = size++;
+                if (id == names.length) {
+                    names = Arrays.copyOf(names, id * 2);
+                    hashes = Arrays.copyOf(hashes, id * 2);
+                }
+                names[id] = name;
+                hashes[id] = hash;
+                slots[slot] = id + 1;
+                if (size * 2 > slots.length) {
+                    rehash();
+                }
+                return id;
+            }
+            if (hashes[entry - 1] == hash && names[entry - 1].equals(name)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    /**
+     * This method returns the id of a name without interning it.
+     * @param name - the name to look up
+     * @return the id of the name, or -1 if it has not been interned
+     */
+    public int find(String name) {
+        int hash = spread(name.hashCode());
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            if (hashes[entry - 1] == hash && names[entry - 1].equals(name)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    /**
+     * This method returns the name of an id.
+     * @param id - the id
+     * @return the name
+     */
+    public String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * This method returns the number of interned names.
+     * @return the number of names, ids run from 0 to size() - 1
+     */
+    public int size() {
+        return size;
+    }
+
+    // Doubles the slot table, keeping it at most half full
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+
+    // Mixes the high bits of a hash code into the low bits used for slot selection
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,211 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+
+/**
+ * This class writes the human readable report of StaticCodeAnalysis, buffered.
+ * It reports on the project as a whole, so the facts of single files are not written.
+ * Write errors are only noticed when the sink is closed.
+ */
+public class TextReportSink implements ReportSink {
+    static final int NAMES_PER_LAYER = 10; // packages listed for each layer of the package graph
+    static final int NAMES_PER_CHANGED_GROUP = 10; // classes listed for each changed group, reported on every save
+
+    private final PrintWriter out;
+
+    /**
+     * Constructor for the TextReportSink class.
+     * @param out - the stream to write to, in the platform's default charset
+     */
+    public TextReportSink(OutputStream out) {
+        this.out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(out), 1 << 16));
+    }
+
+    @Override
+    public void file(FileFacts facts) {
+    }
+
+    @Override
+    public void inheritance(InheritanceAnalyses ia) {
+        int maxBreath = ia.getMaximumBreadth();
+        out.println("The Maximum Breadth of the inheritance hierarchy in this directory is " + maxBreath);
+        out.println("The following classes have "+ maxBreath +" subclasses : ");
+        for(Entry<String, SubClassCollection> entry : ia.findMaximumBreadth().entrySet()) {
+            out.println("\t- "+ entry.getKey() + ", with subclasses:");
+            entry.getValue().getSubClasses().forEach((child) -> {
+                out.println("\t\t- "+child);
+            });
+        };
+        out.println("Average branching factor for the inheritence hierarchy is : " + ia.getAverageBranchingFactor() +" children per class");
+        List<String> deepest = new ArrayList<>(ia.findMaximumDepth().keySet());
+        Collections.sort(deepest);
+        out.println("The Maximum Depth of the inheritance hierarchy in this directory is " + ia.getMaximumDepth()
+                + (deepest.isEmpty() ? "" : ", reached by: " + String.join(", ", deepest)));
+        List<String> mostImplemented = new ArrayList<>(ia.findMostImplementedInterfaces().keySet());
+        if (!mostImplemented.isEmpty()) {
+            Collections.sort(mostImplemented);
+            out.println("The most implemented of " + ia.getNumberOfInterfaces() + " interfaces, with "
+                    + ia.getImplementors(mostImplemented.get(0)).size() + " implementing classes: " + String.join(", ", mostImplemented));
+        }
+    }
+
+    @Override
+    public void classGroups(CondensationGraph classes) {
+        List<Integer> cyclic = classes.getCyclicComponents();
+        if (cyclic.isEmpty()) {
+            out.println("No cyclic dependencies detected.");
+            return;
+        }
+        out.println("Cyclic dependencies found in " + cyclic.size() + " groups of classes!");
+        for (int component : cyclic) {
+            out.println("\t- " + classes.getSize(component) + " classes, "
+                    + classes.getInternalEdgeCount(component) + " dependencies between them: "
+                    + String.join(", ", classes.getMemberNames(component)));
+        }
+    }
+
+    @Override
+    public void cycle(List<String> cycle) {
+        out.print(String.join(" -> ", cycle));
+        out.println(" -> " + cycle.get(0));
+    }
+
+    @Override
+    public void packageStructure(CondensationGraph classes, CondensationGraph packages) {
+        out.println("The class dependency graph condenses to " + classes.getComponentCount()
+                + " components in " + classes.getLayerCount() + " layers");
+        List<Integer> cyclicPackages = packages.getCyclicComponents();
+        if (cyclicPackages.isEmpty()) {
+            out.println("No cyclic dependencies between packages detected.");
+        } else {
+            out.println("Cyclic dependencies between packages found in " + cyclicPackages.size() + " groups!");
+            for (int component : cyclicPackages) {
+                out.println("\t- " + packages.getSize(component) + " packages, "
+                        + packages.getInternalEdgeCount(component) + " dependencies between them: "
+                        + String.join(", ", packageNames(packages.getMemberNames(component))));
+            }
+        }
+        out.println("Package layers, from packages that depend on no other package up:");
+        List<int[]> layers = packages.getLayers();
+        for (int l = 0; l < layers.size(); l++) {
+            List<String> names = new ArrayList<>();
+            for (int component : layers.get(l)) {
+                names.addAll(packageNames(packages.getMemberNames(component)));
+            }
+            Collections.sort(names);
+            String listed = String.join(", ", names.subList(0, Math.min(NAMES_PER_LAYER, names.size())));
+            out.println("\tLayer " + l + ": " + names.size() + " packages, " + listed
+                    + (names.size() > NAMES_PER_LAYER ? ", ..." : ""));
+        }
+    }
+
+    // Names the default package, which has an empty name
+    static List<String> packageNames(List<String> packages) {
+        List<String> names = new ArrayList<>(packages.size());
+        for (String name : packages) {
+            names.add(name.isEmpty() ? "(default package)" : name);
+        }
+        return names;
+    }
+
+    @Override
+    public void complexity(ControlFlow controlFlow, int cyclomaticComplexity) {
+        out.println("The cyclomatic complexity is: " + cyclomaticComplexity);
+        ComplexityHotSpots hotSpots = controlFlow.getHotSpots();
+        out.println("The most complex of " + hotSpots.getMethodCount() + " methods and constructors are:");
+        for (ComplexityHotSpots.MethodComplexity method : hotSpots.getHotSpots()) {
+            out.println("\t- " + method.getName() + " : " + method.getComplexity());
+        }
+        String[] labels = ComplexityHotSpots.getHistogramLabels();
+        long[] histogram = hotSpots.getHistogram();
+        out.println("Methods per complexity range:");
+        for (int i = 0; i < labels.length; i++) {
+            out.println("\t" + labels[i] + " : " + histogram[i]);
+        }
+    }
+
+    @Override
+    public void score(int score) {
+        out.println("Overall quality score: " + score);
+    }
+
+    @Override
+    public void frontEnd(ParsePipeline pipeline, AnalysisCache cache, TypeResolver resolver, boolean parsed) {
+        if (cache != null) {
+            out.println("Reused cached facts for " + cache.getHits() + " of " + pipeline.getFilesAnalyzed()
+                    + " files, " + cache.getMisses() + " changed or new");
+        }
+        if (!parsed) {
+            out.println("Counted control flow in " + pipeline.getFilesAnalyzed() + " files from tokens, without parsing");
+        } else {
+            out.println("Parsed " + pipeline.getFilesParsed() + " files once in " + pipeline.getParseTimeMillis()
+                    + " ms, saving about " + pipeline.getParseTimeSavedMillis() + " ms of repeated parsing");
+        }
+        SourceLoader loader = pipeline.getLoader();
+        out.println("Read " + loader.getBytesRead() / 1024 + " KB of source (" + loader.getFilesMapped()
+                + " files memory mapped), decoded in " + loader.getDecodeTimeMillis() + " ms");
+        if (resolver != null) {
+            out.println("Resolved type names against " + resolver.getProjectTypeCount() + " project classes: "
+                    + resolver.getCacheHits() + " cache hits, " + resolver.getCacheMisses() + " misses");
+        }
+    }
+
+    @Override
+    public void changes(List<String> updated, List<String> removed, InheritanceAnalyses ia, int cyclicGroups,
+                        List<List<String>> changedGroups) {
+        if (!updated.isEmpty()) {
+            out.println("Changed: " + String.join(", ", updated));
+        }
+        if (!removed.isEmpty()) {
+            out.println("Removed: " + String.join(", ", removed));
+        }
+        out.println("The Maximum Breadth of the inheritance hierarchy is now " + ia.getMaximumBreadth()
+                + ", the average branching factor " + ia.getAverageBranchingFactor() + " children per class");
+        if (cyclicGroups == 0) {
+            out.println("No cyclic dependencies detected.");
+        } else if (changedGroups.isEmpty()) {
+            out.println("Cyclic dependencies in " + cyclicGroups + " groups of classes, none with a changed class.");
+        } else {
+            out.println("Cyclic dependencies in " + cyclicGroups + " groups of classes, the changed classes are in:");
+            for (List<String> group : changedGroups) {
+                out.println("\t- " + group.size() + " classes: "
+                        + String.join(", ", group.subList(0, Math.min(NAMES_PER_CHANGED_GROUP, group.size())))
+                        + (group.size() > NAMES_PER_CHANGED_GROUP ? ", ..." : ""));
+            }
+        }
+    }
+
+    @Override
+    public void error(String message) {
+        out.println("Error: " + message);
+    }
+
+    // Ends an answer with an empty line, which no other line of the report is
+    @Override
+    public void done(long millis) {
+        out.println("Answered in " + millis + " ms");
+        out.println();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+        if (out.checkError()) {
+            throw new IOException("The report could not be written");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+        if (out.checkError()) {
+            throw new IOException("The report could not be written");
+        }
+    }
+}
@@ -0,0 +1,258 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * This class resolves the type names that a file cannot resolve on its own, once every class of the project is known.
+ * A name that is neither declared in its file nor imported by name could belong to the file's package, to any
+ * package imported on demand, or to java.lang, and which one only shows once the whole project has been read.
+ * Such a name is recorded as a deferred reference: the name together with the file's package and on-demand imports.
+ * Resolving it follows the order of the Java language: the same package first, then the on-demand imports,
+ * then java.lang, checking each candidate against the project's own classes and the classes of the platform.
+ * Files of one package mostly share their imports, so the same deferred reference turns up in file after file;
+ * resolved references are kept in a size-bounded least recently used cache shared by all files and threads.
+ * Adding or removing a project class drops the cached references that a class of its simple name could change.
+ */
+public class TypeResolver {
+    /** Number of resolved references kept by default. */
+    public static final int DEFAULT_CACHE_SIZE = 1 << 16;
+
+    private static final char DEFERRED = '?'; // first character of a deferred reference, never part of a Java name
+    private static final char SEPARATOR = '|'; // separates the name, package and on-demand imports of a reference
+
+    private final Set<String> projectTypes; // fully qualified names of every class declared in the project
+    private final LeastRecentlyUsed<String, String> references; // deferred reference -> fully qualified name
+    private final LeastRecentlyUsed<String, Boolean> platformTypes; // fully qualified name -> is a platform class
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    /**
+     * Constructor for the TypeResolver class, with the default cache size.
+     */
+    public TypeResolver() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Constructor for the TypeResolver class.
+     * @param cacheSize - the most resolved references to keep
+     */
+    public TypeResolver(int cacheSize) {
+        if (cacheSize < 1) {
+            throw new IllegalArgumentException("Cache size must be at least 1, got " + cacheSize);
+        }
+        this.projectTypes = ConcurrentHashMap.newKeySet();
+        this.references = new LeastRecentlyUsed<>(cacheSize);
+        this.platformTypes = new LeastRecentlyUsed<>(cacheSize);
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+    }
+
+    /**
+     * This method builds a deferred reference to a type name.
+     * @param name - the name as written, possibly qualified like Outer.Inner
+     * @param packageName - the package of the file, empty for the default package
+     * @param onDemandImports - the packages and classes the file imports with .*
+     * @return the deferred reference
+     */
+    public static String defer(String name, String packageName, Iterable<String> onDemandImports) {
+        StringBuilder reference = new StringBuilder().append(DEFERRED).append(name).append(SEPARATOR).append(packageName);
+        for (String imported : onDemandImports) {
+            reference.append(SEPARATOR).append(imported);
+        }
+        return reference.toString();
+    }
+
+    /**
+     * This method tells a deferred reference from a name that is already resolved.
+     * @param name - a type name or deferred reference
+     * @return true if the name still needs resolving
+     */
+    public static boolean isDeferred(String name) {
+        return !name.isEmpty() && name.charAt(0) == DEFERRED;
+    }
+
+    /**
+     * This method adds a class declared in the project. Project classes take precedence over platform classes.
+     * @param fullyQualifiedName - the name of the class
+     */
+    public void addProjectType(String fullyQualifiedName) {
+        if (projectTypes.add(fullyQualifiedName)) {
+            forget(fullyQualifiedName);
+        }
+    }
+
+    /**
+     * This method removes a class that is no longer declared in the project, for example because its file was deleted.
+     * @param fullyQualifiedName - the name of the class
+     */
+    public void removeProjectType(String fullyQualifiedName) {
+        if (projectTypes.remove(fullyQualifiedName)) {
+            forget(fullyQualifiedName);
+        }
+    }
+
+    // Drops the cached references whose first name is the simple name of the class, as only they can resolve to it
+    // or may have resolved to it before
+    private void forget(String fullyQualifiedName) {
+        String simpleName = fullyQualifiedName.substring(fullyQualifiedName.lastIndexOf('.') + 1);
+        references.removeIf(reference -> firstName(reference).equals(simpleName));
+    }
+
+    // Returns the first segment of the name in a deferred reference, Map for Map.Entry
+    private static String firstName(String reference) {
+        int end = reference.indexOf(SEPARATOR);
+        int dot = reference.indexOf('.');
+        return reference.substring(1, dot > 0 && dot < end ? dot : end);
+    }
+
+    /**
+     * This method resolves a type name. It may be called from several threads at once.
+     * @param name - a deferred reference, or a name that is already fully qualified
+     * @return the fully qualified name
+     */
+    public String resolve(String name) {
+        if (!isDeferred(name)) {
+            return name;
+        }
+        String resolved = references.get(name);
+        if (resolved != null) {
+            hits.increment();
+            return resolved;
+        }
+        misses.increment();
+        resolved = lookUp(name);
+        references.put(name, resolved);
+        return resolved;
+    }
+
+    // Resolves a deferred reference the way the compiler would
+    private String lookUp(String reference) {
+        String[] parts = reference.substring(1).split("\\" + SEPARATOR, -1);
+        String name = parts[0];
+        String packageName = parts[1];
+        int dot = name.indexOf('.');
+        String first = dot < 0 ? name : name.substring(0, dot);
+        String rest = name.substring(first.length());
+        // 1. A class of the same package
+        String samePackage = packageName.isEmpty() ? first : packageName + "." + first;
+        if (projectTypes.contains(samePackage)) {
+            return samePackage + rest;
+        }
+        // 2. A class imported on demand, from the project or the platform
+        for (int i = 2; i < parts.length; i++) {
+            String candidate = parts[i] + "." + first;
+            if (projectTypes.contains(candidate) || isPlatformType(candidate)) {
+                return candidate + rest;
+            }
+        }
+        // 3. A class of java.lang, which every file imports on demand
+        if (isPlatformType("java.lang." + first)) {
+            return "java.lang." + name;
+        }
+        // 4. Already fully qualified, by convention package names start in lower case
+        if (dot > 0 && Character.isLowerCase(first.charAt(0))) {
+            return name;
+        }
+        // 5. A class of the same package the project does not declare, such as generated code
+        return packageName.isEmpty() ? name : packageName + "." + name;
+    }
+
+    // Checks whether a fully qualified name is a class of the platform, without initialising it
+    private boolean isPlatformType(String fullyQualifiedName) {
+        Boolean known = platformTypes.get(fullyQualifiedName);
+        if (known == null) {
+            known = loads(binaryName(fullyQualifiedName));
+            platformTypes.put(fullyQualifiedName, known);
+        }
+        return known;
+    }
+
+    private static boolean loads(String binaryName) {
+        try {
+            Class.forName(binaryName, false, ClassLoader.getPlatformClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    // Turns java.util.Map.Entry into java.util.Map$Entry: segments after the first capitalised one are nested classes
+    private static String binaryName(String fullyQualifiedName) {
+        StringBuilder binary = new StringBuilder(fullyQualifiedName.length());
+        boolean nested = false;
+        for (String segment : fullyQualifiedName.split("\\.")) {
+            if (binary.length() > 0) {
+                binary.append(nested ? '$' : '.');
+            }
+            binary.append(segment);
+            nested |= !segment.isEmpty() && Character.isUpperCase(segment.charAt(0));
+        }
+        return binary.toString();
+    }
+
+    /**
+     * This method returns the number of references answered from the cache.
+     * @return the number of cache hits
+     */
+    public long getCacheHits() {
+        return hits.sum();
+    }
+
+    /**
+     * This method returns the number of references that had to be looked up.
+     * @return the number of cache misses
+     */
+    public long getCacheMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * This method returns the number of resolved references currently cached.
+     * @return the cache size, at most the size given to the constructor
+     */
+    public int getCacheSize() {
+        return references.size();
+    }
+
+    /**
+     * This method returns the number of classes declared in the project.
+     * @return the number of project classes
+     */
+    public int getProjectTypeCount() {
+        return projectTypes.size();
+    }
+
+    // A map that drops its least recently used entry when full. Access is serialised, lookups happen outside the lock.
+    private static class LeastRecentlyUsed<K, V> {
+        private final LinkedHashMap<K, V> entries;
+
+        LeastRecentlyUsed(int capacity) {
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        synchronized V get(K key) {
+            return entries.get(key);
+        }
+
+        synchronized void put(K key, V value) {
+            entries.put(key, value);
+        }
+
+        synchronized void removeIf(Predicate<K> stale) {
+            entries.keySet().removeIf(stale);
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+    }
+}
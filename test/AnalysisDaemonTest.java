@@ -0,0 +1,189 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class AnalysisDaemonTest {
+
+    private ProjectModel load(Path projectDir) throws Exception {
+        ParsePipeline pipeline = new ParsePipeline();
+        pipeline.register(new DependencyCycles());
+        ProjectModel model = new ProjectModel(projectDir.toFile(), pipeline, new SourceFilter());
+        model.load();
+        return model;
+    }
+
+    private DependencyCycles analyze(ProjectModel model) {
+        DependencyCycles dc = new DependencyCycles();
+        for (FileFacts facts : model.getFiles()) {
+            dc.accept(facts);
+        }
+        dc.finish();
+        return dc;
+    }
+
+    // Only changed files are parsed again, and the model then gives the same results as a fresh run.
+    @Test
+    void testModelUpdate(@TempDir Path tempDir) throws Exception {
+        Path packageDir = tempDir.resolve("a");
+        Files.createDirectories(packageDir);
+        Files.writeString(packageDir.resolve("A.java"), "package a; public class A { B b; }");
+        Files.writeString(packageDir.resolve("B.java"), "package a; public class B { }");
+        ProjectModel model = load(tempDir);
+        assertTrue(analyze(model).getCycles().isEmpty());
+        assertTrue(model.findChanged().isEmpty());
+
+        // Creating C and making B depend on it closes a cycle
+        Files.writeString(packageDir.resolve("B.java"), "package a; public class B { C c; }");
+        Files.writeString(packageDir.resolve("C.java"), "package a; public class C { A a; }");
+        Map<File, Exception> failures = new HashMap<>();
+        List<FileFacts> updated = model.update(List.of(packageDir.resolve("B.java").toFile(),
+                packageDir.resolve("C.java").toFile()), failures);
+        assertEquals(2, updated.size());
+        assertTrue(failures.isEmpty());
+        assertEquals(3, model.getFileCount());
+        assertEquals(List.of(List.of("a.A", "a.B", "a.C")), List.copyOf(analyze(model).getCycles()));
+
+        // A file with syntax errors keeps its earlier facts, a deleted file is dropped
+        Files.writeString(packageDir.resolve("B.java"), "package a; public class B { C c;");
+        // Modification times only have millisecond resolution, make sure the edit shows
+        Files.setLastModifiedTime(packageDir.resolve("B.java"), FileTime.fromMillis(System.currentTimeMillis() + 1000));
+        Files.delete(packageDir.resolve("C.java"));
+        updated = model.update(List.of(packageDir.resolve("B.java").toFile(), packageDir.resolve("C.java").toFile()), failures);
+        assertTrue(updated.isEmpty());
+        assertTrue(failures.containsKey(packageDir.resolve("B.java").toFile()));
+        assertEquals(2, model.getFileCount());
+        assertTrue(analyze(model).getCycles().isEmpty());
+        assertEquals(List.of(packageDir.resolve("B.java").toFile()), model.findChanged());
+    }
+
+    // A session answers every analyze request with the report of the whole project and a done record.
+    @Test
+    void testDaemonSession(@TempDir Path tempDir) throws Exception {
+        Path packageDir = tempDir.resolve("a");
+        Files.createDirectories(packageDir);
+        Files.writeString(packageDir.resolve("A.java"), "package a; public class A { B b; }");
+        Files.writeString(packageDir.resolve("B.java"), "package a; public class B { }");
+        AnalysisOptions options = AnalysisOptions.parse(new String[] {tempDir.toString(), "--format=jsonl", "--daemon"});
+        ParsePipeline pipeline = new ParsePipeline();
+        StaticCodeAnalysis.createAnalyses(options).forEach(pipeline::register);
+        ProjectModel model = new ProjectModel(tempDir.toFile(), pipeline, options.getFilter());
+        model.load();
+
+        Files.writeString(packageDir.resolve("B.java"), "package a; public class B { A a; }");
+        String requests = "changed " + packageDir.resolve("B.java") + "\nanalyze\nlist\nanalyze\nquit\n";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new AnalysisDaemon(options, model, pipeline).serve(new ByteArrayInputStream(requests.getBytes(StandardCharsets.UTF_8)), out);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+
+        assertTrue(lines[0].startsWith("{\"type\":\"file\",\"path\":\"" + packageDir.resolve("B.java")));
+        assertEquals(2, count(lines, "{\"type\":\"cycle\",\"classes\":[\"a.A\",\"a.B\"]}"));
+        assertEquals(1, count(lines, "{\"type\":\"error\",\"message\":\"Unknown request: list\"}"));
+        assertEquals(3, count(lines, "{\"type\":\"done\""));
+        assertEquals(1, count(lines, "{\"type\":\"file\""), "the second analyze finds nothing changed");
+    }
+
+    // A daemon started with --read-ahead loads the project on reader threads and answers as it does without.
+    @Test
+    void testDaemonLoadsWithReadAhead(@TempDir Path tempDir) throws Exception {
+        Path packageDir = tempDir.resolve("a");
+        Files.createDirectories(packageDir);
+        Files.writeString(packageDir.resolve("A.java"), "package a; public class A { B b; }");
+        Files.writeString(packageDir.resolve("B.java"), "package a; public class B { A a; }");
+        Files.writeString(packageDir.resolve("C.java"), "package a; public class C { }");
+        AnalysisOptions options = AnalysisOptions.parse(new String[] {tempDir.toString(), "--format=jsonl", "--daemon",
+                "--read-ahead", "--threads=2"});
+        ParsePipeline pipeline = StaticCodeAnalysis.createPipeline(options);
+        assertTrue(pipeline.isReadAhead());
+        ProjectModel model = new ProjectModel(tempDir.toFile(), pipeline, options.getFilter());
+        model.load();
+        assertEquals(3, model.getFileCount());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new AnalysisDaemon(options, model, pipeline).serve(new ByteArrayInputStream("analyze\nquit\n".getBytes(StandardCharsets.UTF_8)), out);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(1, count(lines, "{\"type\":\"cycle\",\"classes\":[\"a.A\",\"a.B\"]}"));
+        assertEquals(0, count(lines, "{\"type\":\"file\""), "nothing changed since the load");
+    }
+
+    // A watcher updates the analyses in place and reports the groups of mutually dependent classes that changed.
+    @Test
+    void testWatcherUpdatesInPlace(@TempDir Path tempDir) throws Exception {
+        Path packageDir = tempDir.resolve("a");
+        Files.createDirectories(packageDir);
+        Files.writeString(packageDir.resolve("A.java"), "package a; public class A { B b; }");
+        Files.writeString(packageDir.resolve("B.java"), "package a; public class B { }");
+        Files.writeString(packageDir.resolve("C.java"), "package a; public class C extends B { }");
+        ParsePipeline pipeline = new ParsePipeline();
+        DependencyCycles dc = new DependencyCycles();
+        pipeline.register(dc);
+        pipeline.register(new InheritanceAnalyses());
+        ProjectModel model = new ProjectModel(tempDir.toFile(), pipeline, new SourceFilter());
+        model.load();
+        ProjectWatcher watcher = new ProjectWatcher(model, pipeline, dc);
+        assertEquals(1, watcher.getInheritance().getMaximumBreadth());
+
+        Files.writeString(packageDir.resolve("B.java"), "package a; public class B { A a; }");
+        Files.delete(packageDir.resolve("C.java"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ReportSink sink = ReportSink.create("jsonl", out)) {
+            watcher.apply(List.of(packageDir.resolve("B.java").toFile(), packageDir.resolve("C.java").toFile(),
+                    tempDir.resolve("notes.txt").toFile()), sink);
+        }
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(1, count(lines, "{\"type\":\"file\",\"path\":\"" + packageDir.resolve("B.java")));
+        assertEquals(1, count(lines, "{\"type\":\"removed\",\"path\":\"" + packageDir.resolve("C.java")));
+        assertEquals(1, count(lines, "{\"type\":\"change\",\"updated\":1,\"removed\":1,\"maxBreadth\":0,"));
+        assertEquals(1, count(lines, "{\"type\":\"changedGroup\",\"classes\":[\"a.A\",\"a.B\"]}"));
+        assertEquals(1, count(lines, "{\"type\":\"done\""));
+        assertEquals(List.of(List.of("a.A", "a.B")), List.copyOf(dc.getCycles()), "the packed graph follows the updates");
+    }
+
+    // A class that moves to another file of the same batch stays in the analyses, whichever file is applied first.
+    @Test
+    void testWatcherKeepsMovedClass(@TempDir Path tempDir) throws Exception {
+        Path packageDir = tempDir.resolve("p");
+        Files.createDirectories(packageDir);
+        Files.writeString(packageDir.resolve("A.java"), "package p; public class A { } class X extends A { A a; }");
+        Files.writeString(packageDir.resolve("B.java"), "package p; public class B { }");
+        ParsePipeline pipeline = new ParsePipeline();
+        DependencyCycles dc = new DependencyCycles();
+        pipeline.register(dc);
+        pipeline.register(new InheritanceAnalyses());
+        ProjectModel model = new ProjectModel(tempDir.toFile(), pipeline, new SourceFilter());
+        model.load();
+        ProjectWatcher watcher = new ProjectWatcher(model, pipeline, dc);
+
+        Files.writeString(packageDir.resolve("A.java"), "package p; public class A { }");
+        Files.writeString(packageDir.resolve("B.java"), "package p; public class B { } class X extends A { A a; }");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ReportSink sink = ReportSink.create("jsonl", out)) {
+            watcher.apply(List.of(packageDir.resolve("B.java").toFile(), packageDir.resolve("A.java").toFile()), sink);
+        }
+        InheritanceAnalyses inheritance = watcher.getInheritance();
+        assertEquals(Set.of("p.A", "p.B", "p.X"), Set.copyOf(inheritance.getClassNames()));
+        assertEquals(1, inheritance.getMaximumBreadth());
+        assertTrue(dc.wouldIntroduceCycle("p.A", "p.X"), "p.X still depends on p.A");
+    }
+
+    private static int count(String[] lines, String prefix) {
+        int count = 0;
+        for (String line : lines) {
+            if (line.startsWith(prefix)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -1,17 +1,29 @@
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.File;
-
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.jupiter.api.BeforeAll;
 
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
+
 
 public class ControlFlowTests {
     
+    private static ControlFlow controlFlow;
+
     @BeforeAll
     public static void setup() {
-        ControlFlow controlFlow = new ControlFlow();
+        controlFlow = new ControlFlow();
         File controlDir = new File("Examples/control");
 
         try {
@@ -22,35 +34,170 @@ public class ControlFlowTests {
     }
     @Test
     public void checkCyclometicComplexity(){
-        assertEquals(4,ControlFlow.calculateCyclometicComplexity());
+        assertEquals(4,controlFlow.calculateCyclometicComplexity());
     }
     @Test
     public void ifStatementDetection(){
-        assertEquals(4,ControlFlow.ifStatementCount.getValue());
+        assertEquals(4,controlFlow.getCount(ControlFlowCounter.IF));
     }
     @Test
     public void checkForLoopDetection(){
-        assertEquals(1,ControlFlow.forStatementCount.getValue());
+        assertEquals(1,controlFlow.getCount(ControlFlowCounter.FOR));
     }
 
     @Test
     public void checkStrongForLoopDetection(){
-        assertEquals(1,ControlFlow.forEachStatementCount.getValue());
+        assertEquals(1,controlFlow.getCount(ControlFlowCounter.FOR_EACH));
     }
     @Test
     public void checkWhileLoopDetection(){
-        assertEquals(1,ControlFlow.whileStatementCount.getValue());
+        assertEquals(1,controlFlow.getCount(ControlFlowCounter.WHILE));
     }
     @Test
     public void checkDoWhileLoopDetection(){
-        assertEquals(1,ControlFlow.doStatementCount.getValue());
+        assertEquals(1,controlFlow.getCount(ControlFlowCounter.DO));
     }
     @Test
     public void checkSwitchCaseDetection(){
-        assertEquals(3,ControlFlow.switchCaseCount.getValue());
+        assertEquals(3,controlFlow.getCount(ControlFlowCounter.SWITCH_CASE));
     }
     @Test
     public void checkMethodDeclerationDetection(){
-        assertEquals(3,ControlFlow.methodNumberCount.getValue());
+        assertEquals(3,controlFlow.getCount(ControlFlowCounter.METHOD));
+    }
+
+    @Test
+    public void checkCatchTernaryAndLogicalDetection(@TempDir Path tempDir) throws Exception {
+        String content = "public class A {\n" +
+                         "    int m(int x) {\n" +
+                         "        try { x = x > 0 ? 1 : 2; } catch (RuntimeException e) { x = 0; }\n" +
+                         "        if (x > 0 && x < 5 || x == 9) { return x; }\n" +
+                         "        return 0;\n" +
+                         "    }\n" +
+                         "}";
+        Files.write(tempDir.resolve("A.java"), content.getBytes());
+        ControlFlow flow = new ControlFlow();
+        flow.parseProject(tempDir.toFile());
+        assertEquals(1, flow.getCount(ControlFlowCounter.CATCH));
+        assertEquals(1, flow.getCount(ControlFlowCounter.CONDITIONAL));
+        assertEquals(1, flow.getCount(ControlFlowCounter.LOGICAL_AND));
+        assertEquals(1, flow.getCount(ControlFlowCounter.LOGICAL_OR));
+        assertEquals(2, flow.calculateCyclometicComplexity(), "only the if statement is a decision point");
+    }
+
+    // Per-method complexity keeps the worst methods and a histogram of all of them
+    @Test
+    public void checkMethodHotSpots() throws Exception {
+        ControlFlow flow = new ControlFlow(2);
+        flow.parseProject(new File("Examples/control"));
+        List<ComplexityHotSpots.MethodComplexity> worst = flow.getHotSpots().getHotSpots();
+        assertEquals(2, worst.size());
+        assertEquals("control.control.processNumber(int)", worst.get(0).getName());
+        assertEquals(7, worst.get(0).getComplexity());
+        assertEquals("control.control.nextMethod()", worst.get(1).getName());
+        assertEquals(5, worst.get(1).getComplexity());
+        assertEquals(3, flow.getHotSpots().getMethodCount());
+        assertArrayEquals(new long[] {2, 1, 0, 0, 0}, flow.getHotSpots().getHistogram());
+    }
+
+    // A second run in the same JVM starts from zero
+    @Test
+    public void checkRunsDoNotShareCounts() throws Exception {
+        ControlFlow second = new ControlFlow();
+        second.parseProject(new File("Examples/control"));
+        assertEquals(controlFlow.getCount(ControlFlowCounter.IF), second.getCount(ControlFlowCounter.IF));
+    }
+
+    // Counting the same file from many threads loses no increments
+    @Test
+    public void checkConcurrentCounting() throws Exception {
+        CompilationUnit cu = StaticJavaParser.parse(new File("Examples/control/control.java"));
+        ControlFlow flow = new ControlFlow();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 50; i++) {
+                    flow.analyze(cu);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(8 * 50 * 4, flow.getCount(ControlFlowCounter.IF));
+        assertEquals(8 * 50 * 3, flow.getCount(ControlFlowCounter.METHOD));
+    }
+
+    // The token-only mode counts what the AST visitor counts, without parsing
+    @Test
+    public void checkLexerMatchesVisitorOnExamples() throws Exception {
+        ControlFlow fast = new ControlFlow(ControlFlow.DEFAULT_HOT_SPOTS, true);
+        ParsePipeline pipeline = new ParsePipeline().register(fast);
+        pipeline.run(new File("Examples"));
+        ControlFlow full = new ControlFlow();
+        full.parseProject(new File("Examples"));
+
+        assertEquals(0, pipeline.getFilesParsed());
+        for (ControlFlowCounter counter : ControlFlowCounter.values()) {
+            assertEquals(full.getCount(counter), fast.getCount(counter), counter.name());
+        }
+        assertEquals(full.calculateCyclometicComplexity(), fast.calculateCyclometicComplexity());
+        assertEquals(names(full.getHotSpots()), names(fast.getHotSpots()));
+        assertArrayEquals(full.getHotSpots().getHistogram(), fast.getHotSpots().getHistogram());
+    }
+
+    // Keywords in comments, strings and text blocks are not counted, and nested and anonymous
+    // classes, enum constant bodies, wildcards and for headers are told apart as the parser does
+    @Test
+    public void checkLexerMatchesVisitorOnTrickySource() {
+        String content = "package a.b;\n" +
+                         "import java.util.*;\n" +
+                         "@SuppressWarnings(value = {\"unchecked\"}) public class T<K extends Comparable<? super K>> {\n" +
+                         "    // if (x) while (y) for (;;) {}\n" +
+                         "    /* case 1: catch */ String s = \"if (a && b) { for }\";\n" +
+                         "    String block = \"\"\"\n        do { } while (x || y); \\\"\"\" case\n        \"\"\";\n" +
+                         "    char c = '\\'', d = '{';\n" +
+                         "    Runnable r = () -> { if (s != null) { } };\n" +
+                         "    int ternary = s == null ? 1 : 2;\n" +
+                         "    T(@Deprecated final List<? extends K>[] lists, int... rest) { for (List<?> l : lists) { } }\n" +
+                         "    public <V> Map<K, V> generic(Map<K, V> m, int a[]) {\n" +
+                         "        for (int i = m.isEmpty() ? 0 : 1; i < 3 && a != null; i++) { }\n" +
+                         "        do { if (a == null) break; } while (a.length > 3);\n" +
+                         "        Object o = new Object() { @Override public String toString() { return s != null ? s : \"\"; } };\n" +
+                         "        class Local { void inLocal() { while (true) { } } }\n" +
+                         "        switch (a.length) { case 1 -> { } case 2, 3 -> { } default -> { } }\n" +
+                         "        try { } catch (RuntimeException | Error e) { } finally { }\n" +
+                         "        return m;\n" +
+                         "    }\n" +
+                         "    abstract static class Inner { abstract int size(); int twice() { return size() > 0 ? size() * 2 : 0; } }\n" +
+                         "    enum E { A { int f() { return 1; } }, B(2); E() { } E(int x) { if (x > 1) { } } int f() { return 0; } }\n" +
+                         "    @interface Note { String value() default \"x\"; }\n" +
+                         "    record R(int x, int y) { R { if (x > y) { } } int sum() { return x + y; } }\n" +
+                         "    interface I { void run(); default boolean ok() { return this != null || run2(); } boolean run2(); }\n" +
+                         "}\n";
+
+        int[] astCounts = ControlFlowVisitor.newCounts();
+        ComplexityHotSpots astHotSpots = new ComplexityHotSpots(100);
+        JavaParser parser = new JavaParser(new ParserConfiguration().setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_17));
+        parser.parse(content).getResult().get().accept(new ControlFlowVisitor(astHotSpots), astCounts);
+
+        int[] lexerCounts = ControlFlowVisitor.newCounts();
+        ComplexityHotSpots lexerHotSpots = new ComplexityHotSpots(100);
+        char[] chars = content.toCharArray();
+        new ControlFlowLexer(lexerHotSpots).count(chars, 0, chars.length, lexerCounts);
+
+        assertArrayEquals(astCounts, lexerCounts);
+        assertEquals(names(astHotSpots), names(lexerHotSpots));
+    }
+
+    // Names and complexities of the kept methods
+    private static List<String> names(ComplexityHotSpots hotSpots) {
+        List<String> names = new ArrayList<>();
+        for (ComplexityHotSpots.MethodComplexity method : hotSpots.getHotSpots()) {
+            names.add(method.getName() + "=" + method.getComplexity());
+        }
+        return names;
     }
 }
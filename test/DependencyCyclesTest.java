@@ -1,3 +1,4 @@
+import com.github.javaparser.StaticJavaParser;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import static org.junit.jupiter.api.Assertions.*;
@@ -156,4 +157,243 @@ public class DependencyCyclesTest {
         // Even though B depends on A, there should be no cycle.
         assertTrue(cycles.isEmpty(), "Expected no cycles, but found: " + cycles);
     }
+
+    // Every group of mutually dependent classes is reported, not just one cycle per start node.
+    @Test
+    void testEveryCyclicComponentReported() {
+        DependencyCycles dc = new DependencyCycles();
+        dc.addDependency("a.A", "a.B");
+        dc.addDependency("a.B", "a.A");
+        dc.addDependency("b.X", "b.Y");
+        dc.addDependency("b.Y", "b.Z");
+        dc.addDependency("b.Z", "b.X");
+        dc.addDependency("b.X", "a.A"); // links the groups in one direction only
+
+        List<List<String>> components = dc.getCyclicComponents();
+        assertEquals(List.of(List.of("b.X", "b.Y", "b.Z"), List.of("a.A", "a.B")), components);
+        assertEquals(Set.of(List.of("a.A", "a.B"), List.of("b.X", "b.Y", "b.Z")), dc.getCycles());
+    }
+
+    // Adding and removing dependencies one by one tells whether each change introduced or broke a cycle,
+    // and the reported groups follow every change.
+    @Test
+    void testDependencyChangesReportCycles() {
+        DependencyCycles dc = new DependencyCycles();
+        dc.addDependency("a.A", "a.B");
+        dc.addDependency("a.B", "a.C");
+        assertFalse(dc.wouldIntroduceCycle("a.A", "a.C"));
+        assertTrue(dc.wouldIntroduceCycle("a.C", "a.A"));
+        assertFalse(dc.wouldIntroduceCycle("a.C", "b.Unknown"));
+        assertTrue(dc.getCyclicComponents().isEmpty(), "asking does not add the dependency");
+
+        assertTrue(dc.addDependency("a.C", "a.A"));
+        assertFalse(dc.addDependency("a.C", "a.B"), "a dependency inside a group introduces no new cycle");
+        assertEquals(List.of(List.of("a.A", "a.B", "a.C")), dc.getCyclicComponents());
+        assertEquals(1, dc.getCyclicGroupCount());
+
+        assertTrue(dc.removeDependency("a.C", "a.A"), "a.A leaves the group");
+        assertEquals(List.of("a.B", "a.C"), dc.getCyclicGroup("a.C"), "a.B -> a.C -> a.B holds the rest together");
+        assertEquals(List.of(), dc.getCyclicGroup("a.A"));
+        assertTrue(dc.addDependency("a.C", "a.A"));
+        assertFalse(dc.removeDependency("a.A", "a.C"), "there is no such dependency");
+        assertFalse(dc.removeDependency("a.C", "a.B"), "a.A -> a.B -> a.C -> a.A still holds the group together");
+        assertTrue(dc.removeDependency("a.C", "a.A"));
+        assertFalse(dc.removeDependency("a.C", "a.A"), "the dependency is gone already");
+        assertTrue(dc.getCyclicComponents().isEmpty());
+        assertEquals(2, dc.getDependencyCount());
+    }
+
+    // Several elementary cycles can be listed for one component, up to the requested limit.
+    @Test
+    void testBoundedCycleEnumeration() {
+        DependencyCycles dc = new DependencyCycles();
+        // A <-> B, A <-> C and B -> C: one component with several elementary cycles
+        dc.addDependency("A", "B");
+        dc.addDependency("B", "A");
+        dc.addDependency("A", "C");
+        dc.addDependency("C", "A");
+        dc.addDependency("B", "C");
+
+        assertEquals(1, dc.getCyclicComponents().size());
+        assertEquals(1, dc.getCycles().size());
+        Set<List<String>> cycles = dc.getCycles(5);
+        assertTrue(cycles.size() >= 2, "Expected several cycles, but found: " + cycles);
+        assertTrue(cycles.contains(List.of("A", "B")));
+        assertTrue(cycles.contains(List.of("A", "C")));
+    }
+
+    // A dependency chain far deeper than the call stack does not overflow it.
+    @Test
+    void testDeepChainDoesNotOverflow() {
+        DependencyCycles dc = new DependencyCycles();
+        int length = 200_000;
+        for (int i = 0; i < length; i++) {
+            dc.addDependency(String.format("C%06d", i), String.format("C%06d", i + 1));
+        }
+        assertTrue(dc.getCycles().isEmpty());
+
+        dc.addDependency(String.format("C%06d", length), "C000000");
+        List<List<String>> components = dc.getCyclicComponents();
+        assertEquals(1, components.size());
+        assertEquals(length + 1, components.get(0).size());
+        assertEquals(length + 1, dc.getCycles().iterator().next().size());
+    }
+
+    // Every kind of type reference is a dependency: parameters, return types, locals, new, generic type arguments,
+    // static method calls and annotations. Primitives, var, void, type variables and the class itself are not.
+    @Test
+    void testAllTypeReferencesRecorded() {
+        String source = "package p;\n" +
+                        "import q.Mark;\n" +
+                        "import java.util.List;\n" +
+                        "@Mark\n" +
+                        "public class A<T> {\n" +
+                        "    private int count;\n" +
+                        "    public Result run(Param param) {\n" +
+                        "        var local = new Created();\n" +
+                        "        Local other = null;\n" +
+                        "        List<Element> list = null;\n" +
+                        "        Helper.help();\n" +
+                        "        A<T> self = this;\n" +
+                        "        return null;\n" +
+                        "    }\n" +
+                        "    <U> void generic(U value, T other) {}\n" +
+                        "    static class Inner { Outside outside; }\n" +
+                        "}";
+        FileFacts facts = new FileFacts("A.java");
+        new DependencyCycles().extract(StaticJavaParser.parse(source), facts);
+
+        assertEquals(Set.of("q.Mark", "p.Result", "p.Param", "p.Created", "p.Local", "java.util.List", "p.Element",
+                "p.Helper", "p.A"), facts.getDependencies().get("p.A"));
+        assertEquals(Set.of("p.Outside"), facts.getDependencies().get("p.A.Inner"));
+    }
+
+    // A cycle through method signatures and a static call is found, although no field closes it.
+    @Test
+    void testCycleWithoutFields(@TempDir Path tempDir) throws Exception {
+        Path projectDir = tempDir.resolve("project");
+        Files.createDirectories(projectDir);
+        createJavaFile(projectDir, "A.java", "public class A { B make() { return new B(); } }");
+        createJavaFile(projectDir, "B.java", "public class B { void use() { C.run(); } }");
+        createJavaFile(projectDir, "C.java", "public class C { static void run() {} void take(A a) {} }");
+
+        DependencyCycles dc = new DependencyCycles();
+        dc.parseProject(projectDir.toFile());
+        assertEquals(Set.of(List.of("A", "B", "C")), dc.getCycles());
+    }
+
+    // Accurate resolution finds classes through wildcard imports, prefers a class of the same package over java.lang,
+    // and finds the cycle that guessing names per file misses.
+    @Test
+    void testAccurateResolution(@TempDir Path tempDir) throws Exception {
+        Path projectDir = tempDir.resolve("project");
+        Files.createDirectories(projectDir.resolve("a"));
+        Files.createDirectories(projectDir.resolve("b"));
+        createJavaFile(projectDir.resolve("a"), "A.java", "package a;\nimport b.*;\nimport java.util.*;\n" +
+                "public class A { B b; List<String> names; Map.Entry<String, B> entry; }");
+        createJavaFile(projectDir.resolve("b"), "B.java", "package b;\nimport a.*;\n" +
+                "public class B { A a; Thread thread; String name; }");
+        createJavaFile(projectDir.resolve("b"), "Thread.java", "package b;\npublic class Thread {}");
+
+        DependencyCycles guessing = new DependencyCycles();
+        guessing.parseProject(projectDir.toFile());
+        assertTrue(guessing.getCycles().isEmpty());
+
+        TypeResolver resolver = new TypeResolver();
+        DependencyCycles accurate = new DependencyCycles(resolver);
+        accurate.parseProject(projectDir.toFile());
+        assertEquals(Set.of(List.of("a.A", "b.B")), accurate.getCycles());
+
+        FileFacts facts = new FileFacts("B.java");
+        accurate.extract(StaticJavaParser.parse(Files.readString(projectDir.resolve("b/B.java"))), facts);
+        Set<String> resolved = new java.util.HashSet<>();
+        facts.getDependencies().get("b.B").forEach(name -> resolved.add(resolver.resolve(name)));
+        assertEquals(Set.of("a.A", "b.Thread", "java.lang.String"), resolved);
+        assertEquals("java.util.Map.Entry", resolver.resolve(TypeResolver.defer("Map.Entry", "a", List.of("b", "java.util"))));
+        assertEquals(3, resolver.getProjectTypeCount());
+        assertTrue(resolver.getCacheHits() > 0, "Expected the second lookup of b.B's names to hit the cache");
+    }
+
+    // The resolution cache keeps at most the given number of entries, dropping the least recently used one.
+    @Test
+    void testResolutionCacheIsBounded() {
+        TypeResolver resolver = new TypeResolver(2);
+        String list = TypeResolver.defer("List", "p", List.of("java.util"));
+        String set = TypeResolver.defer("Set", "p", List.of("java.util"));
+        String queue = TypeResolver.defer("Queue", "p", List.of("java.util"));
+        assertEquals("java.util.List", resolver.resolve(list));
+        assertEquals("java.util.Set", resolver.resolve(set));
+        assertEquals("java.util.List", resolver.resolve(list)); // hit, Set is now the least recently used
+        assertEquals("java.util.Queue", resolver.resolve(queue));
+        assertEquals("java.util.List", resolver.resolve(list)); // still cached
+        assertEquals("java.util.Set", resolver.resolve(set)); // dropped, looked up again
+        assertEquals(2, resolver.getCacheSize());
+        assertEquals(2, resolver.getCacheHits());
+        assertEquals(4, resolver.getCacheMisses());
+        assertEquals("p.Unknown", resolver.resolve(TypeResolver.defer("Unknown", "p", List.of("java.util"))));
+        assertThrows(IllegalArgumentException.class, () -> new TypeResolver(0));
+    }
+
+    // Creating or deleting a project class changes how names already in the cache resolve.
+    @Test
+    void testResolutionFollowsProjectChanges() {
+        TypeResolver resolver = new TypeResolver();
+        String string = TypeResolver.defer("String", "a", List.of());
+        String entry = TypeResolver.defer("Map.Entry", "a", List.of("java.util"));
+        assertEquals("java.lang.String", resolver.resolve(string));
+        assertEquals("java.util.Map.Entry", resolver.resolve(entry));
+
+        resolver.addProjectType("a.String");
+        assertEquals("a.String", resolver.resolve(string), "the class of the same package shadows java.lang");
+        resolver.addProjectType("a.Map");
+        assertEquals("a.Map.Entry", resolver.resolve(entry));
+        resolver.removeProjectType("a.String");
+        assertEquals("java.lang.String", resolver.resolve(string));
+        assertEquals(1, resolver.getProjectTypeCount());
+    }
+
+    // Files updated in place resolve their names against the classes declared after the update.
+    @Test
+    void testUpdatedFilesResolveAgainstCurrentClasses() {
+        TypeResolver resolver = new TypeResolver();
+        DependencyCycles dc = new DependencyCycles(resolver);
+        FileFacts a = new FileFacts("a/A.java");
+        a.addDependency("a.A", TypeResolver.defer("Helper", "a", List.of("b")));
+        dc.updateFile(null, a);
+        assertEquals(List.of(), dc.getCyclicGroup("a.A"), "without b.Helper the name falls back to a.Helper");
+
+        FileFacts helper = new FileFacts("b/Helper.java");
+        helper.addDependency("b.Helper", "a.A");
+        dc.updateFile(null, helper);
+        assertTrue(dc.updateFile(a, a), "a.A now resolves Helper to b.Helper");
+        assertEquals(List.of("a.A", "b.Helper"), dc.getCyclicGroup("a.A"));
+
+        dc.updateFile(helper, null);
+        dc.updateFile(a, a);
+        assertEquals(0, dc.getCyclicGroupCount());
+        assertEquals(1, resolver.getProjectTypeCount());
+    }
+
+    // Packages depend on each other when their classes do, so two packages can form a cycle without any class cycle.
+    @Test
+    void testPackageCondensation() {
+        DependencyCycles dc = new DependencyCycles();
+        dc.addDependency("com.app.ui.View", "com.app.model.Model");
+        dc.addDependency("com.app.model.Model", "com.app.util.Format");
+        dc.addDependency("com.app.util.Format", "com.app.model.Value");
+        dc.addDependency("com.app.model.Value", "java.util.Map.Entry");
+        assertTrue(dc.getCycles().isEmpty());
+
+        CondensationGraph packages = dc.getPackageCondensation();
+        assertEquals(2, packages.getComponentCount()); // ui and {model, util}; java.util is not a project package
+        List<Integer> cyclic = packages.getCyclicComponents();
+        assertEquals(1, cyclic.size());
+        assertEquals(List.of("com.app.model", "com.app.util"), packages.getMemberNames(cyclic.get(0)));
+        assertEquals(2, packages.getInternalEdgeCount(cyclic.get(0)));
+        assertEquals(2, packages.getLayerCount());
+
+        CondensationGraph classes = dc.getClassCondensation();
+        assertEquals(5, classes.getComponentCount());
+        assertEquals(5, classes.getLayerCount());
+    }
 }
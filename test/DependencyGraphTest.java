@@ -0,0 +1,216 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+public class DependencyGraphTest {
+
+    // Names get dense ids in first-seen order and keep them.
+    @Test
+    void testSymbolTableInterning() {
+        SymbolTable symbols = new SymbolTable();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, symbols.intern("com.example.C" + i));
+        }
+        assertEquals(1000, symbols.size());
+        assertEquals(42, symbols.intern("com.example.C42"));
+        assertEquals(42, symbols.find("com.example.C42"));
+        assertEquals(-1, symbols.find("com.example.Missing"));
+        assertEquals("com.example.C999", symbols.name(999));
+    }
+
+    // Duplicate edges are dropped and successors come out sorted in CSR form.
+    @Test
+    void testCompressedSparseRows() {
+        DependencyGraph graph = new DependencyGraph();
+        graph.addEdge(0, 3);
+        graph.addEdge(0, 1);
+        graph.addEdge(0, 3);
+        graph.addEdge(0, 1);
+        graph.addEdge(2, 0);
+        graph.addNode(4);
+
+        assertEquals(5, graph.getNodeCount());
+        assertEquals(3, graph.getEdgeCount());
+        assertArrayEquals(new int[] {0, 2, 2, 3, 3, 3}, graph.getOffsets());
+        assertArrayEquals(new int[] {1, 3, 0}, graph.getTargets());
+
+        // Adding after reading unpacks and repacks the graph
+        graph.addEdge(4, 2);
+        graph.addEdge(0, 2);
+        assertArrayEquals(new int[] {1, 2, 3}, graph.getSuccessors(0));
+        assertArrayEquals(new int[] {2}, graph.getSuccessors(4));
+        assertEquals(5, graph.getEdgeCount());
+    }
+
+    // Building the graph from many files on all cores gives the same ids and edges as adding them one by one.
+    @Test
+    void testParallelBuildMatchesSequential() {
+        Random random = new Random(17);
+        List<FileFacts> files = new ArrayList<>();
+        for (int file = 0; file < 3000; file++) {
+            FileFacts facts = new FileFacts("F" + file + ".java");
+            for (int edge = random.nextInt(6); edge > 0; edge--) {
+                // Names are shared between files and some are first seen as targets, with a few self-dependencies
+                facts.addDependency("p" + (file % 7) + ".C" + file, "p" + random.nextInt(7) + ".C" + random.nextInt(file + 20));
+            }
+            facts.addDependency("p0.Self" + file, "p0.Self" + file);
+            files.add(facts);
+        }
+
+        List<Map<String, Set<String>>> dependencies = new ArrayList<>();
+        files.forEach(facts -> dependencies.add(facts.getDependencies()));
+
+        SymbolTable sequentialSymbols = new SymbolTable();
+        DependencyGraph sequentialGraph = new DependencyGraph();
+        new DependencyGraphBuilder(sequentialSymbols, sequentialGraph, false).addAll(dependencies);
+        SymbolTable parallelSymbols = new SymbolTable();
+        DependencyGraph parallelGraph = new DependencyGraph();
+        DependencyGraphBuilder parallel = new DependencyGraphBuilder(parallelSymbols, parallelGraph, true);
+        parallel.addAll(dependencies.subList(0, 1000));
+        parallel.addAll(dependencies.subList(1000, dependencies.size())); // later files meet names interned before
+
+        assertEquals(sequentialSymbols.size(), parallelSymbols.size());
+        for (int id = 0; id < sequentialSymbols.size(); id++) {
+            assertEquals(sequentialSymbols.name(id), parallelSymbols.name(id));
+        }
+        assertEquals(0, parallelGraph.getSuccessors(parallelSymbols.find("p0.Self0")).length);
+        assertArrayEquals(sequentialGraph.getOffsets(), parallelGraph.getOffsets());
+        assertArrayEquals(sequentialGraph.getTargets(), parallelGraph.getTargets());
+    }
+
+    // Condensing a graph gives one component per group of mutually dependent nodes, layered bottom up.
+    // A <-> B and C -> A, C -> D, D -> B: {A, B} is layer 0, D layer 1, C layer 2, E is isolated in layer 0.
+    @Test
+    void testCondensationLayers() {
+        SymbolTable names = new SymbolTable();
+        DependencyGraph graph = new DependencyGraph();
+        String[][] edges = {{"A", "B"}, {"B", "A"}, {"C", "A"}, {"C", "D"}, {"D", "B"}, {"D", "A"}};
+        for (String[] edge : edges) {
+            graph.addEdge(names.intern(edge[0]), names.intern(edge[1]));
+        }
+        graph.addNode(names.intern("E"));
+
+        CondensationGraph condensation = new CondensationGraph(names, graph);
+        int ab = condensation.getComponent(names.find("A"));
+        int c = condensation.getComponent(names.find("C"));
+        int d = condensation.getComponent(names.find("D"));
+        int e = condensation.getComponent(names.find("E"));
+        assertEquals(4, condensation.getComponentCount());
+        assertEquals(3, condensation.getDependencyCount());
+        assertEquals(List.of("A", "B"), condensation.getMemberNames(ab));
+        assertEquals(2, condensation.getInternalEdgeCount(ab));
+        assertEquals(0, condensation.getOutgoingEdgeCount(ab));
+        assertEquals(2, condensation.getOutgoingEdgeCount(d)); // both edges into {A, B}, one condensed edge
+        assertArrayEquals(new int[] {ab}, condensation.getSuccessors(d));
+        assertEquals(0, condensation.getLayer(ab));
+        assertEquals(0, condensation.getLayer(e));
+        assertEquals(1, condensation.getLayer(d));
+        assertEquals(2, condensation.getLayer(c));
+        assertEquals(3, condensation.getLayerCount());
+        assertEquals(2, condensation.getLayers().get(0).length);
+        assertEquals(List.of(ab), condensation.getCyclicComponents());
+    }
+
+    // A chain of 100000 classes with a back edge every 10 condenses into 10000 layered components without recursion.
+    @Test
+    void testLargeCondensation() {
+        SymbolTable names = new SymbolTable();
+        DependencyGraph graph = new DependencyGraph();
+        int classes = 100_000;
+        for (int i = 0; i < classes; i++) {
+            names.intern("p" + (i / 1000) + ".C" + i);
+        }
+        for (int i = 0; i < classes; i++) {
+            if (i + 1 < classes) {
+                graph.addEdge(i, i + 1);
+            }
+            if (i % 10 == 9) {
+                graph.addEdge(i, i - 9);
+            }
+        }
+        CondensationGraph condensation = new CondensationGraph(names, graph);
+        assertEquals(10_000, condensation.getComponentCount());
+        assertEquals(10_000, condensation.getLayerCount());
+        assertEquals(10_000, condensation.getCyclicComponents().size());
+        assertEquals(9_999, condensation.getDependencyCount());
+    }
+
+    // Components kept up to date under random edge insertions and deletions match Tarjan run from scratch,
+    // and their order stays topological.
+    @Test
+    void testIncrementalComponentsMatchTarjan() {
+        Random random = new Random(23);
+        int nodes = 40;
+        DependencyGraph initial = new DependencyGraph();
+        initial.addNode(nodes - 1);
+        for (int edge = 0; edge < 30; edge++) {
+            int from = random.nextInt(nodes);
+            int to = random.nextInt(nodes);
+            if (from != to) {
+                initial.addEdge(from, to);
+            }
+        }
+        IncrementalComponents components = new IncrementalComponents(nodes, initial.getOffsets(), initial.getTargets());
+        for (int step = 0; step < 3000; step++) {
+            int from = random.nextInt(nodes);
+            int to = random.nextInt(nodes);
+            int before = components.getComponentCount();
+            if (random.nextInt(3) == 0) {
+                boolean split = components.removeEdge(from, to);
+                assertEquals(split, components.getComponentCount() > before);
+            } else {
+                boolean predicted = components.wouldCloseCycle(from, to);
+                boolean merged = components.addEdge(from, to);
+                assertEquals(merged, components.getComponentCount() < before);
+                assertEquals(predicted, merged);
+            }
+            assertFalse(components.hasEdge(from, from));
+
+            DependencyGraph current = new DependencyGraph();
+            current.addNode(nodes - 1);
+            for (int v = 0; v < nodes; v++) {
+                for (int w : components.getSuccessors(v)) {
+                    current.addEdge(v, w);
+                }
+            }
+            assertEquals(current.getEdgeCount(), components.getEdgeCount());
+            StronglyConnectedComponents expected = new StronglyConnectedComponents(nodes, current.getOffsets(), current.getTargets());
+            assertEquals(expected.getComponentCount(), components.getComponentCount());
+            int cyclic = 0;
+            for (int v = 0; v < nodes; v++) {
+                for (int w = 0; w < nodes; w++) {
+                    assertEquals(expected.getComponent(v) == expected.getComponent(w),
+                            components.getComponent(v) == components.getComponent(w));
+                }
+                assertEquals(expected.isCyclic(expected.getComponent(v)), components.isCyclic(components.getComponent(v)));
+            }
+            for (int id = 0; id < expected.getComponentCount(); id++) {
+                cyclic += expected.isCyclic(id) ? 1 : 0;
+            }
+            assertEquals(cyclic, components.getCyclicCount());
+
+            // Every edge between components follows the topological order
+            int[] order = components.getOrder();
+            assertEquals(components.getComponentCount(), order.length);
+            int[] rank = new int[nodes];
+            for (int i = 0; i < order.length; i++) {
+                for (int v : components.getMembers(order[i])) {
+                    rank[v] = i;
+                }
+            }
+            for (int v = 0; v < nodes; v++) {
+                for (int w : components.getSuccessors(v)) {
+                    assertTrue(rank[v] <= rank[w]);
+                }
+            }
+        }
+        int added = components.addNode();
+        assertEquals(nodes, added);
+        assertFalse(components.isCyclic(components.getComponent(added)));
+    }
+}
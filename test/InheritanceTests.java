@@ -1,7 +1,15 @@
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 /**
  * Tests for the InheritanceAnalyses class
@@ -110,4 +118,166 @@ public class InheritanceTests {
         assertEquals(3, ia.getMaximumBreadth());
     }
 
+    /**
+     * Test the depth of inheritance and number of descendants in a tree of depth 2.
+     * Class1 has subclasses Class3, Class4 and Class5, and Class4 has Class6 and Class7.
+     * Class2 has subclasses Class8 and Class9, and Class9 has Class10 and Class11.
+     */
+    @Test
+    void testDepthOfInheritanceAndDescendants(){
+        InheritanceAnalyses ia = new InheritanceAnalyses("Examples/Inheritance/Deep");
+        String p = "Inheritance.Deep.";
+        assertEquals(2, ia.getMaximumDepth());
+        assertEquals(Set.of(p + "Class6", p + "Class7", p + "Class10", p + "Class11"), ia.findMaximumDepth().keySet());
+        assertEquals(0, ia.getDepthOfInheritance(p + "Class1"));
+        assertEquals(1, ia.getDepthOfInheritance(p + "Class4"));
+        assertEquals(2, ia.getDepthOfInheritance(p + "Class10"));
+        assertEquals(5, ia.getNumberOfDescendants(p + "Class1"));
+        assertEquals(4, ia.getNumberOfDescendants(p + "Class2"));
+        assertEquals(2, ia.getNumberOfDescendants(p + "Class9"));
+        assertEquals(0, ia.getNumberOfDescendants(p + "Class11"));
+        assertEquals(-1, ia.getDepthOfInheritance("Class1"));
+    }
+
+    /**
+     * Test that classes with the same simple name in different packages are kept apart,
+     * and that extends and implements clauses are resolved through imports, the same package and nested classes.
+     */
+    @Test
+    void testFullyQualifiedHierarchy(@TempDir Path tempDir) throws Exception {
+        write(tempDir, "a/Node.java", "package a;\npublic class Node {}\n");
+        write(tempDir, "a/Leaf.java", "package a;\npublic class Leaf extends Node {}\n");
+        write(tempDir, "b/Node.java", "package b;\npublic class Node implements Visitable { public static class Inner extends Node {} }\n");
+        write(tempDir, "b/Visitable.java", "package b;\npublic interface Visitable {}\n");
+        write(tempDir, "c/Other.java", "package c;\nimport b.Node;\npublic class Other extends Node implements b.Visitable {\n"
+                + "    class Deeper extends Inner {}\n    static class Inner extends a.Node {}\n}\n");
+
+        InheritanceAnalyses ia = new InheritanceAnalyses();
+        new ParsePipeline().register(ia).run(tempDir.toFile());
+
+        assertEquals(7, ia.getNumberOfClasses());
+        assertEquals(1, ia.getNumberOfInterfaces());
+        assertEquals(Set.of("a.Leaf", "c.Other.Inner"), ia.findMaximumBreadth().get("a.Node").getSubClasses());
+        assertEquals(Set.of("b.Node.Inner", "c.Other"), ia.findMaximumBreadth().get("b.Node").getSubClasses());
+        assertEquals(2, ia.getDepthOfInheritance("c.Other.Deeper"));
+        assertEquals(Set.of("b.Node", "c.Other"), ia.getImplementors("b.Visitable"));
+        assertEquals(Set.of("b.Visitable"), ia.findMostImplementedInterfaces().keySet());
+    }
+
+    /**
+     * Test that interfaces extending interfaces are recorded as sub-interfaces, apart from the implementing classes,
+     * whether the hierarchy is built from the sources or file by file.
+     */
+    @Test
+    void testInterfaceHierarchy(@TempDir Path tempDir) throws Exception {
+        write(tempDir, "p/Shape.java", "package p;\npublic interface Shape {}\n");
+        write(tempDir, "p/Polygon.java", "package p;\npublic interface Polygon extends Shape {}\n");
+        write(tempDir, "p/Regular.java", "package p;\npublic interface Regular extends Shape, Polygon, java.io.Serializable {}\n");
+        write(tempDir, "p/Square.java", "package p;\npublic class Square implements Regular {}\n");
+
+        InheritanceAnalyses ia = new InheritanceAnalyses();
+        ParsePipeline pipeline = new ParsePipeline().register(ia);
+        pipeline.run(tempDir.toFile());
+        assertEquals(3, ia.getNumberOfInterfaces());
+        assertEquals(Set.of("p.Polygon", "p.Regular"), ia.getSubInterfaces("p.Shape"));
+        assertEquals(Set.of("p.Regular"), ia.getSubInterfaces("p.Polygon"));
+        assertEquals(Set.of(), ia.getSubInterfaces("p.Regular"));
+        assertEquals(Set.of("p.Square"), ia.getImplementors("p.Regular"));
+        assertEquals(Set.of(), ia.getImplementors("p.Shape"), "sub-interfaces are not implementing classes");
+
+        InheritanceAnalyses updated = new InheritanceAnalyses();
+        FileFacts polygon = pipeline.analyze(tempDir.resolve("p/Polygon.java").toFile());
+        updated.updateFile(null, pipeline.analyze(tempDir.resolve("p/Regular.java").toFile()));
+        updated.updateFile(null, polygon);
+        updated.updateFile(null, pipeline.analyze(tempDir.resolve("p/Shape.java").toFile()));
+        assertEquals(Set.of("p.Polygon", "p.Regular"), updated.getSubInterfaces("p.Shape"));
+        assertEquals(Set.of("p.Regular"), updated.getSubInterfaces("p.Polygon"));
+        updated.updateFile(polygon, null);
+        assertEquals(Set.of("p.Regular"), updated.getSubInterfaces("p.Shape"));
+    }
+
+    private static void write(Path root, String file, String source) throws Exception {
+        Path path = root.resolve(file);
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, source);
+    }
+
+    /**
+     * Test that the maximum depth is 0 when there is no inheritance.
+     */
+    @Test
+    void testNoInheritanceMaximumDepth(){
+        InheritanceAnalyses ia = new InheritanceAnalyses("Examples/Inheritance/NoInheritance");
+        assertEquals(0, ia.getMaximumDepth());
+        assertTrue(ia.findMaximumDepth().isEmpty());
+    }
+
+    /**
+     * Test that a chain of 200000 classes is measured without running out of stack.
+     */
+    @Test
+    void testVeryDeepChain(){
+        int length = 200_000;
+        InheritanceAnalyses ia = new InheritanceAnalyses();
+        FileFacts facts = new FileFacts("Chain.java");
+        facts.addClass(new FileFacts.ClassFacts("C0", false, List.of()));
+        for (int i = 1; i < length; i++) {
+            facts.addClass(new FileFacts.ClassFacts("C" + i, false, List.of("C" + (i - 1))));
+        }
+        ia.accept(facts);
+        ia.finish();
+        assertEquals(length - 1, ia.getMaximumDepth());
+        assertEquals(length - 1, ia.getNumberOfDescendants("C0"));
+        assertEquals(length / 2, ia.getDepthOfInheritance("C" + length / 2));
+    }
+
+    /**
+     * Test that a hierarchy updated file by file gives the same metrics as one built from the current files,
+     * while files are created, edited and deleted at random.
+     */
+    @Test
+    void testUpdatedHierarchyMatchesRebuild(){
+        Random random = new Random(5);
+        FileFacts[] files = new FileFacts[30];
+        InheritanceAnalyses updated = new InheritanceAnalyses();
+        for (int step = 0; step < 400; step++) {
+            int file = random.nextInt(files.length);
+            FileFacts replacement = null;
+            if (random.nextInt(4) > 0) {
+                replacement = new FileFacts("F" + file + ".java");
+                for (int c = random.nextInt(4); c >= 0; c--) {
+                    // Parents are classes of any file or external classes, and some classes are interfaces
+                    List<String> parents = random.nextInt(4) == 0 ? List.of() : List.of("C" + random.nextInt(files.length) + "_" + random.nextInt(3));
+                    List<String> interfaces = List.of("C" + random.nextInt(files.length) + "_" + random.nextInt(4));
+                    replacement.addClass(new FileFacts.ClassFacts("C" + file + "_" + c, random.nextInt(5) == 0, parents, interfaces));
+                }
+            }
+            updated.updateFile(files[file], replacement);
+            files[file] = replacement;
+
+            InheritanceAnalyses rebuilt = new InheritanceAnalyses();
+            for (FileFacts facts : files) {
+                if (facts != null) {
+                    rebuilt.accept(facts);
+                }
+            }
+            rebuilt.finish();
+            rebuilt.findMaximumBreadth();
+            rebuilt.findAverageBranchingFactor();
+            assertEquals(rebuilt.getMaximumBreadth(), updated.getMaximumBreadth());
+            assertEquals(rebuilt.getAverageBranchingFactor(), updated.getAverageBranchingFactor());
+            assertEquals(rebuilt.getNumberOfParentClasses(), updated.getNumberOfParentClasses());
+            assertEquals(rebuilt.getNumberOfSubClasses(), updated.getNumberOfSubClasses());
+            assertEquals(rebuilt.getMaximumDepth(), updated.getMaximumDepth());
+            assertEquals(rebuilt.getClassNames(), updated.getClassNames());
+            assertEquals(rebuilt.findMaximumBreadth().keySet(), updated.findMaximumBreadth().keySet());
+            assertEquals(rebuilt.getNumberOfInterfaces(), updated.getNumberOfInterfaces());
+            assertEquals(rebuilt.findMostImplementedInterfaces().keySet(), updated.findMostImplementedInterfaces().keySet());
+            for (int f = 0; f < files.length; f++) {
+                for (int c = 0; c < 4; c++) {
+                    assertEquals(rebuilt.getSubInterfaces("C" + f + "_" + c), updated.getSubInterfaces("C" + f + "_" + c));
+                }
+            }
+        }
+    }
 }
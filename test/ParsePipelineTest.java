@@ -0,0 +1,291 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.javaparser.ast.CompilationUnit;
+
+public class ParsePipelineTest {
+
+    // Records the order in which files reach an analyzer.
+    private static class RecordingAnalyzer implements Analyzer {
+        private final List<String> files = new ArrayList<>();
+        private int finished = 0;
+
+        @Override
+        public void extract(CompilationUnit cu, FileFacts facts) {
+        }
+
+        @Override
+        public void accept(FileFacts facts) {
+            files.add(facts.getPath());
+        }
+
+        @Override
+        public void finish() {
+            finished++;
+        }
+    }
+
+    // Every registered analyzer sees every file exactly once.
+    @Test
+    void testEachFileParsedOnce() throws Exception {
+        RecordingAnalyzer first = new RecordingAnalyzer();
+        RecordingAnalyzer second = new RecordingAnalyzer();
+        ParsePipeline pipeline = new ParsePipeline().register(first).register(second);
+        pipeline.run(new File("Examples"));
+
+        assertEquals(pipeline.getFilesParsed(), first.files.size());
+        assertEquals(first.files, second.files);
+        assertEquals(first.files.size(), first.files.stream().distinct().count());
+        assertEquals(1, first.finished);
+    }
+
+    // Parsing on several threads delivers the files in the same order as parsing on one.
+    @Test
+    void testParallelParseIsDeterministic() throws Exception {
+        RecordingAnalyzer sequential = new RecordingAnalyzer();
+        new ParsePipeline(1).register(sequential).run(new File("Examples"));
+
+        RecordingAnalyzer parallel = new RecordingAnalyzer();
+        new ParsePipeline(4).register(parallel).run(new File("Examples"));
+
+        assertEquals(sequential.files, parallel.files);
+    }
+
+    // Parallel parsing builds the same inheritance hierarchy as sequential parsing.
+    @Test
+    void testParallelParseSameResults() throws Exception {
+        InheritanceAnalyses sequential = new InheritanceAnalyses();
+        new ParsePipeline(1).register(sequential).run(new File("Examples/Inheritance/Deep"));
+
+        InheritanceAnalyses parallel = new InheritanceAnalyses();
+        new ParsePipeline(3).register(parallel).run(new File("Examples/Inheritance/Deep"));
+
+        assertEquals(sequential.findAverageBranchingFactor(), parallel.findAverageBranchingFactor());
+        assertEquals(sequential.findMaximumBreadth().keySet(), parallel.findMaximumBreadth().keySet());
+    }
+
+    // Reading ahead on reader threads delivers the same files in the same order and finds the same cycles.
+    @Test
+    void testReadAheadSameResults() throws Exception {
+        RecordingAnalyzer sequential = new RecordingAnalyzer();
+        DependencyCycles sequentialCycles = new DependencyCycles();
+        new ParsePipeline(1).register(sequential).register(sequentialCycles).run(new File("Examples"));
+
+        for (int threads : new int[] {1, 3}) {
+            RecordingAnalyzer readAhead = new RecordingAnalyzer();
+            DependencyCycles readAheadCycles = new DependencyCycles();
+            ParsePipeline pipeline = new ParsePipeline(threads).setReadAhead(true);
+            pipeline.register(readAhead).register(readAheadCycles).run(new File("Examples"));
+
+            assertEquals(sequential.files, readAhead.files);
+            assertEquals(pipeline.getFilesParsed(), readAhead.files.size());
+            assertEquals(List.copyOf(sequentialCycles.getCycles()), List.copyOf(readAheadCycles.getCycles()));
+        }
+    }
+
+    // Listing a folder that does not exist fails instead of finding no files.
+    @Test
+    void testTraverseMissingFolderFails(@TempDir Path tempDir) throws Exception {
+        Evaluator evaluator = new Evaluator() { };
+        List<File> files = new ArrayList<>();
+        assertThrows(java.nio.file.NoSuchFileException.class,
+                () -> evaluator.traverseFolder(tempDir.resolve("missing").toFile(), files));
+        Files.write(tempDir.resolve("A.java"), "class A {}".getBytes());
+        evaluator.traverseFolder(tempDir.toFile(), files);
+        assertEquals(List.of(tempDir.resolve("A.java").toFile()), files);
+    }
+
+    // Facts read from the cache keep the classes without dependencies, so a warm run resolves names like a cold one.
+    @Test
+    void testCachedFactsKeepClassesWithoutDependencies(@TempDir Path tempDir) throws Exception {
+        Path projectDir = tempDir.resolve("project");
+        Files.createDirectories(projectDir.resolve("p"));
+        Files.createDirectories(projectDir.resolve("r"));
+        Files.writeString(projectDir.resolve("p/Util.java"), "package p; public class Util { }");
+        Files.writeString(projectDir.resolve("r/User.java"), "package r; import p.*; public class User { Util u; }");
+        Path cacheFile = tempDir.resolve("cache.bin");
+        String reference = TypeResolver.defer("Util", "r", List.of("p"));
+
+        AnalysisCache cold = new AnalysisCache(cacheFile, "accurate");
+        TypeResolver coldResolver = new TypeResolver();
+        new ParsePipeline().setCache(cold).register(new DependencyCycles(coldResolver)).run(projectDir.toFile());
+        cold.save();
+
+        AnalysisCache warm = new AnalysisCache(cacheFile, "accurate");
+        TypeResolver warmResolver = new TypeResolver();
+        ParsePipeline warmRun = new ParsePipeline().setCache(warm).register(new DependencyCycles(warmResolver));
+        warmRun.run(projectDir.toFile());
+
+        assertEquals(0, warmRun.getFilesParsed());
+        assertEquals(coldResolver.getProjectTypeCount(), warmResolver.getProjectTypeCount());
+        assertEquals("p.Util", coldResolver.resolve(reference));
+        assertEquals("p.Util", warmResolver.resolve(reference));
+    }
+
+    // A file with syntax errors fails a run, unless unparsable files are skipped, on any number of threads.
+    @Test
+    void testSkipUnparsableFiles(@TempDir Path tempDir) throws Exception {
+        Files.write(tempDir.resolve("A.java"), "class A {}".getBytes());
+        Files.write(tempDir.resolve("B.java"), "class B extends A {".getBytes());
+        Files.write(tempDir.resolve("C.java"), "class C extends A {}".getBytes());
+        assertThrows(com.github.javaparser.ParseProblemException.class, () -> new ParsePipeline().run(tempDir.toFile()));
+
+        for (ParsePipeline pipeline : List.of(new ParsePipeline(), new ParsePipeline(3), new ParsePipeline(2).setReadAhead(true))) {
+            RecordingAnalyzer recorder = new RecordingAnalyzer();
+            pipeline.setSkipUnparsable(true).register(recorder).run(tempDir.toFile());
+            assertEquals(2, recorder.files.size());
+            assertEquals(2, pipeline.getFilesAnalyzed());
+            assertEquals(List.of(tempDir.resolve("B.java").toFile()), List.copyOf(pipeline.getSkippedFiles().keySet()));
+        }
+        InheritanceAnalyses ia = new InheritanceAnalyses(tempDir.toString());
+        assertEquals(List.of("A", "C"), ia.getClassNames(), "the hierarchy is built from the files that parse");
+    }
+
+    // Zero threads is rejected.
+    @Test
+    void testInvalidThreadCount() {
+        assertThrows(IllegalArgumentException.class, () -> new ParsePipeline(0));
+    }
+
+    // A second run over unchanged files is served from the cache and gives the same results.
+    @Test
+    void testCacheSkipsUnchangedFiles(@TempDir Path tempDir) throws Exception {
+        Path projectDir = tempDir.resolve("project");
+        Files.createDirectories(projectDir);
+        for (File file : new File("Examples/Cyclic").listFiles()) {
+            Files.copy(file.toPath(), projectDir.resolve(file.getName()));
+        }
+        Files.copy(new File("Examples/control/control.java").toPath(), projectDir.resolve("control.java"));
+        Path cacheFile = tempDir.resolve("cache.bin");
+
+        AnalysisCache cold = new AnalysisCache(cacheFile, "test");
+        DependencyCycles coldCycles = new DependencyCycles();
+        ControlFlow coldFlow = new ControlFlow();
+        ParsePipeline coldRun = new ParsePipeline().setCache(cold).register(coldCycles).register(coldFlow);
+        coldRun.run(projectDir.toFile());
+        cold.save();
+        assertEquals(4, coldRun.getFilesParsed());
+
+        AnalysisCache warm = new AnalysisCache(cacheFile, "test");
+        DependencyCycles warmCycles = new DependencyCycles();
+        ControlFlow warmFlow = new ControlFlow();
+        ParsePipeline warmRun = new ParsePipeline().setCache(warm).register(warmCycles).register(warmFlow);
+        warmRun.run(projectDir.toFile());
+        assertEquals(0, warmRun.getFilesParsed());
+        assertEquals(4, warmRun.getFilesAnalyzed());
+        assertEquals(4, warm.getHits());
+        assertEquals(coldCycles.getCycles(), warmCycles.getCycles());
+        assertEquals(coldFlow.calculateCyclometicComplexity(), warmFlow.calculateCyclometicComplexity());
+        assertEquals(coldFlow.getCount(ControlFlowCounter.IF), warmFlow.getCount(ControlFlowCounter.IF));
+        assertEquals(coldFlow.getHotSpots().getHotSpots().get(0).getName(),
+                     warmFlow.getHotSpots().getHotSpots().get(0).getName());
+        warm.save();
+
+        // Breaking the cycle only re-parses the edited file.
+        Files.write(projectDir.resolve("CyclicC.java"), "package Cyclic;\npublic class CyclicC {}".getBytes());
+        AnalysisCache edited = new AnalysisCache(cacheFile, "test");
+        DependencyCycles editedCycles = new DependencyCycles();
+        ParsePipeline editedRun = new ParsePipeline().setCache(edited).register(editedCycles);
+        editedRun.run(projectDir.toFile());
+        assertEquals(1, editedRun.getFilesParsed());
+        assertTrue(editedCycles.getCycles().isEmpty());
+    }
+
+    // A cache written with other settings is ignored.
+    @Test
+    void testCacheFingerprintMismatch(@TempDir Path tempDir) throws Exception {
+        Path cacheFile = tempDir.resolve("cache.bin");
+        AnalysisCache first = new AnalysisCache(cacheFile, "top=10");
+        new ParsePipeline().setCache(first).register(new ControlFlow()).run(new File("Examples/control"));
+        first.save();
+
+        AnalysisCache second = new AnalysisCache(cacheFile, "top=3");
+        ParsePipeline run = new ParsePipeline().setCache(second).register(new ControlFlow(3));
+        run.run(new File("Examples/control"));
+        assertEquals(1, run.getFilesParsed());
+    }
+
+    // Excluded directories are not walked and only included files are analyzed.
+    @Test
+    void testFilterSkipsExcludedDirectories(@TempDir Path tempDir) throws Exception {
+        Files.createDirectories(tempDir.resolve("src/app"));
+        Files.createDirectories(tempDir.resolve("target/classes"));
+        Files.createDirectories(tempDir.resolve("src/generated-sources"));
+        Files.write(tempDir.resolve("src/app/A.java"), "class A {}".getBytes());
+        Files.write(tempDir.resolve("src/app/ATest.java"), "class ATest {}".getBytes());
+        Files.write(tempDir.resolve("target/classes/B.java"), "class B {".getBytes());
+        Files.write(tempDir.resolve("src/generated-sources/C.java"), "class C {".getBytes());
+
+        RecordingAnalyzer recorder = new RecordingAnalyzer();
+        SourceFilter filter = new SourceFilter().exclude("target").exclude("*-sources").exclude("src/**/*Test.java");
+        new ParsePipeline(2).setFilter(filter).register(recorder).run(tempDir.toFile());
+
+        assertEquals(List.of(tempDir.resolve("src/app/A.java").toString()), recorder.files);
+    }
+
+    // A **/dir/** pattern also excludes the directory at the project root, and the directory itself is not walked.
+    @Test
+    void testDoubleStarGlobMatchesTopLevelDirectory(@TempDir Path tempDir) throws Exception {
+        Files.createDirectories(tempDir.resolve("generated"));
+        Files.createDirectories(tempDir.resolve("a/generated"));
+        Files.write(tempDir.resolve("a/A.java"), "class A {}".getBytes());
+        Files.write(tempDir.resolve("generated/B.java"), "class B {".getBytes());
+        Files.write(tempDir.resolve("a/generated/C.java"), "class C {".getBytes());
+
+        SourceFilter filter = new SourceFilter().exclude("**/generated/**");
+        RecordingAnalyzer recorder = new RecordingAnalyzer();
+        new ParsePipeline().setFilter(filter).register(recorder).run(tempDir.toFile());
+
+        assertEquals(List.of(tempDir.resolve("a/A.java").toString()), recorder.files);
+        assertFalse(filter.acceptsDirectory(Path.of("generated")));
+        assertTrue(filter.acceptsDirectory(Path.of("a")));
+    }
+
+    // A link back up the tree is not followed by default, and only walked once when links are followed.
+    @Test
+    void testSymbolicLinkCycleTerminates(@TempDir Path tempDir) throws Exception {
+        Path pkg = Files.createDirectories(tempDir.resolve("pkg"));
+        Files.write(pkg.resolve("A.java"), "class A {}".getBytes());
+        Files.createSymbolicLink(pkg.resolve("loop"), tempDir);
+
+        RecordingAnalyzer plain = new RecordingAnalyzer();
+        new ParsePipeline().register(plain).run(tempDir.toFile());
+        assertEquals(1, plain.files.size());
+
+        RecordingAnalyzer following = new RecordingAnalyzer();
+        new ParsePipeline().setFilter(new SourceFilter().setFollowLinks(true)).register(following).run(tempDir.toFile());
+        assertEquals(1, following.files.size());
+    }
+
+    // Large files are memory mapped and small ones pooled, and both parse to the same facts.
+    @Test
+    void testMappedAndPooledReadsAgree(@TempDir Path tempDir) throws Exception {
+        StringBuilder big = new StringBuilder("class Big {\n    // \u00e9t\u00e9\n");
+        int methods = 0;
+        while (big.length() < 300 * 1024) {
+            big.append("    void m").append(methods++).append("(int x) { if (x > 0) { x--; } }\n");
+        }
+        big.append("}\n");
+        Files.write(tempDir.resolve("Big.java"), big.toString().getBytes("UTF-8"));
+        Files.write(tempDir.resolve("Small.java"), "class Small { void s(int x) { while (x > 0) x--; } }".getBytes());
+
+        ControlFlow flow = new ControlFlow();
+        ParsePipeline pipeline = new ParsePipeline().register(flow);
+        pipeline.run(tempDir.toFile());
+
+        assertEquals(1, pipeline.getLoader().getFilesMapped());
+        assertEquals(Files.size(tempDir.resolve("Big.java")) + Files.size(tempDir.resolve("Small.java")),
+                     pipeline.getLoader().getBytesRead());
+        assertEquals(methods + 1, flow.getCount(ControlFlowCounter.METHOD));
+        assertEquals(methods, flow.getCount(ControlFlowCounter.IF));
+        assertEquals(1, flow.getCount(ControlFlowCounter.WHILE));
+    }
+}
@@ -0,0 +1,75 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+
+public class ProjectGeneratorTest {
+
+    // The analyses reproduce every answer the generator wrote down.
+    @Test
+    void testAnalysesMatchExpectedResults(@TempDir Path tempDir) throws Exception {
+        Properties expected = new ProjectGenerator()
+                .setSeed(42)
+                .setClasses(1500)
+                .setPackages(50, 3)
+                .setInheritance(0.6, 4, 5)
+                .setDependencies(2.0, 7, 4)
+                .setControlFlow(2, 4.0)
+                .generate(tempDir);
+
+        InheritanceAnalyses inheritance = new InheritanceAnalyses();
+        DependencyCycles dependencies = new DependencyCycles();
+        ControlFlow controlFlow = new ControlFlow();
+        ParsePipeline pipeline = new ParsePipeline(2).register(inheritance).register(dependencies).register(controlFlow);
+        pipeline.run(tempDir.toFile());
+
+        assertEquals(expected.getProperty("classes"), String.valueOf(pipeline.getFilesParsed()));
+        assertEquals(expected.getProperty("classes"), String.valueOf(inheritance.getNumberOfClasses()));
+        inheritance.findMaximumBreadth();
+        inheritance.findAverageBranchingFactor();
+        assertEquals(expected.getProperty("inheritance.maxBreadth"), String.valueOf(inheritance.getMaximumBreadth()));
+        assertEquals(expected.getProperty("inheritance.maxDepth"), String.valueOf(inheritance.getMaximumDepth()));
+        assertEquals(expected.getProperty("inheritance.parentClasses"), String.valueOf((int) inheritance.getNumberOfParentClasses()));
+        assertEquals(expected.getProperty("inheritance.subClasses"), String.valueOf((int) inheritance.getNumberOfSubClasses()));
+        assertEquals(expected.getProperty("inheritance.averageBranchingFactor"), String.valueOf(inheritance.getAverageBranchingFactor()));
+
+        assertEquals(expected.getProperty("dependencies.edges"), String.valueOf(dependencies.getDependencyCount()));
+        List<List<String>> components = dependencies.getCyclicComponents();
+        assertEquals(expected.getProperty("dependencies.cyclicComponents"), String.valueOf(components.size()));
+        assertEquals(expected.getProperty("dependencies.largestCyclicComponent"), String.valueOf(components.get(0).size()));
+
+        for (ControlFlowCounter counter : ControlFlowCounter.values()) {
+            assertEquals(expected.getProperty("controlflow." + counter.name()), String.valueOf(controlFlow.getCount(counter)), counter.name());
+        }
+        assertEquals(expected.getProperty("controlflow.complexity"), String.valueOf(controlFlow.calculateCyclometicComplexity()));
+        assertEquals(expected.getProperty("controlflow.maxMethodComplexity"),
+                     String.valueOf(controlFlow.getHotSpots().getHotSpots().get(0).getComplexity()));
+    }
+
+    // The same seed writes the same sources, another seed does not.
+    @Test
+    void testSeedIsReproducible(@TempDir Path tempDir) throws Exception {
+        Path first = tempDir.resolve("first");
+        Path second = tempDir.resolve("second");
+        Path other = tempDir.resolve("other");
+        new ProjectGenerator().setSeed(7).setClasses(200).setDependencies(2.0, 3, 3).generate(first);
+        new ProjectGenerator().setSeed(7).setClasses(200).setDependencies(2.0, 3, 3).generate(second);
+        new ProjectGenerator().setSeed(8).setClasses(200).setDependencies(2.0, 3, 3).generate(other);
+
+        Path file = Path.of("gen", "p0", "C150.java");
+        assertEquals(Files.readString(first.resolve(file)), Files.readString(second.resolve(file)));
+        assertNotEquals(Files.readString(first.resolve(file)), Files.readString(other.resolve(file)));
+    }
+
+    // Asking for more cycles than fit is rejected.
+    @Test
+    void testTooManyCycles(@TempDir Path tempDir) {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ProjectGenerator().setClasses(10).setDependencies(1.0, 4, 3).generate(tempDir));
+    }
+}
@@ -0,0 +1,100 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.util.List;
+
+public class ReportSinkTest {
+
+    // Reports one file, a cycle through two packages and a score.
+    private void report(ReportSink sink) throws Exception {
+        DependencyCycles dc = new DependencyCycles();
+        dc.addDependency("p.A", "p.B");
+        dc.addDependency("p.B", "q.C");
+        dc.addDependency("q.C", "p.A");
+        CondensationGraph classes = dc.getClassCondensation();
+        CondensationGraph packages = dc.getPackageCondensation();
+
+        FileFacts facts = new FileFacts("src/p/A.java");
+        facts.addClass(new FileFacts.ClassFacts("p.A", false, List.of()));
+        facts.addDependency("p.A", "p.B");
+        sink.file(facts);
+        sink.classGroups(classes);
+        for (int component : classes.getCyclicComponents()) {
+            for (List<String> cycle : classes.getCycles(component, 5)) {
+                sink.cycle(cycle);
+            }
+        }
+        sink.packageStructure(classes, packages);
+        sink.score(75);
+        sink.close();
+    }
+
+    // Every result is one JSON object per line, starting with its type.
+    @Test
+    void testJsonLines() throws Exception {
+        StringWriter out = new StringWriter();
+        report(new JsonLinesReportSink(out));
+        String[] lines = out.toString().split("\n");
+
+        assertEquals("{\"type\":\"file\",\"path\":\"src/p/A.java\",\"classes\":[\"p.A\"],\"dependencies\":1,\"methods\":0,\"complexity\":0}", lines[0]);
+        assertEquals("{\"type\":\"classGroup\",\"size\":3,\"dependencies\":3,\"outgoing\":0,\"classes\":[\"p.A\",\"p.B\",\"q.C\"]}", lines[1]);
+        assertEquals("{\"type\":\"cycle\",\"classes\":[\"p.A\",\"p.B\",\"q.C\"]}", lines[2]);
+        assertEquals("{\"type\":\"condensation\",\"components\":1,\"dependencies\":0,\"layers\":1}", lines[3]);
+        assertEquals("{\"type\":\"packageGroup\",\"size\":2,\"dependencies\":2,\"packages\":[\"p\",\"q\"]}", lines[4]);
+        assertEquals("{\"type\":\"packageLayer\",\"layer\":0,\"packages\":[\"p\",\"q\"]}", lines[5]);
+        assertEquals("{\"type\":\"score\",\"score\":75}", lines[6]);
+        assertEquals(7, lines.length);
+    }
+
+    // Decoding a binary report gives back exactly the records of the JSON Lines report.
+    @Test
+    void testBinaryRoundTrip() throws Exception {
+        StringWriter json = new StringWriter();
+        report(new JsonLinesReportSink(json));
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        report(new BinaryReportSink(binary));
+
+        StringWriter decoded = new StringWriter();
+        JsonLinesReportSink target = new JsonLinesReportSink(decoded);
+        BinaryReportSink.decode(new ByteArrayInputStream(binary.toByteArray()), target);
+        target.close();
+
+        assertEquals(json.toString(), decoded.toString());
+        assertTrue(binary.size() < json.toString().length());
+    }
+
+    // Strings beyond the bounded string table are written in full and still decode, as do escaped characters.
+    @Test
+    void testBinaryStringTableIsBounded() throws Exception {
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        StringWriter json = new StringWriter();
+        try (BinaryReportSink sink = new BinaryReportSink(binary); JsonLinesReportSink expected = new JsonLinesReportSink(json)) {
+            for (int i = 0; i < BinaryReportSink.MAX_STRINGS + 100; i++) {
+                List<String> cycle = List.of("a.Class" + i, "b.\"Quoted\"\t" + (i % 3));
+                sink.cycle(cycle);
+                expected.cycle(cycle);
+            }
+        }
+
+        StringWriter decoded = new StringWriter();
+        try (JsonLinesReportSink target = new JsonLinesReportSink(decoded)) {
+            BinaryReportSink.decode(new ByteArrayInputStream(binary.toByteArray()), target);
+        }
+        assertEquals(json.toString(), decoded.toString());
+        assertTrue(json.toString().contains("[\"a.Class0\",\"b.\\\"Quoted\\\"\\t0\"]"));
+    }
+
+    // The text report prints every cycle back to its first class.
+    @Test
+    void testTextCycle() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ReportSink sink = ReportSink.create("text", out)) {
+            sink.cycle(List.of("a.A", "a.B"));
+            sink.score(80);
+        }
+        assertEquals("a.A -> a.B -> a.A" + System.lineSeparator() + "Overall quality score: 80" + System.lineSeparator(), out.toString());
+    }
+}